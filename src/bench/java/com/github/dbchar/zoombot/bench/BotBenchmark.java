@@ -0,0 +1,216 @@
+package com.github.dbchar.zoombot.bench;
+
+import com.github.dbchar.zoombot.cache.ChannelDirectory;
+import com.github.dbchar.zoombot.cache.ResponseCache;
+import com.github.dbchar.zoombot.fake.FakeZoomServer;
+import com.github.dbchar.zoombot.history.DayRange;
+import com.github.dbchar.zoombot.history.HistoryResult;
+import com.github.dbchar.zoombot.history.ParallelHistoryFetcher;
+import com.github.dbchar.zoombot.index.MessageIndex;
+import com.github.dbchar.zoombot.monitor.ChannelMonitor;
+import com.github.dbchar.zoombot.monitor.MonitorEngine;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/***
+ * Offline load benchmark of the bot's history components.
+ * Starts a {@link FakeZoomServer} and runs the {@link ParallelHistoryFetcher}, the {@link MessageIndex} and the
+ * {@link MonitorEngine} against it through a {@link FakeMessageSource}, as the bot wires them:
+ * listChannels into the response cache and the channel directory, listHistory without and with the response cache,
+ * searchMessageByContent through the index, and a set of monitored channels,
+ * then prints throughput and p50/p99 latency for each flow.
+ * Requests go straight to the fake server, so the request scheduler's rate limits are not part of the numbers.
+ * <p>
+ * Usage: BotBenchmark [channels=2000] [messagesPerDay=100] [days=5] [threads=16] [parallelism=5]
+ * [iterations=200] [channelListings=50] [monitoredChannels=500] [monitorSeconds=10] [latencyMs=0]
+ */
+public class BotBenchmark {
+    // region Private Properties
+
+    private static final String SEARCH_QUERY = "deploy";
+    private static final String USER_ID = "me";
+
+    private final Map<String, String> options;
+
+    // endregion
+
+    // region Public Methods
+
+    public BotBenchmark(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public void run() throws Exception {
+        var channels = option("channels", 2000);
+        var messagesPerDay = option("messagesPerDay", 100);
+        var days = option("days", 5);
+        var threads = option("threads", 16);
+        var iterations = option("iterations", 200);
+
+        var server = new FakeZoomServer(0, channels, 20, messagesPerDay, days, option("latencyMs", 0));
+        server.start(threads);
+        var baseUrl = server.getBaseUrl() + FakeZoomServer.API_PREFIX;
+        System.out.println("# Fake Zoom server at " + baseUrl + " with " + channels + " channels and "
+                + server.getTotalMessageCount() + " messages");
+
+        var pool = Executors.newFixedThreadPool(threads);
+        var source = new FakeMessageSource(baseUrl, Executors.newFixedThreadPool(threads));
+        var directory = new ChannelDirectory(null);
+        var cache = new ResponseCache(ResponseCache.DEFAULT_MAX_BYTES);
+        try {
+            var toDate = DayRange.format(LocalDate.now());
+            var fromDate = DayRange.format(LocalDate.now().minusDays(days - 1));
+
+            // the listings fill the directory the history flows resolve channel ids through
+            System.out.println(measure(pool, "listChannels(" + channels + " channels)", option("channelListings", 50),
+                    i -> listChannels(source, cache, directory)).report());
+
+            var cold = fetcher(source, directory, null);
+            System.out.println(measure(pool, "listHistory", iterations, i ->
+                    check(cold.history(FakeZoomServer.channelName(i % channels), fromDate, toDate))).report());
+            cold.shutdown();
+
+            var cached = fetcher(source, directory, cache);
+            System.out.println(measure(pool, "listHistory (cached)", iterations, i ->
+                    check(cached.history(FakeZoomServer.channelName(i % channels), fromDate, toDate, true))).report());
+
+            var index = new MessageIndex();
+            cached.addOnDayFetchedListener(index::indexDay);
+            System.out.println(measure(pool, "searchMessageByContent", iterations, i ->
+                    search(cached, index, FakeZoomServer.channelName(i % channels), fromDate, toDate)).report());
+            System.out.println("# Index: " + index.getDayCount() + " days, " + (index.getSizeInBytes() >> 10) + " KB");
+
+            var monitored = Math.min(channels, option("monitoredChannels", 500));
+            System.out.println(monitor(cached, directory, monitored, toDate, option("monitorSeconds", 10)).report());
+            cached.shutdown();
+            System.out.println("# Pages listed: " + source.getPageCount() + ", requests served: " + server.getRequestCount());
+        } finally {
+            MonitorEngine.INSTANCE.stopService();
+            pool.shutdownNow();
+            server.stop();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var i = arg.indexOf('=');
+            if (i > 0) options.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+        new BotBenchmark(options).run();
+        System.exit(0);
+    }
+
+    // endregion
+
+    // region Flows
+
+    private ParallelHistoryFetcher fetcher(FakeMessageSource source, ChannelDirectory directory, ResponseCache cache) {
+        var fetcher = new ParallelHistoryFetcher(source, option("parallelism", ParallelHistoryFetcher.DEFAULT_PARALLELISM));
+        fetcher.setChannelDirectory(directory, USER_ID);
+        if (cache != null) {
+            fetcher.setResponseCache(cache);
+        }
+        return fetcher;
+    }
+
+    /***
+     * List the channels as the bot's menu does: every page from the API, then into the response cache and the directory
+     */
+    private static int listChannels(FakeMessageSource source, ResponseCache cache, ChannelDirectory directory)
+            throws InterruptedException {
+        var channels = source.listChannels();
+        cache.putChannels(channels);
+        directory.update(channels);
+        return channels.size();
+    }
+
+    /***
+     * Search as the bot's menu does: fetch the days the index does not hold yet, then query the index
+     */
+    private static int search(ParallelHistoryFetcher fetcher, MessageIndex index, String channelName,
+                              String fromDate, String toDate) {
+        var missingDays = index.getMissingDays(channelName, fromDate, toDate);
+        if (!missingDays.isEmpty()) {
+            check(fetcher.history(channelName, missingDays, true));
+        }
+        return check(index.search(channelName, fromDate, toDate, SEARCH_QUERY));
+    }
+
+    /***
+     * Monitor today of the first channels on the engine, and sample how late their polls start
+     */
+    private static LatencyRecorder monitor(ParallelHistoryFetcher fetcher, ChannelDirectory directory, int channels,
+                                           String today, int seconds) throws Exception {
+        var recorder = new LatencyRecorder("monitor lag(" + channels + " channels)");
+        var monitors = new ChannelMonitor[channels];
+        for (var i = 0; i < channels; i++) {
+            monitors[i] = new ChannelMonitor(FakeZoomServer.channelName(i), today, today,
+                    ChannelMonitor.DEFAULT_POLL_INTERVAL_MILLIS, fetcher, null, directory);
+            MonitorEngine.INSTANCE.startTask(monitors[i]);
+        }
+
+        recorder.start();
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(ChannelMonitor.DEFAULT_POLL_INTERVAL_MILLIS);
+            for (var monitor : monitors) {
+                if (monitor.getLastErrorMessage() != null) {
+                    recorder.recordError();
+                } else {
+                    recorder.record(TimeUnit.MILLISECONDS.toNanos(monitor.getLastPollLagMillis()));
+                }
+            }
+        }
+        recorder.stop();
+        MonitorEngine.INSTANCE.stopAllTasks();
+        return recorder;
+    }
+
+    // endregion
+
+    // region Helpers
+
+    private interface Operation {
+        int run(int iteration) throws Exception;
+    }
+
+    private static int check(HistoryResult result) {
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getErrorMessage());
+        }
+        return result.getItems().size();
+    }
+
+    private LatencyRecorder measure(ExecutorService pool, String name, int iterations, Operation operation) throws Exception {
+        var recorder = new LatencyRecorder(name);
+        var futures = new Future<?>[iterations];
+        recorder.start();
+        for (var i = 0; i < iterations; i++) {
+            final var iteration = i;
+            futures[i] = pool.submit(() -> timed(recorder, () -> operation.run(iteration)));
+        }
+        for (var future : futures) future.get();
+        recorder.stop();
+        return recorder;
+    }
+
+    private static void timed(LatencyRecorder recorder, Callable<Integer> call) {
+        var start = System.nanoTime();
+        try {
+            call.call();
+            recorder.record(System.nanoTime() - start);
+        } catch (Exception e) {
+            recorder.recordError();
+        }
+    }
+
+    private int option(String key, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    // endregion
+}
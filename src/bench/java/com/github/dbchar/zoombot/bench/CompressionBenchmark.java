@@ -0,0 +1,186 @@
+package com.github.dbchar.zoombot.bench;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.compress.CompressedMessages;
+import com.github.dbchar.zoombot.compress.MessageCompressor;
+import com.github.dbchar.zoombot.fake.FakeZoomServer;
+import com.github.dbchar.zoombot.history.LocalMessages;
+import com.github.dbchar.zoombot.store.MessageStore;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Offline benchmark of the compressed text tier on the history the bot has stored.
+ * Reads every day of a {@link MessageStore}, compresses the days of each channel in order as the history fetcher
+ * does, then prints the compression ratio with and without channel dictionaries and the cost of reading days back.
+ * Without a stored history, it uses the message mix of the {@link FakeZoomServer}.
+ * <p>
+ * Usage: CompressionBenchmark [store=./history] [dictionaryKilobytes=16] [reads=5]
+ * [channels=50] [messagesPerDay=200] [days=5]
+ */
+public class CompressionBenchmark {
+    // region Private Properties
+
+    private final Map<String, String> options;
+
+    // endregion
+
+    // region Public Methods
+
+    public CompressionBenchmark(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public void run() throws Exception {
+        var history = loadStore(options.getOrDefault("store", MessageStore.DEFAULT_DIRECTORY));
+        if (history.isEmpty()) {
+            history = generate(option("channels", 50), option("messagesPerDay", 200), option("days", 5));
+        }
+
+        var messageCount = 0L;
+        for (var days : history.values()) {
+            for (var day : days) messageCount += day.size();
+        }
+        System.out.println("# " + history.size() + " channels, " + messageCount + " messages");
+
+        var plain = compress(history, 0);
+        var dictionary = compress(history, option("dictionaryKilobytes", MessageCompressor.DEFAULT_DICTIONARY_KILOBYTES) << 10);
+        System.out.println(ratio("deflate", plain));
+        System.out.println(ratio("deflate + dictionary", dictionary));
+
+        var reads = option("reads", 5);
+        var heap = new ArrayList<List<Message>>();
+        history.values().forEach(heap::addAll);
+        System.out.println(read("read day (heap)", heap, reads, messageCount).report());
+        System.out.println(read("read day (compressed)", dictionary, reads, messageCount).report());
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var i = arg.indexOf('=');
+            if (i > 0) options.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+        new CompressionBenchmark(options).run();
+    }
+
+    // endregion
+
+    // region Sources
+
+    private static Map<String, List<List<Message>>> loadStore(String directory) throws Exception {
+        var history = new LinkedHashMap<String, List<List<Message>>>();
+        if (!Files.isDirectory(Paths.get(directory))) return history;
+
+        var store = new MessageStore(directory);
+        for (var channelId : store.listChannels()) {
+            var days = new ArrayList<List<Message>>();
+            for (var epochDay : store.listDays(channelId)) {
+                var messages = store.read(channelId, epochDay);
+                if (messages != null && !messages.isEmpty()) days.add(messages);
+            }
+            if (!days.isEmpty()) history.put(channelId, days);
+        }
+        System.out.println("# Stored history in " + directory);
+        return history;
+    }
+
+    private static Map<String, List<List<Message>>> generate(int channels, int messagesPerDay, int dayCount) {
+        System.out.println("# No stored history, using the fake server's message mix");
+        var history = new LinkedHashMap<String, List<List<Message>>>();
+        var today = LocalDate.now();
+        for (var channel = 0; channel < channels; channel++) {
+            var days = new ArrayList<List<Message>>();
+            for (var date = today.minusDays(dayCount - 1); !date.isAfter(today); date = date.plusDays(1)) {
+                var startOfDay = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                var messages = new ArrayList<Message>(messagesPerDay);
+                for (var i = 0; i < messagesPerDay; i++) {
+                    messages.add(LocalMessages.sent(channel + "-" + date.toEpochDay() + "-" + i,
+                            FakeZoomServer.messageText(channel, date, i), FakeZoomServer.messageSender(channel, date, i),
+                            startOfDay + (long) (messagesPerDay - i) * (86_400_000L / (messagesPerDay + 1))));
+                }
+                days.add(messages);
+            }
+            history.put(FakeZoomServer.channelName(channel), days);
+        }
+        return history;
+    }
+
+    // endregion
+
+    // region Measurements
+
+    private static List<List<Message>> compress(Map<String, List<List<Message>>> history, int dictionaryBytes) {
+        var compressor = new MessageCompressor(dictionaryBytes);
+        var days = new ArrayList<List<Message>>();
+        history.forEach((channelName, channelDays) -> {
+            for (var day : channelDays) days.add(compressor.compress(channelName, day));
+        });
+        return days;
+    }
+
+    private static String ratio(String name, List<List<Message>> days) {
+        var textBytes = 0L;
+        var compressedBytes = 0L;
+        var dayBytes = 0L;
+        for (var day : days) {
+            var compressed = (CompressedMessages) day;
+            textBytes += compressed.getTextBytes();
+            compressedBytes += compressed.getCompressedTextBytes();
+            dayBytes += compressed.getSizeInBytes();
+        }
+        // the same days with their texts uncompressed, as the cache holds them without this tier
+        var uncompressedDayBytes = dayBytes - compressedBytes + textBytes;
+        return String.format("%-28s text=%,d -> %,d bytes (%.2fx)  days=%,d -> %,d bytes (%.2fx)",
+                name, textBytes, compressedBytes, (double) textBytes / Math.max(1, compressedBytes),
+                uncompressedDayBytes, dayBytes, (double) uncompressedDayBytes / Math.max(1, dayBytes));
+    }
+
+    /***
+     * Read the text of every message of every day, as a search over the cached history does
+     */
+    private static LatencyRecorder read(String name, List<List<Message>> days, int reads, long messageCount) {
+        var blackhole = 0L;
+        for (var day : days) {
+            blackhole += readTexts(day);
+        }
+
+        var recorder = new LatencyRecorder(name);
+        var start = System.nanoTime();
+        recorder.start();
+        for (var pass = 0; pass < reads; pass++) {
+            for (var day : days) {
+                var dayStart = System.nanoTime();
+                blackhole += readTexts(day);
+                recorder.record(System.nanoTime() - dayStart);
+            }
+        }
+        recorder.stop();
+        var perMessage = (System.nanoTime() - start) / (double) Math.max(1, messageCount * reads);
+        System.out.printf("# %s: %.1f ns per message (%d)%n", name, perMessage, blackhole % 10);
+        return recorder;
+    }
+
+    private static long readTexts(List<Message> day) {
+        var length = 0L;
+        for (var message : day) {
+            var text = message.getMessage();
+            if (text != null) length += text.length();
+        }
+        return length;
+    }
+
+    private int option(String key, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    // endregion
+}
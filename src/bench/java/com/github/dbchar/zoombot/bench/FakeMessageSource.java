@@ -0,0 +1,153 @@
+package com.github.dbchar.zoombot.bench;
+
+import com.github.dbchar.zoomapi.models.Channel;
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.fake.FakeZoomServer;
+import com.github.dbchar.zoombot.history.LocalMessages;
+import com.github.dbchar.zoombot.history.MessagePage;
+import com.github.dbchar.zoombot.history.MessageSource;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Lists messages from a {@link FakeZoomServer} over HTTP, so the history fetcher runs against a real transport
+ * without a Zoom account. Only the id-based messages endpoint is served.
+ * Also lists the user's channels, page by page as the bot's listChannels does.
+ */
+public class FakeMessageSource implements MessageSource {
+    // region Private Properties
+
+    private static final Gson GSON = new Gson();
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final AtomicLong pageCount = new AtomicLong();
+
+    // endregion
+
+    // region Public Methods
+
+    public FakeMessageSource(String baseUrl, Executor executor) {
+        this.baseUrl = baseUrl;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public MessagePage list(String userId, String channelId, String day, String pageToken) {
+        var path = "/chat/users/me/messages?to_channel=" + encode(channelId) + "&date=" + day
+                + "&page_size=" + FakeZoomServer.MAX_PAGE_SIZE
+                + "&next_page_token=" + (pageToken == null ? "" : encode(pageToken));
+        try {
+            var page = GSON.fromJson(get(path), Page.class);
+            var messages = new ArrayList<Message>(page.messages == null ? 0 : page.messages.size());
+            if (page.messages != null) {
+                for (var message : page.messages) {
+                    messages.add(LocalMessages.sent(message.id, message.message, message.sender, message.timestamp));
+                }
+            }
+            return MessagePage.success(messages, page.next_page_token);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return MessagePage.failure("Interrupted while listing " + path);
+        } catch (Exception e) {
+            return MessagePage.failure(String.valueOf(e.getMessage()));
+        }
+    }
+
+    /***
+     * List every channel of the user, one page after the other
+     * @throws IllegalStateException if a page could not be listed
+     */
+    public List<Channel> listChannels() throws InterruptedException {
+        var channels = new ArrayList<Channel>();
+        var pageToken = "";
+        do {
+            var path = "/chat/users/me/channels?page_size=" + FakeZoomServer.MAX_PAGE_SIZE
+                    + "&next_page_token=" + encode(pageToken);
+            var page = GSON.fromJson(get(path), ChannelPage.class);
+            if (page.channels != null) {
+                channels.addAll(page.channels);
+            }
+            pageToken = page.next_page_token == null ? "" : page.next_page_token;
+        } while (!pageToken.isEmpty());
+        return channels;
+    }
+
+    @Override
+    public MessagePage history(String channelName, String day) {
+        return MessagePage.failure("The fake server only lists messages by channel id");
+    }
+
+    /***
+     * @return number of pages listed so far
+     */
+    public long getPageCount() {
+        return pageCount.get();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private String get(String path) throws InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer fake-access")
+                .GET()
+                .build();
+        try {
+            var response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            pageCount.incrementAndGet();
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("HTTP " + response.statusCode() + " for " + path);
+            }
+            return response.body();
+        } catch (IOException e) {
+            throw new IllegalStateException("Fail to list " + path + "\nReason: " + e.getMessage(), e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /***
+     * Body of the messages endpoint, as the fake server writes it
+     */
+    private static class Page {
+        String next_page_token;
+        List<PageMessage> messages;
+    }
+
+    /***
+     * Body of the channels endpoint
+     */
+    private static class ChannelPage {
+        String next_page_token;
+        List<Channel> channels;
+    }
+
+    private static class PageMessage {
+        String id;
+        String message;
+        String sender;
+        long timestamp;
+    }
+
+    // endregion
+}
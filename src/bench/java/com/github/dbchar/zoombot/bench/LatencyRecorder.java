@@ -0,0 +1,61 @@
+package com.github.dbchar.zoombot.bench;
+
+import java.util.Arrays;
+
+/***
+ * Collects latency samples (in nanoseconds) and reports throughput and percentiles.
+ */
+public class LatencyRecorder {
+    // region Private Properties
+
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+    private long startNanos = System.nanoTime();
+    private long endNanos;
+
+    // endregion
+
+    // region Public Methods
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public synchronized void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public synchronized void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public synchronized void recordError() {
+        errors++;
+    }
+
+    public synchronized long percentile(double p) {
+        if (count == 0) return 0;
+        var sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        var index = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    public synchronized String report() {
+        var elapsed = (endNanos > 0 ? endNanos : System.nanoTime()) - startNanos;
+        var throughput = count / (elapsed / 1e9);
+        return String.format("%-28s ops=%-8d errors=%-5d throughput=%10.1f ops/s  p50=%8.2f ms  p99=%8.2f ms",
+                name, count, errors, throughput, percentile(50) / 1e6, percentile(99) / 1e6);
+    }
+
+    // endregion
+}
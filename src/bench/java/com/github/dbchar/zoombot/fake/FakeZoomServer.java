@@ -0,0 +1,371 @@
+package com.github.dbchar.zoombot.fake;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * In-process stand-in for the subset of the Zoom REST API used by the bot.
+ * Channels, members, contacts and message history are generated on the fly from their indices,
+ * so millions of messages can be served without holding them in memory.
+ */
+public class FakeZoomServer {
+    // region Public Constants
+
+    public static final String API_PREFIX = "/v2";
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final int MAX_PAGE_SIZE = 50;
+
+    // endregion
+
+    // region Private Properties
+
+    private static final String[] WORDS = {
+            "hello", "meeting", "standup", "deploy", "review", "lunch", "build", "green", "red",
+            "ticket", "merge", "release", "https://example.com/docs", "thanks", "ok", "later"
+    };
+    private static final String[] SENDERS = {
+            "alice@example.com", "bob@example.com", "carol@example.com", "dave@example.com", "erin@example.com"
+    };
+
+    private final int port;
+    private final int channelCount;
+    private final int membersPerChannel;
+    private final int messagesPerDay;
+    private final int days;
+    private final long latencyMillis;
+    private final LocalDate today = LocalDate.now();
+    private final Map<String, List<String>> sentMessages = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong nextMessageId = new AtomicLong();
+    private HttpServer server;
+
+    // endregion
+
+    // region Public Methods
+
+    public FakeZoomServer(int port, int channelCount, int membersPerChannel, int messagesPerDay, int days, long latencyMillis) {
+        this.port = port;
+        this.channelCount = channelCount;
+        this.membersPerChannel = membersPerChannel;
+        this.messagesPerDay = messagesPerDay;
+        this.days = days;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void start(int threads) throws IOException {
+        // avoid Nagle + delayed ACK stalls on small loopback responses
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.createContext("/oauth/token", this::handleToken);
+        server.createContext(API_PREFIX + "/users", this::handleUsers);
+        server.createContext(API_PREFIX + "/chat", this::handleChat);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getTotalMessageCount() {
+        return (long) channelCount * messagesPerDay * days;
+    }
+
+    public static String channelId(int index) {
+        return String.format("fake-channel-%06d", index);
+    }
+
+    public static String channelName(int index) {
+        return "channel-" + index;
+    }
+
+    /***
+     * @return text of the i-th newest message of a channel on a day, as served by the fake server
+     */
+    public static String messageText(int channelIndex, LocalDate date, int i) {
+        var seed = seed(channelIndex, date, i);
+        var text = new StringBuilder(48);
+        for (var w = 0; w < 4; w++) {
+            if (w > 0) text.append(' ');
+            text.append(WORDS[(int) Math.floorMod(seed >>> (w * 4), (long) WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    public static String messageSender(int channelIndex, LocalDate date, int i) {
+        return SENDERS[Math.floorMod(seed(channelIndex, date, i), SENDERS.length)];
+    }
+
+    // endregion
+
+    // region Handlers
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "{\"access_token\":\"fake-access-" + System.nanoTime() + "\"," +
+                "\"token_type\":\"bearer\"," +
+                "\"refresh_token\":\"fake-refresh\"," +
+                "\"expires_in\":3599," +
+                "\"scope\":\"chat_channel:write chat_message:write user:read\"}");
+    }
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, userJson(0, "owner"));
+    }
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        var path = exchange.getRequestURI().getPath().substring(API_PREFIX.length());
+        var query = parseQuery(exchange.getRequestURI());
+        var method = exchange.getRequestMethod();
+        var segments = path.split("/");
+
+        // /chat/users/me/channels
+        if (path.equals("/chat/users/me/channels")) {
+            if (method.equals("POST")) {
+                respond(exchange, 201, channelJson(channelCount, "created"));
+            } else {
+                respond(exchange, 200, listChannels(query));
+            }
+        }
+        // /chat/users/me/messages[/{messageId}]
+        else if (path.startsWith("/chat/users/me/messages")) {
+            if (method.equals("POST")) {
+                respond(exchange, 201, sendMessage(readBody(exchange)));
+            } else if (method.equals("GET")) {
+                respond(exchange, 200, listMessages(query));
+            } else {
+                respond(exchange, 204, "");
+            }
+        }
+        // /chat/users/me/contacts
+        else if (path.equals("/chat/users/me/contacts")) {
+            respond(exchange, 200, listUsers("contacts", 0, membersPerChannel, query));
+        }
+        // /chat/channels/{channelId}[/members[/me|/{memberId}]]
+        else if (segments.length >= 4 && segments[2].equals("channels")) {
+            var index = channelIndex(segments[3]);
+            if (index < 0) {
+                respond(exchange, 404, "{\"code\":4130,\"message\":\"Channel does not exist: " + segments[3] + "\"}");
+            } else if (segments.length == 4) {
+                respond(exchange, method.equals("GET") ? 200 : 204, method.equals("GET") ? channelJson(index, null) : "");
+            } else if (method.equals("GET")) {
+                respond(exchange, 200, listUsers("members", index, membersPerChannel, query));
+            } else if (method.equals("POST")) {
+                respond(exchange, 201, "{\"ids\":\"" + index + "\",\"added_at\":\"" + today + "T00:00:00Z\"}");
+            } else {
+                respond(exchange, 204, "");
+            }
+        } else {
+            respond(exchange, 404, "{\"code\":404,\"message\":\"Unknown path: " + path + "\"}");
+        }
+    }
+
+    // endregion
+
+    // region Response Bodies
+
+    private String listChannels(Map<String, String> query) {
+        var pageSize = pageSize(query);
+        var offset = pageOffset(query);
+        var end = Math.min(channelCount, offset + pageSize);
+
+        var body = new StringBuilder(64 + (end - offset) * 96);
+        body.append("{\"total_records\":").append(channelCount)
+                .append(",\"page_size\":").append(pageSize)
+                .append(",\"next_page_token\":\"").append(end < channelCount ? String.valueOf(end) : "")
+                .append("\",\"channels\":[");
+        for (var i = offset; i < end; i++) {
+            if (i > offset) body.append(',');
+            body.append(channelJson(i, null));
+        }
+        return body.append("]}").toString();
+    }
+
+    private String listUsers(String key, int seed, int total, Map<String, String> query) {
+        var pageSize = pageSize(query);
+        var offset = pageOffset(query);
+        var end = Math.min(total, offset + pageSize);
+
+        var body = new StringBuilder(64 + (end - offset) * 160);
+        body.append("{\"total_records\":").append(total)
+                .append(",\"page_size\":").append(pageSize)
+                .append(",\"next_page_token\":\"").append(end < total ? String.valueOf(end) : "")
+                .append("\",\"").append(key).append("\":[");
+        for (var i = offset; i < end; i++) {
+            if (i > offset) body.append(',');
+            body.append(userJson((seed * 31 + i) % 100_000, "member"));
+        }
+        return body.append("]}").toString();
+    }
+
+    private String listMessages(Map<String, String> query) {
+        var channelIndex = channelIndex(query.getOrDefault("to_channel", ""));
+        var date = query.containsKey("date") ? LocalDate.parse(query.get("date")) : today;
+        var dayOffset = (int) (today.toEpochDay() - date.toEpochDay());
+        var generated = channelIndex < 0 || dayOffset < 0 || dayOffset >= days ? 0 : messagesPerDay;
+        var sent = date.equals(today) && channelIndex >= 0
+                ? sentMessages.getOrDefault(channelId(channelIndex), List.of())
+                : List.<String>of();
+        var total = generated + sent.size();
+
+        var pageSize = pageSize(query);
+        var offset = pageOffset(query);
+        var end = Math.min(total, offset + pageSize);
+
+        var body = new StringBuilder(96 + (end - offset) * 192);
+        body.append("{\"date\":\"").append(date)
+                .append("\",\"page_size\":").append(pageSize)
+                .append(",\"next_page_token\":\"").append(end < total ? String.valueOf(end) : "")
+                .append("\",\"messages\":[");
+        for (var i = offset; i < end; i++) {
+            if (i > offset) body.append(',');
+            if (i < generated) {
+                body.append(messageJson(channelIndex, date, i));
+            } else {
+                body.append(sent.get(i - generated));
+            }
+        }
+        return body.append("]}").toString();
+    }
+
+    private String sendMessage(String requestBody) {
+        var request = JsonParser.parseString(requestBody).getAsJsonObject();
+        var channelId = getString(request, "to_channel");
+        var id = "sent-" + nextMessageId.incrementAndGet();
+        var now = System.currentTimeMillis();
+        var message = new JsonObject();
+        message.addProperty("id", id);
+        message.addProperty("message", getString(request, "message"));
+        message.addProperty("sender", SENDERS[0]);
+        message.addProperty("date_time", java.time.Instant.ofEpochMilli(now).toString());
+        message.addProperty("timestamp", now);
+        sentMessages.computeIfAbsent(channelId, key -> Collections.synchronizedList(new ArrayList<>())).add(message.toString());
+        return "{\"id\":\"" + id + "\"}";
+    }
+
+    private String channelJson(int index, String name) {
+        return "{\"id\":\"" + channelId(index) + "\",\"name\":\"" + (name == null ? channelName(index) : name) + "\",\"type\":" + (index % 4 + 1) + "}";
+    }
+
+    private String userJson(int index, String role) {
+        return "{\"id\":\"fake-user-" + index + "\",\"email\":\"user" + index + "@example.com\"," +
+                "\"first_name\":\"User\",\"last_name\":\"" + index + "\",\"name\":\"User " + index + "\"," +
+                "\"role\":\"" + role + "\",\"type\":1}";
+    }
+
+    private String messageJson(int channelIndex, LocalDate date, int i) {
+        // messages are returned newest first, spread evenly over the day
+        var startOfDay = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        var timestamp = startOfDay + (long) (messagesPerDay - i) * (86_400_000L / (messagesPerDay + 1));
+        var text = messageText(channelIndex, date, i);
+        return "{\"id\":\"" + Integer.toHexString(channelIndex) + "-" + Long.toHexString(date.toEpochDay()) + "-" + Integer.toHexString(i) +
+                "\",\"message\":\"" + text +
+                "\",\"sender\":\"" + messageSender(channelIndex, date, i) +
+                "\",\"date_time\":\"" + java.time.Instant.ofEpochMilli(timestamp) +
+                "\",\"timestamp\":" + timestamp + "}";
+    }
+
+    // endregion
+
+    // region Helpers
+
+    private static long seed(int channelIndex, LocalDate date, int i) {
+        return (channelIndex * 1_000_003L) ^ (date.toEpochDay() * 7919L) ^ i;
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        requestCount.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        var query = new HashMap<String, String>();
+        if (uri.getRawQuery() == null) return query;
+        for (var pair : uri.getRawQuery().split("&")) {
+            var i = pair.indexOf('=');
+            if (i > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, i), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(i + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String getString(JsonObject json, String key) {
+        var value = json.get(key);
+        return value == null || value.isJsonNull() ? "" : value.getAsString();
+    }
+
+    private int channelIndex(String channelId) {
+        if (!channelId.startsWith("fake-channel-")) return -1;
+        try {
+            var index = Integer.parseInt(channelId.substring("fake-channel-".length()));
+            return index < channelCount ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        try {
+            return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(query.getOrDefault("page_size", "" + DEFAULT_PAGE_SIZE))));
+        } catch (NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+
+    private static int pageOffset(Map<String, String> query) {
+        var token = query.getOrDefault("next_page_token", "");
+        try {
+            return token.isEmpty() ? 0 : Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // endregion
+}
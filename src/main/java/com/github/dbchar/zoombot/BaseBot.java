@@ -3,18 +3,33 @@ package com.github.dbchar.zoombot;
 import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
 import com.github.dbchar.zoomapi.models.User;
 import com.github.dbchar.zoomapi.utils.services.NgrokService;
+import com.github.dbchar.zoombot.auth.StoredCredentials;
+import com.github.dbchar.zoombot.auth.TokenManager;
+import com.github.dbchar.zoombot.auth.TokenStore;
+import com.github.dbchar.zoombot.io.ConsoleSink;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+import com.github.dbchar.zoombot.startup.StartupPipeline;
 import org.ini4j.Wini;
 
 import java.io.File;
 
+import static com.github.dbchar.zoombot.scheduler.RequestScheduler.EndpointClass.*;
+
 public class BaseBot {
     // region Private Properties
 
     private static final String ROOT_PATH_BOT_INI = "./";
     private static final String DEFAULT_FILE_BOT_INI = "bot.ini";
+    private static final String CATEGORY_OAUTH = "OAuth";
+    protected static final String STAGE_CONFIG = "config";
+    protected static final String STAGE_LOGIN = "login";
+    protected static final String STAGE_USER = "user";
     private final String iniPath;
+    private Wini ini;
     private OAuthZoomClient client;
-    private User user;
+    private volatile User user;
+    private TokenStore tokenStore;
+    private StartupPipeline startup;
 
     // endregion
 
@@ -28,12 +43,26 @@ public class BaseBot {
         this(DEFAULT_FILE_BOT_INI);
     }
 
+    /***
+     * Run the startup stages and wait until the bot is ready; background stages may still be running
+     */
     public void run() throws Exception {
-        oauthLogin(iniPath);
-        this.user = obtainUser();
+        startup = new StartupPipeline();
+        startup.addStage(STAGE_CONFIG, this::loadConfig);
+        startup.addStage(STAGE_LOGIN, this::login, STAGE_CONFIG);
+        startup.addStage(STAGE_USER, this::lookUpUser, STAGE_LOGIN);
+        addStartupStages(startup);
+        startup.awaitReady();
         BotIO.printUserInfo(user);
     }
 
+    /***
+     * @return the startup pipeline of the last run, with the timing of each stage
+     */
+    public StartupPipeline getStartup() {
+        return startup;
+    }
+
     public OAuthZoomClient getClient() {
         return client;
     }
@@ -42,40 +71,162 @@ public class BaseBot {
         return user;
     }
 
+    /***
+     * Read an optional value from bot.ini
+     * @return the value of [category] key, or defaultValue if the key is absent
+     */
+    public <T> T getConfig(String category, String key, Class<T> type, T defaultValue) {
+        if (ini == null || ini.get(category, key) == null) {
+            return defaultValue;
+        }
+        return ini.get(category, key, type);
+    }
+
+    // endregion
+
+    // region Protected Methods
+
+    /***
+     * Add the stages of a subclass; they may depend on STAGE_CONFIG, STAGE_LOGIN and STAGE_USER
+     */
+    protected void addStartupStages(StartupPipeline pipeline) {
+    }
+
     // endregion
 
     // region Private Methods
 
-    private void oauthLogin(String iniPath) throws Exception {
-        final var CATEGORY = "OAuth";
+    private void loadConfig() throws Exception {
+        ini = new Wini(new File(iniPath));
+        if (getConfig(CATEGORY_OAUTH, "warm_start", Boolean.class, true)) {
+            tokenStore = new TokenStore(
+                    getConfig(CATEGORY_OAUTH, "credentials_file", String.class, TokenStore.DEFAULT_PATH),
+                    ini.get(CATEGORY_OAUTH, "client_id", String.class),
+                    ini.get(CATEGORY_OAUTH, "client_secret", String.class));
+            TokenManager.INSTANCE.addOnTokenRefreshedListener(refreshedClient -> saveCredentials());
+        }
+    }
+
+    private void login() throws Exception {
+        if (!warmStart()) {
+            oauthLogin();
+        }
+    }
+
+    private void lookUpUser() {
+        // a warm start has already restored the user
+        if (user == null) {
+            user = obtainUser();
+            saveCredentials();
+        }
+    }
+
+    /***
+     * Restore the client and user from the token store, without ngrok, the OAuth redirect or a 'me' request
+     * @return false if there is nothing usable to restore
+     */
+    private boolean warmStart() {
+        var credentials = tokenStore == null ? null : tokenStore.load();
+        if (credentials == null || credentials.getUser() == null || credentials.getRefreshToken() == null) {
+            return false;
+        }
+
+        try {
+            client = new OAuthZoomClient(
+                    credentials.getClientId(),
+                    ini.get(CATEGORY_OAUTH, "client_secret", String.class),
+                    credentials.getAccessToken(),
+                    credentials.getRefreshToken());
+        } catch (Exception e) {
+            client = null;
+            return false;
+        }
+        // set before any refresh, so the refresh listener can save the new tokens with the user
+        user = credentials.getUser();
+        startTokenManager(credentials.getIssuedAtMillis());
+
+        // an access token that expired while the bot was down is exchanged with the stored refresh token
+        if (System.currentTimeMillis() >= TokenManager.INSTANCE.getExpiresAtMillis() && !TokenManager.INSTANCE.refresh()) {
+            TokenManager.INSTANCE.stop();
+            client = null;
+            user = null;
+            return false;
+        }
+        verifyCredentialsInBackground();
+        return true;
+    }
+
+    /***
+     * Refresh the cached user off the startup path; stored credentials Zoom rejects are dropped,
+     * so the next start authorizes again
+     */
+    private void verifyCredentialsInBackground() {
+        var thread = new Thread(() -> {
+            var result = RequestScheduler.INSTANCE.call(RequestScheduler.Lane.BACKGROUND, USERS, "users.get",
+                    () -> client.getUsersComponent().get("me"));
+            if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+                user = result.getItem();
+                saveCredentials();
+            } else if (String.valueOf(result.getErrorMessage()).toLowerCase().contains("token")) {
+                tokenStore.clear();
+                BotIO.println("Fail to verify stored credentials, please restart the bot to log in again.\nReason: " + result.getErrorMessage());
+            }
+        }, "credentials-verifier");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void saveCredentials() {
+        if (tokenStore == null || client == null || user == null) return;
+        try {
+            tokenStore.save(new StoredCredentials(
+                    ini.get(CATEGORY_OAUTH, "client_id", String.class),
+                    client.getAccessToken(),
+                    client.getRefreshToken(),
+                    TokenManager.INSTANCE.getIssuedAtMillis(),
+                    user));
+        } catch (Exception e) {
+            System.err.println("Fail to save credentials.\nReason: " + e.getMessage());
+        }
+    }
+
+    private void startTokenManager(long issuedAtMillis) {
+        TokenManager.INSTANCE.start(client,
+                getConfig(CATEGORY_OAUTH, "token_lifetime_seconds", Long.class, TokenManager.DEFAULT_TOKEN_LIFETIME_SECONDS),
+                getConfig(CATEGORY_OAUTH, "token_refresh_margin_seconds", Long.class, TokenManager.DEFAULT_REFRESH_MARGIN_SECONDS),
+                issuedAtMillis);
+    }
+
+    private void oauthLogin() throws Exception {
+        final var CATEGORY = CATEGORY_OAUTH;
         final var KEY_CLIENT_ID = "client_id";
         final var KEY_CLIENT_SECRET = "client_secret";
         final var KEY_PORT = "port";
 
-        var ini = new Wini(new File(iniPath));
         var clientId = ini.get(CATEGORY, KEY_CLIENT_ID, String.class);
         var clientSecret = ini.get(CATEGORY, KEY_CLIENT_SECRET, String.class);
         var port = ini.get(CATEGORY, KEY_PORT, int.class);
 
-        // ! YOU MUST HAVE INSTALLED ngrok TO RUN THIS BOT !
+        // ! YOU MUST HAVE INSTALLED ngrok TO RUN THIS BOT (only needed when no stored credentials can be used) !
         var ngrok = new NgrokService(port);
         ngrok.start();
         client = new OAuthZoomClient(clientId, clientSecret, port, ngrok.getPublicUrl());
+        startTokenManager(System.currentTimeMillis());
 //    ngrok.stop();
     }
 
     private User obtainUser() {
         // First attempt to get user info
-        var result = client.getUsersComponent().get("me");
-        if (result.isSuccessOrRefreshToken(client)) {
+        var result = RequestScheduler.INSTANCE.call(USERS, "users.get", () -> client.getUsersComponent().get("me"));
+        if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
             // First attempt succeeds
             return result.getItem();
         } else {
             // First attempt fails
-            System.out.println("Fail to get user info.\nReason: " + result.getErrorMessage());
-            System.out.println("Retrying to get user info...");
+            BotIO.println("Fail to get user info.\nReason: " + result.getErrorMessage());
+            BotIO.println("Retrying to get user info...");
             // Second attempt
-            result = client.getUsersComponent().get("me");
+            result = RequestScheduler.INSTANCE.call(USERS, "users.get", () -> client.getUsersComponent().get("me"));
             if (result.isSuccess()) {
                 // Second attempt succeeds
                 return result.getItem();
@@ -83,7 +234,8 @@ public class BaseBot {
         }
 
         // Second attempt fails
-        System.out.println("Fail to get user info. Exiting...");
+        BotIO.println("Fail to get user info. Exiting...");
+        ConsoleSink.INSTANCE.flush();
         System.exit(1);
         return null;
     }
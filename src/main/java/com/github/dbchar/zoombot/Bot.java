@@ -1,17 +1,52 @@
 package com.github.dbchar.zoombot;
 
-import com.github.dbchar.zoomapi.components.queries.PageConfiguration;
 import com.github.dbchar.zoomapi.models.Channel;
 import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoomapi.models.User;
+import com.github.dbchar.zoomapi.utils.ListResult;
 import com.github.dbchar.zoomapi.utils.Logger;
-import com.github.dbchar.zoomapi.utils.services.MonitorService;
-import com.github.dbchar.zoomapi.utils.services.MonitorTask;
-
+import com.github.dbchar.zoombot.arena.MessageArena;
+import com.github.dbchar.zoombot.auth.TokenManager;
+import com.github.dbchar.zoombot.cache.ChannelDirectory;
+import com.github.dbchar.zoombot.cache.ResponseCache;
+import com.github.dbchar.zoombot.compress.MessageCompressor;
+import com.github.dbchar.zoombot.history.DayRange;
+import com.github.dbchar.zoombot.history.LocalMessages;
+import com.github.dbchar.zoombot.history.ParallelHistoryFetcher;
+import com.github.dbchar.zoombot.index.MessageIndex;
+import com.github.dbchar.zoombot.jfr.ContinuousRecording;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.metrics.Timer;
+import com.github.dbchar.zoombot.io.ConsoleSink;
+import com.github.dbchar.zoombot.monitor.ChannelMonitor;
+import com.github.dbchar.zoombot.monitor.MonitorEngine;
+import com.github.dbchar.zoombot.roster.MemberTable;
+import com.github.dbchar.zoombot.roster.RosterCsv;
+import com.github.dbchar.zoombot.roster.RosterFetcher;
+import com.github.dbchar.zoombot.script.ScriptParser;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+import com.github.dbchar.zoombot.script.ScriptRunner;
+import com.github.dbchar.zoombot.send.BulkSender;
+import com.github.dbchar.zoombot.send.SendRequest;
+import com.github.dbchar.zoombot.send.SendResult;
+import com.github.dbchar.zoombot.startup.StartupPipeline;
+import com.github.dbchar.zoombot.store.MessageStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
+import static com.github.dbchar.zoombot.scheduler.RequestScheduler.EndpointClass.*;
 import static com.github.dbchar.zoombot.BotIO.*;
 import static com.github.dbchar.zoombot.BotIO.MainMenuCommand.*;
 
@@ -19,6 +54,14 @@ public class Bot extends BaseBot {
   // region Private Properties (Demo Functions)
 
   private final Map<Integer, Runnable> mainMenuFunctions = new HashMap<>();
+  private final MessageIndex messageIndex = new MessageIndex();
+  private ChannelDirectory channelDirectory;
+  private ResponseCache responseCache;
+  private ParallelHistoryFetcher historyFetcher;
+  private RosterFetcher rosterFetcher;
+  private BulkSender bulkSender;
+  private MessageStore messageStore;
+  private final AtomicReference<ListResult<User>> prefetchedContacts = new AtomicReference<>();
 
   // endregion
 
@@ -36,23 +79,170 @@ public class Bot extends BaseBot {
   public void run() throws Exception {
     super.run();
 
-    addDemoFunctions();
-
     var command = COMMAND_INVALID;
     while (command != COMMAND_EXIT) {
       printMainMenu();
       command = getUserCommand("");
 
       if (mainMenuFunctions.containsKey(command)) {
-        mainMenuFunctions.get(command).run();
+        runCommand(command);
       } else if (command != COMMAND_EXIT) {
-        System.out.println("Command '" + command + "' is not supported, please enter a valid command!\n");
+        println("Command '" + command + "' is not supported, please enter a valid command!\n");
       }
     }
 
     releaseResources();
   }
 
+  /***
+   * Run a script of commands without user interaction, see {@link ScriptRunner} for the commands.
+   * Results are written to standard output as JSON lines; everything else goes to standard error.
+   * @param scriptPath script file, or "-" for standard input
+   * @param parallelism number of steps run at once, or 0 for [Script] parallelism in bot.ini
+   * @return number of failed steps
+   */
+  public int runScript(String scriptPath, int parallelism) throws Exception {
+    // parse before logging in, so a broken script fails fast
+    var steps = ScriptParser.parse(scriptPath);
+    ConsoleSink.INSTANCE.setConsoleStream(System.err);
+    super.run();
+
+    var runner = new ScriptRunner(getClient(), getUser(), channelDirectory, responseCache, historyFetcher, rosterFetcher, messageIndex, messageStore,
+            parallelism > 0 ? parallelism : getConfig("Script", "parallelism", Integer.class, ScriptRunner.DEFAULT_PARALLELISM));
+    try {
+      return runner.run(steps, new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+    } finally {
+      runner.shutdown();
+      releaseResources();
+    }
+  }
+
+  // endregion
+
+  // region Private Methods (Set Up)
+
+  @Override
+  protected void addStartupStages(StartupPipeline pipeline) {
+    pipeline.addStage("output", () -> {
+      configureOutput();
+      configureMetrics();
+      for (var endpoint : RequestScheduler.EndpointClass.values()) {
+        RequestScheduler.INSTANCE.setRate(endpoint,
+                getConfig("Scheduler", endpoint.getConfigKey(), Double.class, endpoint.getDefaultPerSecond()));
+      }
+    }, STAGE_CONFIG);
+    pipeline.addStage("recording", this::configureRecording, STAGE_CONFIG);
+    pipeline.addStage("menu", this::addDemoFunctions);
+    pipeline.addStage("store", () -> {
+      try {
+        messageStore = new MessageStore(
+                getConfig("Bot", "history_store_dir", String.class, MessageStore.DEFAULT_DIRECTORY));
+      } catch (Exception e) {
+        System.err.println("History store disabled: " + e.getMessage());
+      }
+    }, STAGE_CONFIG);
+    pipeline.addStage("directory", () -> {
+      channelDirectory = new ChannelDirectory(getClient());
+      configureResponseCache();
+    }, STAGE_LOGIN);
+    pipeline.addStage("services", () -> {
+      historyFetcher = new ParallelHistoryFetcher(getClient(),
+              getConfig("Bot", "history_parallelism", Integer.class, ParallelHistoryFetcher.DEFAULT_PARALLELISM));
+      historyFetcher.setChannelDirectory(channelDirectory, getUser().getId());
+      historyFetcher.setResponseCache(responseCache);
+      historyFetcher.setFullSyncInterval(
+              getConfig("Bot", "history_full_sync_seconds", Long.class, ParallelHistoryFetcher.DEFAULT_FULL_SYNC_SECONDS));
+      messageIndex.setMaxBytes(getConfig("Index", "max_megabytes", Long.class, MessageIndex.DEFAULT_MAX_BYTES >> 20) << 20);
+      historyFetcher.addOnDayFetchedListener(messageIndex::indexDay);
+      // the index is kept by channel name, so it follows renames and drops channels that are gone
+      channelDirectory.addOnChannelRenamedListener((channelId, previousName, channelName) ->
+              messageIndex.renameChannel(previousName, channelName));
+      channelDirectory.addOnChannelRemovedListener((channelId, channelName) -> messageIndex.removeChannel(channelName));
+      if (messageStore != null) {
+        historyFetcher.setMessageStore(messageStore);
+      }
+      if (getConfig("Memory", "off_heap", Boolean.class, false)) {
+        var arena = new MessageArena(
+                getConfig("Memory", "off_heap_max_megabytes", Long.class, MessageArena.DEFAULT_MAX_MEGABYTES) << 20,
+                getConfig("Memory", "slab_kilobytes", Integer.class, MessageArena.DEFAULT_SLAB_KILOBYTES) << 10);
+        historyFetcher.setMessageArena(arena);
+        MetricsRegistry.INSTANCE.gauge("arena.reserved_bytes", arena::getReservedBytes);
+        MetricsRegistry.INSTANCE.gauge("arena.used_bytes", arena::getUsedBytes);
+        MetricsRegistry.INSTANCE.gauge("arena.padding_bytes", arena::getPaddingBytes);
+        MetricsRegistry.INSTANCE.gauge("arena.stranded_bytes", arena::getStrandedBytes);
+      } else if (getConfig("Memory", "compress_text", Boolean.class, false)) {
+        var compressor = new MessageCompressor(getConfig("Memory", "dictionary_kilobytes",
+                Integer.class, MessageCompressor.DEFAULT_DICTIONARY_KILOBYTES) << 10);
+        historyFetcher.setMessageCompressor(compressor);
+        channelDirectory.addOnChannelRenamedListener((channelId, previousName, channelName) ->
+                compressor.renameChannel(previousName, channelName));
+        channelDirectory.addOnChannelRemovedListener((channelId, channelName) -> compressor.removeChannel(channelName));
+      }
+      rosterFetcher = new RosterFetcher(getClient(),
+              getConfig("Bot", "roster_parallelism", Integer.class, RosterFetcher.DEFAULT_PARALLELISM));
+      rosterFetcher.setResponseCache(responseCache);
+      MonitorEngine.INSTANCE.setWorkerCount(
+              getConfig("Monitor", "workers", Integer.class, MonitorEngine.DEFAULT_WORKER_COUNT));
+      bulkSender = new BulkSender(getClient(), channelDirectory,
+              getConfig("Bot", "send_in_flight", Integer.class, BulkSender.DEFAULT_MAX_IN_FLIGHT));
+    }, STAGE_USER, "store", "directory");
+
+    // warm up what the first menu commands need while the user reads the menu
+    pipeline.addBackgroundStage("channels", () -> {
+      var result = RequestScheduler.INSTANCE.call(RequestScheduler.Lane.BACKGROUND, CHANNELS, "chat_channels.list",
+              () -> getClient().getChatChannelsComponent().list(null, false));
+      if (result.isSuccess()) {
+        responseCache.putChannels(result.getItems());
+        channelDirectory.update(result.getItems());
+      }
+    }, "directory");
+    pipeline.addBackgroundStage("contacts", () -> prefetchedContacts.set(
+            RequestScheduler.INSTANCE.call(RequestScheduler.Lane.BACKGROUND, CONTACTS, "contacts.list_external",
+                    () -> getClient().getContactsComponent().listExternal())), STAGE_LOGIN);
+  }
+
+  private void configureOutput() {
+    var sink = ConsoleSink.INSTANCE;
+    sink.setOverflowPolicy(ConsoleSink.OverflowPolicy.valueOf(
+            getConfig("Output", "overflow_policy", String.class, ConsoleSink.OverflowPolicy.DROP_OLDEST.name())));
+    sink.setConsoleEnabled(getConfig("Output", "console", Boolean.class, true));
+    var file = getConfig("Output", "file", String.class, "");
+    if (!file.isEmpty()) {
+      try {
+        sink.openFile(file, true);
+      } catch (Exception e) {
+        System.err.println("Output file disabled: " + e.getMessage());
+      }
+    }
+  }
+
+  private void configureMetrics() {
+    var file = getConfig("Metrics", "dump_file", String.class, "");
+    if (!file.isEmpty()) {
+      MetricsRegistry.INSTANCE.startDump(file, getConfig("Metrics", "dump_interval_seconds", Long.class, 60L));
+    }
+  }
+
+  private void configureResponseCache() {
+    responseCache = new ResponseCache(getConfig("Cache", "max_megabytes", Long.class, ResponseCache.DEFAULT_MAX_BYTES >> 20) << 20);
+    for (var type : ResponseCache.DataType.values()) {
+      responseCache.setTimeToLive(type, getConfig("Cache", type.getConfigKey(), Long.class, type.getDefaultTimeToLiveSeconds()));
+    }
+  }
+
+  private void configureRecording() {
+    if (!getConfig("JFR", "recording", Boolean.class, false)) return;
+    try {
+      ContinuousRecording.INSTANCE.start(
+              getConfig("JFR", "file", String.class, ContinuousRecording.DEFAULT_FILE),
+              getConfig("JFR", "settings", String.class, ContinuousRecording.DEFAULT_SETTINGS),
+              getConfig("JFR", "max_age_minutes", Long.class, ContinuousRecording.DEFAULT_MAX_AGE_MINUTES),
+              getConfig("JFR", "max_size_mb", Long.class, ContinuousRecording.DEFAULT_MAX_SIZE_MEGABYTES));
+    } catch (Exception e) {
+      System.err.println("Flight recording disabled: " + e.getMessage());
+    }
+  }
+
   private void addDemoFunctions() {
     // add Main Menu
     mainMenuFunctions.put(M2_CHAT_CHANNEL_SET_FUNCTIONS.getValue(), executeSetOfChatChannelFunctions);
@@ -68,6 +258,12 @@ public class Bot extends BaseBot {
     mainMenuFunctions.put(M5_LIST_CHANNELS.getValue(), listChannelsM5);
     mainMenuFunctions.put(M5_LIST_MEMBERS.getValue(), listMembersM5);
     mainMenuFunctions.put(M5_LIST_MESSAGES.getValue(), listMessagesM5);
+    mainMenuFunctions.put(SEARCH_SENDER_ALL_CHANNELS.getValue(), searchMessageBySenderInAllChannels);
+    mainMenuFunctions.put(SEARCH_CHANNELS_OF_MEMBER.getValue(), searchChannelsOfMember);
+    mainMenuFunctions.put(BULK_SEND_MESSAGE.getValue(), bulkSendMessage);
+    mainMenuFunctions.put(DUMP_FLIGHT_RECORDING.getValue(), dumpFlightRecording);
+    mainMenuFunctions.put(PRINT_METRICS.getValue(), printMetrics);
+    mainMenuFunctions.put(PRINT_STARTUP_TIMINGS.getValue(), printStartupTimings);
     mainMenuFunctions.put(TOGGLE_DEBUG_OUTPUT.getValue(), toggleLoggerState);
   }
 
@@ -85,15 +281,15 @@ public class Bot extends BaseBot {
     // 2
     getUserInput("# Part 2: Test creating a channel (Press Enter to continue)");
     var name = getUserInput("Please input a name for the channel: ");
-    var channelResult = getClient().getChatChannelsComponent().create(name, List.of());
-    var channelId = (String) null;
-    if (channelResult.isSuccessOrRefreshToken(getClient())) {
-      printChannelWithTitle("Succeed to create a channel", channelResult.getItem());
-      channelId = channelResult.getItem().getId();
-    } else {
+    var channelResult = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.create", () -> getClient().getChatChannelsComponent().create(name, List.of()));
+    if (!TokenManager.INSTANCE.isSuccessOrRefreshToken(channelResult)) {
       printMessageWithDivider("Fail to create a channel.\nReason: " + channelResult.getErrorMessage());
       return;
     }
+    printChannelWithTitle("Succeed to create a channel", channelResult.getItem());
+    var channelId = channelResult.getItem().getId();
+    channelDirectory.put(channelId, channelResult.getItem().getName());
+    responseCache.invalidateChannels();
 
     // 3
     getUserInput("# Part 3: Test getting a channel (Press Enter to continue)");
@@ -101,9 +297,10 @@ public class Bot extends BaseBot {
 
     // 4
     getUserInput("# Part 4: Test updating a channel (Press Enter to continue)");
-    name = getUserInput("Please input a name for the channel: ");
-    var booleanResult = getClient().getChatChannelsComponent().update(channelId, name);
-    if (booleanResult.isSuccessOrRefreshToken(getClient())) {
+    var newName = getUserInput("Please input a name for the channel: ");
+    var booleanResult = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.update", () -> getClient().getChatChannelsComponent().update(channelId, newName));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(booleanResult)) {
+      responseCache.invalidateRenamedChannel(channelDirectory.rename(channelId, newName));
       getAChannel(channelId);
     } else {
       return;
@@ -117,21 +314,25 @@ public class Bot extends BaseBot {
     getUserInput("# Part 6: Test inviting a member to a channel (Press Enter to continue)");
     listExternalContacts();
     var email = getValidUserInputEmail();
-    getClient().getChatChannelsComponent().inviteMembers(channelId, List.of(email));
+    RequestScheduler.INSTANCE.call(MEMBERS, "chat_channels.invite_members", () -> getClient().getChatChannelsComponent().inviteMembers(channelId, List.of(email)));
+    responseCache.invalidateMembers(channelId);
     listChannelMembers(channelId);
 
     // 7
     getUserInput("# Part 7: Test removing a member from a channel (Press Enter to continue)");
     listChannelMembers(channelId);
     var memberId = getUserInput("Please input a member id (not email): ");
-    getClient().getChatChannelsComponent().deleteMembers(channelId, memberId);
+    RequestScheduler.INSTANCE.call(MEMBERS, "chat_channels.delete_members", () -> getClient().getChatChannelsComponent().deleteMembers(channelId, memberId));
+    responseCache.invalidateMembers(channelId);
     listChannelMembers(channelId);
 
     // 8
     getUserInput("# Part 8: Test deleting a channel (Press Enter to continue)");
     listChannels();
     println("Deleting " + channelId);
-    getClient().getChatChannelsComponent().delete(channelId);
+    if (RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.delete", () -> getClient().getChatChannelsComponent().delete(channelId)).isSuccess()) {
+      responseCache.invalidateChannel(channelId, channelDirectory.remove(channelId));
+    }
     listChannels();
 
     // 9
@@ -139,15 +340,20 @@ public class Bot extends BaseBot {
     getUserInput("# Part 9: Test leaving a channel (Press Enter to continue)");
 //    channelId = "1cb910ea028d4dee9c960bb4e14e8fdc"
     listChannels();
-    channelId = getUserInput("Please input a valid channel ID from above: ");
-    println("Leaving channel " + channelId);
-    getClient().getChatChannelsComponent().leave(channelId);
+    var otherChannelId = getUserInput("Please input a valid channel ID from above: ");
+    println("Leaving channel " + otherChannelId);
+    if (RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.leave", () -> getClient().getChatChannelsComponent().leave(otherChannelId)).isSuccess()) {
+      responseCache.invalidateChannel(otherChannelId, channelDirectory.remove(otherChannelId));
+    }
     listChannels();
 
     // 10
     getUserInput("# Part 10: Test joining a channel (Press Enter to continue)");
-    println("Joining channel " + channelId);
-    getClient().getChatChannelsComponent().join(channelId);
+    println("Joining channel " + otherChannelId);
+    if (RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.join", () -> getClient().getChatChannelsComponent().join(otherChannelId)).isSuccess()) {
+      channelDirectory.invalidate();
+      responseCache.invalidateChannels();
+    }
     listChannels();
   };
 
@@ -220,29 +426,29 @@ public class Bot extends BaseBot {
     // 1
     getUserInput("# Part 1: Test sending messages (Press Enter to continue)");
     var message = getUserInput("Then, please send a message to the channel:\n");
-    var stringResult = getClient().getChatMessagesComponent().send(message, null, channelId);
-    var messageId = (String) null;
-    if (stringResult.isSuccessOrRefreshToken(getClient())) {
-      messageId = stringResult.getItem();
-    } else {
+    var stringResult = RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.send", () -> getClient().getChatMessagesComponent().send(message, null, channelId));
+    if (!TokenManager.INSTANCE.isSuccessOrRefreshToken(stringResult)) {
       println("Something goes wrong. Please retry.");
       return;
     }
+    var messageId = stringResult.getItem();
+    var sent = writeThroughSent(channel.getName(), messageId, message);
 
     // 2
     getUserInput("# Part 2: Test listing messages (Press Enter to continue)");
     println("Then please review the message history.");
-    this.listChannelMessages(channelId);
+    this.listChannelMessages(channelId, true);
     println("Did you see \"" + message + "\" there? Great.");
 
     // 3
     getUserInput("# Part 3: Test updating messages (Press Enter to continue)");
     println("Then we are going to update \"" + message + "\".");
-    message = getUserInput("Please input a new message:\n");
-    var booleanResult = getClient().getChatMessagesComponent().update(messageId, message, null, channelId);
-    if (booleanResult.isSuccessOrRefreshToken(getClient())) {
-      this.listChannelMessages(channelId);
-      println("Did you see \"" + message + "\" there? Great.");
+    var newMessage = getUserInput("Please input a new message:\n");
+    var booleanResult = RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.update", () -> getClient().getChatMessagesComponent().update(messageId, newMessage, null, channelId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(booleanResult)) {
+      writeThroughUpdated(channel.getName(), sent, newMessage);
+      this.listChannelMessages(channelId, true);
+      println("Did you see \"" + newMessage + "\" there? Great.");
     } else {
       println("Something goes wrong. Please retry.");
       return;
@@ -250,11 +456,12 @@ public class Bot extends BaseBot {
 
     // 4
     getUserInput("# Part 4: Test removing messages (Press Enter to continue)");
-    println("Then we are going to delete \"" + message + "\".");
-    booleanResult = getClient().getChatMessagesComponent().delete(messageId, null, channelId);
-    if (booleanResult.isSuccessOrRefreshToken(getClient())) {
-      this.listChannelMessages(channelId);
-      println("Did you see \"" + message + "\" gone? Great.");
+    println("Then we are going to delete \"" + newMessage + "\".");
+    booleanResult = RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.delete", () -> getClient().getChatMessagesComponent().delete(messageId, null, channelId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(booleanResult)) {
+      writeThroughDeleted(channel.getName(), sent);
+      this.listChannelMessages(channelId, true);
+      println("Did you see \"" + newMessage + "\" gone? Great.");
     } else {
       println("Something goes wrong. Please retry.");
       return;
@@ -325,7 +532,7 @@ public class Bot extends BaseBot {
 
       // 4
       getUserInput("# Part 3: Test searching messages (Press Enter to continue)");
-      searchMessageByContent(channelName, getUserInput("Please input a string to search messages by content:"));
+      searchMessageByContent(channelName, getUserInput("Please input keywords to search messages by content (word, prefix*, \"exact phrase\"):"));
       searchMessageBySender(channelName, getUserInput("Please input a string to search messages by their senders:"));
 
     } catch (Exception e) {
@@ -350,7 +557,7 @@ public class Bot extends BaseBot {
             break;
           case 3:
             searchMessageByContent(channelName,
-                    getUserInput("Please input keywords for message contents:"));
+                    getUserInput("Please input keywords for message contents (word, prefix*, \"exact phrase\"):"));
             break;
           case 4:
             searchMessageBySender(channelName,
@@ -377,31 +584,40 @@ public class Bot extends BaseBot {
       var fromDate = dateRange.get(0);
       var toDate = dateRange.get(1);
 
-      MonitorTask task = new MonitorTask(
+      var task = new ChannelMonitor(
               channelNameInput,
               fromDate,
               toDate,
-              getClient());
+              getConfig("Monitor", "poll_interval_ms", Long.class, ChannelMonitor.DEFAULT_POLL_INTERVAL_MILLIS),
+              historyFetcher,
+              rosterFetcher,
+              channelDirectory);
+      task.setMemberPollInterval(getConfig("Monitor", "member_poll_interval_ms", Long.class,
+              ChannelMonitor.DEFAULT_MEMBER_POLL_INTERVAL_MILLIS));
 
       // OnMessageReceived: multiple listeners
       task.setOnMessageReceivedListeners(List.of(
               (channelName, message) ->
-                      printChannelMessagesWithTitle("Message received at channel '" + channelName + "'", List.of(message), true)
+                      printMessageEvent("Message received at channel '" + channelName + "'", message),
+              (channelName, message) ->
+                      messageIndex.add(channelName, DayRange.format(message.getTimestamp()), message)
       ));
 
       // OnMessageUpdated: multiple listeners
       task.setOnMessageUpdatedListeners(List.of(
               (channelName, message) ->
-                      printChannelMessagesWithTitle("Message updated at channel '" + channelName + "'", List.of(message), true)
+                      printMessageEvent("Message updated at channel '" + channelName + "'", message),
+              (channelName, message) ->
+                      messageIndex.add(channelName, DayRange.format(message.getTimestamp()), message)
       ));
 
       // OnMemberAdded: multiple listeners (setOnMemberAddedListeners will clear original listeners first)
       task.setOnMemberAddedListeners(List.of(
               (channelName, user) ->
-                      printMembersWithTitle("Member added at channel '" + channelName + "'", List.of(user))
+                      printMemberEvent("Member added at channel '" + channelName + "'", user)
       ));
 
-      MonitorService.INSTANCE.startTask(task);
+      MonitorEngine.INSTANCE.startTask(task);
     } catch (Exception e) {
       System.err.println("Failed to start monitoring a channel: " + e.getMessage());
     }
@@ -409,21 +625,36 @@ public class Bot extends BaseBot {
 
   private final Runnable stopMonitoringAChannel = () -> {
     mainMenuFunctions.get(M4_DISPLAY_MONITOR_CHANNEL_NAME.getValue()).run();
-    MonitorService.INSTANCE.stopTask(getUserInput("Please input a channel name(ex. test): "));
+    MonitorEngine.INSTANCE.stopTask(getUserInput("Please input a channel name(ex. test): "));
   };
 
-  private final Runnable stopMonitoringAllChannels = MonitorService.INSTANCE::stopAllTasks;
+  private final Runnable stopMonitoringAllChannels = MonitorEngine.INSTANCE::stopAllTasks;
 
   private final Runnable displayMonitoringChannels = () -> {
-    var channelNames = MonitorService.INSTANCE.getMonitoringChannelNames().toArray();
-    printMessageWithDivider(channelNames.length == 0
-            ? "Not monitoring any channels now."
-            : "Monitoring channels: " + Arrays.toString(channelNames));
+    var monitors = MonitorEngine.INSTANCE.getMonitors();
+    if (monitors.isEmpty()) {
+      printMessageWithDivider("Not monitoring any channels now.");
+    } else {
+      printMonitorsWithTitle("Monitoring channels", monitors.values());
+    }
+    printMessageWithDivider("Requests waiting: " + RequestScheduler.INSTANCE.getQueueDepth() +
+            " (interactive " + RequestScheduler.INSTANCE.getQueueDepth(RequestScheduler.Lane.INTERACTIVE) +
+            ", bulk " + RequestScheduler.INSTANCE.getQueueDepth(RequestScheduler.Lane.BULK) +
+            ", background " + RequestScheduler.INSTANCE.getQueueDepth(RequestScheduler.Lane.BACKGROUND) +
+            "), rate limited responses: " + RequestScheduler.INSTANCE.getThrottledCount());
   };
 
   private void releaseResources() {
-    MonitorService.INSTANCE.stopService();
-//    ThrottlerService.INSTANCE.stop();
+    MonitorEngine.INSTANCE.stopService();
+    historyFetcher.shutdown();
+    rosterFetcher.shutdown();
+    bulkSender.shutdown();
+    ConsoleSink.INSTANCE.closeFile();
+    MetricsRegistry.INSTANCE.stopDump();
+    ContinuousRecording.INSTANCE.stop();
+    RequestScheduler.INSTANCE.stop();
+    TokenManager.INSTANCE.stop();
+    getStartup().shutdown();
   }
 
   // endregion
@@ -437,13 +668,13 @@ public class Bot extends BaseBot {
       var title = "List cached message history in " + channel.getName();
       printTitle(title);
 
-      var dateRange = BotIO.getValidQueryDateParameters();
+      var dateRange = BotIO.getValidQueryDateParameters(UNBOUNDED_DAY_INTERVAL);
       var fromDate = dateRange.get(0);
       var toDate = dateRange.get(1);
 
-      printMessageListResult(
+      printMessageStream(
               title, fromDate, toDate,
-              getClient().getChatComponent().history(
+              historyFetcher.stream(
                       channel.getName(),
                       fromDate,
                       toDate,
@@ -459,15 +690,11 @@ public class Bot extends BaseBot {
     try {
       var useCache = getTrueOrFalse("Use cache?");
       var channel = listAndSelectChannel(useCache);
-      var result = getClient().getChatChannelsComponent()
-              .listMembers(channel.getId(),
-                      new PageConfiguration(PageConfiguration.MAX_PAGE_SIZE),
-                      useCache);
-      if (result.isSuccessOrRefreshToken(getClient())) {
-        printMembersWithTitle("Succeed to list channel members", result.getItems());
-        println();
+      var file = getUserInput("Export members to a CSV file (empty to print them): ").trim();
+      if (file.isEmpty()) {
+        printMemberStream("members of " + channel.getName(), rosterFetcher.stream(channel.getId(), useCache));
       } else {
-        printMessageWithDivider("Fail to list channel members.\nReason: " + result.getErrorMessage());
+        exportChannelMembers(channel.getId(), file, useCache);
       }
     } catch (Exception e) {
       e.printStackTrace();
@@ -478,16 +705,144 @@ public class Bot extends BaseBot {
 
   // endregion
 
+  // region Search
+
+  private final Runnable searchMessageBySenderInAllChannels = () -> {
+    var query = getUserInput("Please input keywords for message senders:");
+    var title = "Search messages whose senders' names contain '" + query + "' in all indexed channels";
+    printTitle(title);
+
+    var dateRange = BotIO.getValidQueryDateParameters(UNBOUNDED_DAY_INTERVAL);
+    var fromDate = dateRange.get(0);
+    var toDate = dateRange.get(1);
+
+    // the index only answers for the days it holds, so the rest is fetched first or reported
+    var channelNames = channelDirectory.getChannelNames();
+    var missingDays = messageIndex.getMissingDays(channelNames, fromDate, toDate);
+    if (!missingDays.isEmpty()) {
+      printMessageWithDivider(missingDays.size() + " channels have days to fetch:\n" + formatDays(missingDays));
+      if (getTrueOrFalse("Fetch them before searching?")) {
+        missingDays.forEach((channelName, days) -> {
+          var result = historyFetcher.history(channelName, days, false);
+          if (!result.isSuccess()) {
+            printMessageWithDivider("Fail to fetch history of " + channelName + "\nReason: " + result.getErrorMessage());
+          }
+        });
+      }
+    }
+
+    var results = messageIndex.searchBySenderInAllChannels(fromDate, toDate, query);
+    if (results.isEmpty()) {
+      printMessageWithDivider("No indexed messages from '" + query + "' between " + fromDate + " and " + toDate);
+    }
+    results.forEach((channelName, messages) ->
+            printChannelMessagesWithTitle(channelName + " (" + messages.size() + " messages)", messages, false));
+    // days fetched but dropped again by the index budget, or not fetched at all
+    var unindexedDays = messageIndex.getUnindexedDays(channelNames, fromDate, toDate);
+    if (!unindexedDays.isEmpty()) {
+      printMessageWithDivider("Not searched, as they are not indexed:\n" + formatDays(unindexedDays));
+    }
+  };
+
+  private static String formatDays(Map<String, List<String>> daysByChannel) {
+    return daysByChannel.entrySet().stream()
+            .map(entry -> {
+              var days = entry.getValue();
+              return entry.getKey() + ": " + (days.size() == 1
+                      ? "1 day (" + days.get(0) + ")"
+                      : days.size() + " days (" + days.get(0) + " - " + days.get(days.size() - 1) + ")");
+            })
+            .collect(Collectors.joining("\n"));
+  }
+
+  private final Runnable searchChannelsOfMember = () -> {
+    var member = getUserInput("Please input a member id or email:").trim();
+    var channelNames = MemberTable.INSTANCE.getChannelsOf(member).stream()
+            .map(channelId -> Objects.requireNonNullElse(channelDirectory.getName(channelId), channelId))
+            .sorted()
+            .collect(Collectors.toList());
+    if (channelNames.isEmpty()) {
+      printMessageWithDivider("'" + member + "' is in none of the channels whose members were listed or monitored");
+    } else {
+      printMessageWithDivider("'" + member + "' is in " + channelNames.size() + " channels:\n" + String.join("\n", channelNames));
+    }
+  };
+
+  // endregion
+
+  // region Bulk
+
+  private final Runnable bulkSendMessage = () -> {
+    var message = getUserInput("Please input the message to send:");
+    var channelNames = (List<String>) null;
+    if (getTrueOrFalse("Send to all of your channels?")) {
+      var channels = listChannels();
+      if (channels == null) return;
+      channelNames = channels.stream().map(Channel::getName).collect(Collectors.toList());
+    } else {
+      channelNames = Arrays.stream(getUserInput("Please input channel names separated by ',':").split(","))
+              .map(String::trim)
+              .filter(name -> !name.isEmpty())
+              .collect(Collectors.toList());
+    }
+    var title = "Send message to " + channelNames.size() + " channels";
+    printTitle(title);
+
+    var results = bulkSender.send(channelNames.stream().map(name -> new SendRequest(name, message)));
+    results.stream().filter(SendResult::isSuccess).forEach(result -> writeThroughSent(
+            result.getRequest().getChannelName(), result.getMessageId(), result.getRequest().getMessage()));
+    printSendResultsWithTitle(title, results);
+  };
+
+  // endregion
+
   // region Others
 
+  private final Runnable printStartupTimings = () -> printStartupTimingsWithTitle("Startup timings", getStartup());
+
+  private final Runnable dumpFlightRecording = () -> {
+    try {
+      printMessageWithDivider("Succeed to dump the flight recording to " + ContinuousRecording.INSTANCE.dump());
+    } catch (Exception e) {
+      printMessageWithDivider("Fail to dump the flight recording.\nReason: " + e.getMessage());
+    }
+  };
+
+  private final Runnable printMetrics = () -> printMetricsWithTitle("Metrics", MetricsRegistry.INSTANCE);
+
   private final Runnable toggleLoggerState = () -> Logger.DISABLED = !Logger.DISABLED;
 
+  /***
+   * Run a menu command and record its latency; a command counts as failed if it threw
+   * or any API call it made on this thread failed
+   */
+  private void runCommand(int command) {
+    var menuCommand = MainMenuCommand.of(command);
+    var timer = MetricsRegistry.INSTANCE.timer(MetricsRegistry.COMMAND_PREFIX
+            + (menuCommand == null ? String.valueOf(command) : menuCommand.name().toLowerCase()));
+    var errorsBefore = Timer.getThreadErrorCount();
+    var start = timer.start();
+    var success = false;
+    try {
+      mainMenuFunctions.get(command).run();
+      success = Timer.getThreadErrorCount() == errorsBefore;
+    } finally {
+      timer.stop(start, success);
+    }
+  }
+
   private Channel listAndSelectChannel(boolean useCache) throws Exception {
     return selectChannel(listChannels(useCache));
   }
 
   private Channel listAndSelectChannel() throws Exception {
-    return listAndSelectChannel(false);
+    // the directory is kept current by our own mutations, so there is no need to list channels again
+    var channels = channelDirectory.getChannels();
+    if (channels == null) {
+      return listAndSelectChannel(false);
+    }
+    printChannelsWithTitle("User's channels", channels);
+    return selectChannel(channels);
   }
 
   private Channel selectChannel(List<Channel> channels) throws Exception {
@@ -512,11 +867,31 @@ public class Bot extends BaseBot {
   // region Private Chat Message Functions
 
   private List<Message> listChannelMessages(String channelId) {
+    return listChannelMessages(channelId, false);
+  }
+
+  /***
+   * List today's messages of the channel.
+   * The day is synced through the history fetcher, by delta once it is in the response cache; with useCache,
+   * e.g. right after our own writes, the cached day (patched by them) is listed without an API call.
+   */
+  private List<Message> listChannelMessages(String channelId, boolean useCache) {
     printTitle("List channel messages");
 
-    var result = getClient().getChatMessagesComponent()
-            .list(getUser().getId(), null, channelId, null, null);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var channelName = channelDirectory.getName(channelId);
+    if (channelName != null) {
+      var history = historyFetcher.history(channelName, List.of(DayRange.today()), useCache);
+      if (history.isSuccess()) {
+        printChannelMessagesWithTitle("Succeed to list channel messages", history.getItems(), true);
+      } else {
+        printMessageWithDivider("Fail to list channel messages.\nReason: " + history.getErrorMessage());
+      }
+      return history.getItems();
+    }
+
+    var result = RequestScheduler.INSTANCE.call(MESSAGES_READ, "chat_messages.list", () -> getClient().getChatMessagesComponent()
+            .list(getUser().getId(), null, channelId, null, null));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
       printChannelMessagesWithTitle("Succeed to list channel messages", result.getItems(), true);
     } else {
       printMessageWithDivider("Fail to list channel messages.\nReason: " + result.getErrorMessage());
@@ -529,9 +904,10 @@ public class Bot extends BaseBot {
     while (true) {
       var message = getUserInput("Enter message ('q' to stop): ");
       if (message.equals(COMMAND_QUIT)) break;
-      var result = getClient().getChatMessagesComponent()
-              .send(message, null, channelId);
-      if (result.isSuccessOrRefreshToken(getClient())) {
+      var result = RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.send", () -> getClient().getChatMessagesComponent()
+              .send(message, null, channelId));
+      if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+        writeThroughSent(channelDirectory.getName(channelId), result.getItem(), message);
         println("Message sent. ID=" + result.getItem());
       } else {
         printMessageWithDivider("Fail to send the message.\nReason: " + result.getErrorMessage());
@@ -548,7 +924,8 @@ public class Bot extends BaseBot {
 
     final var messageIdx = getUserCommand("Please input a number (0 to quit):");
     if (messageIdx == 0) return;
-    final var messageId = messages.get(messageIdx - 1).getId();
+    final var selected = messages.get(messageIdx - 1);
+    final var messageId = selected.getId();
     if (messageId.startsWith("{")) {
       println("You cannot update messages from others.");
       return;
@@ -556,9 +933,10 @@ public class Bot extends BaseBot {
 
     final var messageNew = getUserInput("Please input a new message: ");
 
-    var result = getClient().getChatMessagesComponent()
-            .update(messageId, messageNew, null, channelId);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.update", () -> getClient().getChatMessagesComponent()
+            .update(messageId, messageNew, null, channelId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      writeThroughUpdated(channelDirectory.getName(channelId), selected, messageNew);
       println("Message updated.");
     } else {
       printMessageWithDivider("Fail to update the message.\nReason: " + result.getErrorMessage());
@@ -574,29 +952,79 @@ public class Bot extends BaseBot {
 
     final var messageIdx = getUserCommand("Please input a number (0 to quit):");
     if (messageIdx == 0) return;
-    final var messageId = messages.get(messageIdx - 1).getId();
+    final var selected = messages.get(messageIdx - 1);
+    final var messageId = selected.getId();
     if (messageId.startsWith("{")) {
       println("You cannot delete messages from others.");
       return;
     }
 
-    var result = getClient().getChatMessagesComponent()
-            .delete(messageId, null, channelId);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.delete", () -> getClient().getChatMessagesComponent()
+            .delete(messageId, null, channelId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      writeThroughDeleted(channelDirectory.getName(channelId), selected);
       println("Message deleted.");
     } else {
       printMessageWithDivider("Fail to delete the message.\nReason: " + result.getErrorMessage());
     }
   }
 
+  /***
+   * Put a message the bot has sent into the cached history and the index, so it is listed without a refetch
+   * @return the message as it is listed
+   */
+  private Message writeThroughSent(String channelName, String messageId, String text) {
+    var message = LocalMessages.sent(messageId, text, getUser().getEmail(), System.currentTimeMillis());
+    if (channelName != null) {
+      var day = DayRange.format(message.getTimestamp());
+      responseCache.addToHistory(channelName, day, message);
+      messageIndex.add(channelName, day, message);
+    }
+    return message;
+  }
+
+  /***
+   * Put an edited message into the cached history, the index and the stored day, so none of them lists the old text
+   */
+  private void writeThroughUpdated(String channelName, Message message, String newText) {
+    if (channelName == null) return;
+    var updated = LocalMessages.withText(message, newText);
+    var day = DayRange.format(message.getTimestamp());
+    responseCache.replaceInHistory(channelName, day, updated);
+    messageIndex.add(channelName, day, updated);
+    var channelId = channelDirectory.getId(channelName);
+    if (messageStore != null && channelId != null) {
+      messageStore.replaceMessage(channelId, DayRange.parse(day).toEpochDay(), updated);
+    }
+  }
+
+  private void writeThroughDeleted(String channelName, Message message) {
+    if (channelName == null) return;
+    var day = DayRange.format(message.getTimestamp());
+    responseCache.removeFromHistory(channelName, day, message.getId());
+    messageIndex.remove(channelName, day, message.getId());
+    var channelId = channelDirectory.getId(channelName);
+    if (messageStore != null && channelId != null) {
+      messageStore.removeMessage(channelId, DayRange.parse(day).toEpochDay(), message.getId());
+    }
+  }
+
   // endregion
 
   // region Private Chat Channel Functions
 
   private List<Channel> listChannels(boolean useCache) {
     printTitle("List user's channels");
-    var result = getClient().getChatChannelsComponent().list(null, useCache);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var cached = useCache ? responseCache.getChannels() : null;
+    if (cached != null) {
+      printChannelsWithTitle("Succeed to list user's channels (cached)", cached);
+      return cached;
+    }
+    var result = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.list",
+            () -> getClient().getChatChannelsComponent().list(null, false));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      responseCache.putChannels(result.getItems());
+      channelDirectory.update(result.getItems());
       printChannelsWithTitle("Succeed to list user's channels", result.getItems());
     } else {
       printMessageWithDivider("Fail to list user's channels.\nReason: " + result.getErrorMessage());
@@ -614,8 +1042,10 @@ public class Bot extends BaseBot {
     var name = getUserInput("Please input a channel name(ex. test): ");
     var emails = getValidUserInputEmailList();
 
-    var result = getClient().getChatChannelsComponent().create(name, emails);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.create", () -> getClient().getChatChannelsComponent().create(name, emails));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      channelDirectory.put(result.getItem().getId(), result.getItem().getName());
+      responseCache.invalidateChannels();
       printChannelWithTitle("Succeed to create a channel", result.getItem());
     } else {
       printMessageWithDivider("Fail to create a channel.\nReason: " + result.getErrorMessage());
@@ -629,12 +1059,12 @@ public class Bot extends BaseBot {
   private void getAChannel(String channelId) {
     printTitle("Get a channel");
 
-    if (channelId == null) {
-      channelId = getUserInput("Please input a channel id(ex. 45dcf4e6-3ad5-433c-8081-764c1866c46a): ");
-    }
+    var id = channelId != null
+            ? channelId
+            : getUserInput("Please input a channel id(ex. 45dcf4e6-3ad5-433c-8081-764c1866c46a): ");
 
-    var result = getClient().getChatChannelsComponent().get(channelId);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.get", () -> getClient().getChatChannelsComponent().get(id));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
       printChannelWithTitle("Succeed to get a channel", result.getItem());
       println();
     } else {
@@ -648,8 +1078,9 @@ public class Bot extends BaseBot {
     var channelId = getUserInput("Please input a channel id(ex. 45dcf4e6-3ad5-433c-8081-764c1866c46a): ");
     var name = getUserInput("Please input a channel name(ex. test): ");
 
-    var result = getClient().getChatChannelsComponent().update(channelId, name);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.update", () -> getClient().getChatChannelsComponent().update(channelId, name));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      responseCache.invalidateRenamedChannel(channelDirectory.rename(channelId, name));
       printMessageWithDivider("Succeed to update a channel");
     } else {
       printMessageWithDivider("Fail to update a channel.\nReason: " + result.getErrorMessage());
@@ -661,8 +1092,9 @@ public class Bot extends BaseBot {
 
     var channelId = getUserInput("Please input a channel id(ex. 45dcf4e6-3ad5-433c-8081-764c1866c46a): ");
 
-    var result = getClient().getChatChannelsComponent().delete(channelId);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.delete", () -> getClient().getChatChannelsComponent().delete(channelId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      responseCache.invalidateChannel(channelId, channelDirectory.remove(channelId));
       printMessageWithDivider("Succeed to delete a channel");
     } else {
       printMessageWithDivider("Fail to delete a channel.\nReason: " + result.getErrorMessage());
@@ -684,12 +1116,22 @@ public class Bot extends BaseBot {
       }
     }
 
-    var result = getClient().getChatChannelsComponent().listMembers(channelId, new PageConfiguration(PageConfiguration.MAX_PAGE_SIZE));
-    if (result.isSuccessOrRefreshToken(getClient())) {
-      printMembersWithTitle("Succeed to list channel members", result.getItems());
-      println();
-    } else {
-      printMessageWithDivider("Fail to list channel members.\nReason: " + result.getErrorMessage());
+    printMemberStream("channel members", rosterFetcher.stream(channelId, false));
+  }
+
+  private void exportChannelMembers(String channelId, String file, boolean useCache) {
+    var members = rosterFetcher.stream(channelId, useCache);
+    try (var writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+      var count = RosterCsv.write(members, writer);
+      if (members.getErrorMessage() == null) {
+        printMessageWithDivider("Succeed to export " + count + " members to " + file);
+      } else {
+        printMessageWithDivider("Fail to export channel members after " + count + " members.\nReason: " + members.getErrorMessage());
+      }
+    } catch (IOException e) {
+      printMessageWithDivider("Fail to export channel members.\nReason: " + e.getMessage());
+    } finally {
+      members.close();
     }
   }
 
@@ -700,8 +1142,9 @@ public class Bot extends BaseBot {
     var channelId = getUserInput("Please input a channel id(ex. 45dcf4e6-3ad5-433c-8081-764c1866c46a): ");
     var emails = getValidUserInputEmailList();
 
-    var result = getClient().getChatChannelsComponent().inviteMembers(channelId, emails);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(MEMBERS, "chat_channels.invite_members", () -> getClient().getChatChannelsComponent().inviteMembers(channelId, emails));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      responseCache.invalidateMembers(channelId);
       printInviteChannelMembersResultWithTitle("Succeed to invite channel members", result.getItem());
       println();
     } else {
@@ -714,8 +1157,10 @@ public class Bot extends BaseBot {
 
     var channelId = getUserInput("Please input a channel id(ex. 45dcf4e6-3ad5-433c-8081-764c1866c46a): ");
 
-    var result = getClient().getChatChannelsComponent().join(channelId);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.join", () -> getClient().getChatChannelsComponent().join(channelId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      channelDirectory.invalidate();
+      responseCache.invalidateChannels();
       printJoinAChannelResultWithTitle("Succeed to join a channel", result.getItem());
       println();
     } else {
@@ -728,8 +1173,9 @@ public class Bot extends BaseBot {
 
     var channelId = getUserInput("Please input a channel id(ex. 45dcf4e6-3ad5-433c-8081-764c1866c46a): ");
 
-    var result = getClient().getChatChannelsComponent().leave(channelId);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.leave", () -> getClient().getChatChannelsComponent().leave(channelId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      responseCache.invalidateChannel(channelId, channelDirectory.remove(channelId));
       printMessageWithDivider("Succeed to leave a channel");
     } else {
       printMessageWithDivider("Fail to leave a channel.\nReason: " + result.getErrorMessage());
@@ -742,8 +1188,9 @@ public class Bot extends BaseBot {
     var channelId = getUserInput("Please input a channel id(ex. 45dcf4e6-3ad5-433c-8081-764c1866c46a): ");
     var memberId = getUserInput("Please input a member id(ex. p1d-2aj2rx2mbohcae8tpw): ");
 
-    var result = getClient().getChatChannelsComponent().deleteMembers(channelId, memberId);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var result = RequestScheduler.INSTANCE.call(MEMBERS, "chat_channels.delete_members", () -> getClient().getChatChannelsComponent().deleteMembers(channelId, memberId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      responseCache.invalidateMembers(channelId);
       printMessageWithDivider("Succeed to remove a member");
     } else {
       printMessageWithDivider("Fail to remove a member.\nReason: " + result.getErrorMessage());
@@ -755,8 +1202,11 @@ public class Bot extends BaseBot {
   // region Private Contacts Functions
 
   private void listExternalContacts() {
-    var result = getClient().getContactsComponent().listExternal();
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    // the list prefetched at startup is used once, later calls see changes
+    var prefetched = prefetchedContacts.getAndSet(null);
+    var result = prefetched != null && prefetched.isSuccess() ? prefetched
+            : RequestScheduler.INSTANCE.call(CONTACTS, "contacts.list_external", () -> getClient().getContactsComponent().listExternal());
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
       printMembersWithTitle("User's external contacts", result.getItems());
     } else {
       printMessageWithDivider("Fail to get contacts info.\nReason: " + result.getErrorMessage());
@@ -771,8 +1221,12 @@ public class Bot extends BaseBot {
     var title = "Send message to " + channelName;
     printTitle(title);
 
-    var result = getClient().getChatComponent().sendMessage(channelName, message);
-    if (result.isSuccessOrRefreshToken(getClient())) {
+    var channelId = channelDirectory.getId(channelName);
+    var result = channelId == null
+            ? RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat.send_message", () -> getClient().getChatComponent().sendMessage(channelName, message))
+            : RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.send", () -> getClient().getChatMessagesComponent().send(message, null, channelId));
+    if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+      writeThroughSent(channelName, result.getItem(), message);
       printMessageWithDivider("Message sent. Message ID=" + result.getItem());
     } else {
       printMessageWithDivider("Fail to " + title + "\nReason: " + result.getErrorMessage());
@@ -789,7 +1243,7 @@ public class Bot extends BaseBot {
 
     printMessageListResult(
             title, fromDate, toDate,
-            getClient().getChatComponent().history(
+            historyFetcher.history(
                     channelName,
                     fromDate,
                     toDate
@@ -805,14 +1259,14 @@ public class Bot extends BaseBot {
     var fromDate = dateRange.get(0);
     var toDate = dateRange.get(1);
 
+    // only days that are not indexed yet are fetched; fetching them indexes them
+    var missingDays = messageIndex.getMissingDays(channelName, fromDate, toDate);
+    var fetchResult = missingDays.isEmpty() ? null : historyFetcher.history(channelName, missingDays, false);
     printMessageListResult(
             title, fromDate, toDate,
-            getClient().getChatComponent().search(
-                    channelName,
-                    fromDate,
-                    toDate,
-                    (message) -> message.getMessage().contains(query)
-            )
+            fetchResult == null || fetchResult.isSuccess()
+                    ? messageIndex.search(channelName, fromDate, toDate, query)
+                    : fetchResult
     );
   }
 
@@ -824,32 +1278,47 @@ public class Bot extends BaseBot {
     var fromDate = dateRange.get(0);
     var toDate = dateRange.get(1);
 
+    // only days that are not indexed yet are fetched; fetching them indexes them
+    var missingDays = messageIndex.getMissingDays(channelName, fromDate, toDate);
+    var fetchResult = missingDays.isEmpty() ? null : historyFetcher.history(channelName, missingDays, false);
     printMessageListResult(
             title, fromDate, toDate,
-            getClient().getChatComponent().search(
-                    channelName,
-                    fromDate,
-                    toDate,
-                    (message) -> (
-                            message.getSender() == null
-                                    ? ""
-                                    : message.getSender()
-                    ).contains(query)
-            )
+            fetchResult == null || fetchResult.isSuccess()
+                    ? messageIndex.searchBySender(channelName, fromDate, toDate, query)
+                    : fetchResult
     );
   }
 
   // endregion
 
+  /***
+   * Usage: Bot [ini file] [--script path|- [--parallelism n]]
+   */
   public static void main(String[] args) {
+    var iniFile = (String) null;
+    var scriptPath = (String) null;
+    var parallelism = 0;
+    for (var i = 0; args != null && i < args.length; i++) {
+      if (args[i].equals("--script") && i + 1 < args.length) {
+        scriptPath = args[++i];
+      } else if (args[i].equals("--parallelism") && i + 1 < args.length) {
+        parallelism = Integer.parseInt(args[++i]);
+      } else {
+        iniFile = args[i];
+      }
+    }
+
     try {
-      if (args == null || args.length == 0) {
-        new Bot().run();
+      var bot = iniFile == null ? new Bot() : new Bot(iniFile);
+      if (scriptPath == null) {
+        bot.run();
       } else {
-        new Bot(args[0]).run();
+        var failed = bot.runScript(scriptPath, parallelism);
+        System.exit(failed == 0 ? 0 : 1);
       }
     } catch (Exception e) {
       e.printStackTrace();
+      if (scriptPath != null) System.exit(2);
     }
   }
 }
@@ -7,6 +7,14 @@ import com.github.dbchar.zoomapi.models.responses.IdAddedDateResponse;
 import com.github.dbchar.zoomapi.utils.ListResult;
 import com.github.dbchar.zoomapi.utils.Logger;
 import com.github.dbchar.zoomapi.utils.Validator;
+import com.github.dbchar.zoombot.history.HistoryResult;
+import com.github.dbchar.zoombot.history.MessageHistoryIterator;
+import com.github.dbchar.zoombot.io.ConsoleSink;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.monitor.ChannelMonitor;
+import com.github.dbchar.zoombot.roster.MemberRosterIterator;
+import com.github.dbchar.zoombot.send.SendResult;
+import com.github.dbchar.zoombot.startup.StartupPipeline;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -20,6 +28,8 @@ public class BotIO {
     public static final int COMMAND_INVALID = -1;
     public static final String COMMAND_QUIT = "q";
     public static final int COMMAND_EXIT = 0;
+    public static final int DEFAULT_MAX_DAY_INTERVAL = 5;
+    public static final int UNBOUNDED_DAY_INTERVAL = Integer.MAX_VALUE;
 
     // endregion
 
@@ -39,6 +49,12 @@ public class BotIO {
         M5_LIST_CHANNELS(11),
         M5_LIST_MEMBERS(12),
         M5_LIST_MESSAGES(13),
+        SEARCH_SENDER_ALL_CHANNELS(14),
+        SEARCH_CHANNELS_OF_MEMBER(16),
+        BULK_SEND_MESSAGE(15),
+        DUMP_FLIGHT_RECORDING(95),
+        PRINT_METRICS(96),
+        PRINT_STARTUP_TIMINGS(97),
         TOGGLE_DEBUG_OUTPUT(98),
         PRINT_MAIN_MENU(99);
         private final int value;
@@ -50,6 +66,16 @@ public class BotIO {
         public int getValue() {
             return value;
         }
+
+        /***
+         * @return the command with this value, or null
+         */
+        public static MainMenuCommand of(int value) {
+            for (var command : values()) {
+                if (command.value == value) return command;
+            }
+            return null;
+        }
     }
 
     // endregion
@@ -58,6 +84,7 @@ public class BotIO {
 
     private static final String DIVIDER = "------------------------------";
     private static final int INVALID_DAY_INTERVAL = -1;
+    private static final int STREAM_CHUNK_CHARS = 8 * 1024;
 
     // endregion
 
@@ -68,18 +95,20 @@ public class BotIO {
             placeholder = "Please select a command(ex. 1): ";
         }
 
-        System.out.println(placeholder);
+        println(placeholder);
+        ConsoleSink.INSTANCE.flush();
 
         try {
             return new Scanner(System.in).nextInt();
         } catch (Exception expected) {
-            System.out.println("Invalid command, please enter a correct command!");
+            println("Invalid command, please enter a correct command!");
             return COMMAND_INVALID;
         }
     }
 
     public static String getUserInput(String placeholder) {
-        System.out.println(placeholder);
+        println(placeholder);
+        ConsoleSink.INSTANCE.flush();
         return new Scanner(System.in).nextLine();
     }
 
@@ -96,7 +125,7 @@ public class BotIO {
     public static List<String> getValidUserInputEmailList() {
         final var MAX_EMAIL_NUMBER = 5;
 
-        System.out.println("You can enter at most " + MAX_EMAIL_NUMBER + " email address ('q' to quit)");
+        println("You can enter at most " + MAX_EMAIL_NUMBER + " email address ('q' to quit)");
 
         var emails = new ArrayList<String>();
 
@@ -106,11 +135,11 @@ public class BotIO {
             if (input.toLowerCase().equals(COMMAND_QUIT)) {
                 break;
             } else if (emails.size() < MAX_EMAIL_NUMBER) {
-                System.out.println("Email " + (emails.size() + 1));
+                println("Email " + (emails.size() + 1));
                 var email = getValidUserInputEmail();
                 emails.add(email);
             } else {
-                System.out.println("Please input 'q' to quit or 'Enter' to continue.");
+                println("Please input 'q' to quit or 'Enter' to continue.");
             }
         }
 
@@ -130,13 +159,22 @@ public class BotIO {
      * @return List<String> dates, from date: dates.get(0), to date: dates.get(1)
      */
     public static List<String> getValidQueryDateParameters() {
-        final var MAX_DAY_INTERVAL = 5;
+        return getValidQueryDateParameters(DEFAULT_MAX_DAY_INTERVAL);
+    }
 
-        System.out.println("The interval between 'From Date' and 'To Date' is from 1 to " + MAX_DAY_INTERVAL);
-        System.out.println("Date format should be " + DATE_FORMAT + ", ex. 2020-04-28");
-        System.out.println("ATTENTION! Dates are in LOCAL time zone, not GMT.");
-        System.out.println("If 'From Date' is not provided by user, the default values of 'From Date' and 'To Date' are today.");
-        System.out.println("If 'From Date' is provided by user, the default value of 'To Date' is 'From Date'.");
+    /***
+     * Get query date parameters
+     * @param maxDayInterval the longest allowed range in days, or UNBOUNDED_DAY_INTERVAL
+     * @return List<String> dates, from date: dates.get(0), to date: dates.get(1)
+     */
+    public static List<String> getValidQueryDateParameters(int maxDayInterval) {
+        println(maxDayInterval == UNBOUNDED_DAY_INTERVAL
+                ? "The interval between 'From Date' and 'To Date' is at least 1"
+                : "The interval between 'From Date' and 'To Date' is from 1 to " + maxDayInterval);
+        println("Date format should be " + DATE_FORMAT + ", ex. 2020-04-28");
+        println("ATTENTION! Dates are in LOCAL time zone, not GMT.");
+        println("If 'From Date' is not provided by user, the default values of 'From Date' and 'To Date' are today.");
+        println("If 'From Date' is provided by user, the default value of 'To Date' is 'From Date'.");
 
         var dates = new ArrayList<String>();
 
@@ -158,17 +196,18 @@ public class BotIO {
                     if (dates.size() == 1) {
                         // we need to add 1 since if from and to are the same day, it counts 1
                         var intervals = getDayInterval(dates.get(0), date) + 1;
-                        if (intervals > 0 && intervals <= MAX_DAY_INTERVAL) {
+                        if (intervals > 0 && intervals <= maxDayInterval) {
                             dates.add(date);
                         } else {
-                            System.out.println("Invalid interval of day: " + intervals + ". The range should be [1," + MAX_DAY_INTERVAL + "]");
+                            println("Invalid interval of day: " + intervals + ". The range should be [1," +
+                                    (maxDayInterval == UNBOUNDED_DAY_INTERVAL ? "+inf)" : maxDayInterval + "]"));
                         }
                     } else {
                         dates.add(date);
                     }
                 }
             } else {
-                System.out.println("Please input 'q' to quit or 'Enter' to continue.");
+                println("Please input 'q' to quit or 'Enter' to continue.");
             }
         }
 
@@ -189,170 +228,356 @@ public class BotIO {
     // region Public APIs (Print Functions)
 
     public static void printMainMenu() {
-        System.out.println("# Main Menu #");
-        System.out.println("## Milestone 2 ##");
-        System.out.println("[" + M2_CHAT_CHANNEL_SET_FUNCTIONS.value + "] Execute a MEANINGFUL set of Chat Channel Functions;");
-        System.out.println("[" + M2_CHAT_CHANNEL_SINGLE_FUNCTION.value + "] Execute a single Chat Channel Function (debug only);");
-        System.out.println("[" + M2_CHAT_MESSAGE_SET_FUNCTIONS.value + "] Execute a MEANINGFUL set of Chat Message Functions;");
-        System.out.println("[" + M2_CHAT_MESSAGE_SINGLE_FUNCTION.value + "] Execute a single Chat Message Function (debug only);");
-        System.out.println("## Milestone 3 ##");
-        System.out.println("[" + M3_CHAT_SET_FUNCTIONS.value + "] Execute a MEANINGFUL set of Chat Functions;");
-        System.out.println("[" + M3_CHAT_SINGLE_FUNCTION.value + "] Execute a single Chat Function (debug only);");
-        System.out.println("## Milestone 4 ##");
-        System.out.println("[" + M4_START_MONITOR_CHANNEL.value + "] Start monitoring a channel asynchronously;");
-        System.out.println("[" + M4_DISPLAY_MONITOR_CHANNEL_NAME.value + "] Display monitoring channel names;");
-        System.out.println("[" + M4_STOP_MONITOR_CHANNEL.value + "] Stop monitoring a channel;");
-        System.out.println("[" + M4_STOP_MONITOR_ALL_CHANNELS.value + "] Stop monitoring all channels;");
-        System.out.println("## Milestone 5 ##");
-        System.out.println("[" + M5_LIST_CHANNELS.value + "] List channels;");
-        System.out.println("[" + M5_LIST_MEMBERS.value + "] List members;");
-        System.out.println("[" + M5_LIST_MESSAGES.value + "] List messages;");
-        System.out.println("## Others ##");
-        System.out.println("[" + TOGGLE_DEBUG_OUTPUT.value + "] Toggle debug output (current: " + !Logger.DISABLED + ");");
-        System.out.println("[" + PRINT_MAIN_MENU.value + "] Print this menu (useful when monitoring a channel);");
-        System.out.println("[" + COMMAND_EXIT + "] Exit;");
+        var out = new Block();
+        out.line("# Main Menu #");
+        out.line("## Milestone 2 ##");
+        out.line("[" + M2_CHAT_CHANNEL_SET_FUNCTIONS.value + "] Execute a MEANINGFUL set of Chat Channel Functions;");
+        out.line("[" + M2_CHAT_CHANNEL_SINGLE_FUNCTION.value + "] Execute a single Chat Channel Function (debug only);");
+        out.line("[" + M2_CHAT_MESSAGE_SET_FUNCTIONS.value + "] Execute a MEANINGFUL set of Chat Message Functions;");
+        out.line("[" + M2_CHAT_MESSAGE_SINGLE_FUNCTION.value + "] Execute a single Chat Message Function (debug only);");
+        out.line("## Milestone 3 ##");
+        out.line("[" + M3_CHAT_SET_FUNCTIONS.value + "] Execute a MEANINGFUL set of Chat Functions;");
+        out.line("[" + M3_CHAT_SINGLE_FUNCTION.value + "] Execute a single Chat Function (debug only);");
+        out.line("## Milestone 4 ##");
+        out.line("[" + M4_START_MONITOR_CHANNEL.value + "] Start monitoring a channel asynchronously;");
+        out.line("[" + M4_DISPLAY_MONITOR_CHANNEL_NAME.value + "] Display monitoring channel names;");
+        out.line("[" + M4_STOP_MONITOR_CHANNEL.value + "] Stop monitoring a channel;");
+        out.line("[" + M4_STOP_MONITOR_ALL_CHANNELS.value + "] Stop monitoring all channels;");
+        out.line("## Milestone 5 ##");
+        out.line("[" + M5_LIST_CHANNELS.value + "] List channels;");
+        out.line("[" + M5_LIST_MEMBERS.value + "] List members;");
+        out.line("[" + M5_LIST_MESSAGES.value + "] List messages;");
+        out.line("## Search ##");
+        out.line("[" + SEARCH_SENDER_ALL_CHANNELS.value + "] Search messages by sender in all indexed channels;");
+        out.line("[" + SEARCH_CHANNELS_OF_MEMBER.value + "] Find the channels of a member in all listed or monitored rosters;");
+        out.line("## Bulk ##");
+        out.line("[" + BULK_SEND_MESSAGE.value + "] Send a message to many channels;");
+        out.line("## Others ##");
+        out.line("[" + DUMP_FLIGHT_RECORDING.value + "] Dump the flight recording;");
+        out.line("[" + PRINT_METRICS.value + "] Print metrics;");
+        out.line("[" + PRINT_STARTUP_TIMINGS.value + "] Print startup timings;");
+        out.line("[" + TOGGLE_DEBUG_OUTPUT.value + "] Toggle debug output (current: " + !Logger.DISABLED + ");");
+        out.line("[" + PRINT_MAIN_MENU.value + "] Print this menu (useful when monitoring a channel);");
+        out.line("[" + COMMAND_EXIT + "] Exit;");
+        out.emit();
     }
 
     public static void printMainMenuM2() {
-        System.out.println("# Main Menu M2 #");
-        System.out.println("[1] Execute a MEANINGFUL set of Chat Channel Functions;");
-        System.out.println("[2] Execute a single Chat Channel Function (debug only);");
-        System.out.println("[3] Execute a MEANINGFUL set of Chat Message Functions;");
-        System.out.println("[4] Execute a single Chat Message Function (debug only);");
-        System.out.println("[" + COMMAND_EXIT + "] Exit;");
+        var out = new Block();
+        out.line("# Main Menu M2 #");
+        out.line("[1] Execute a MEANINGFUL set of Chat Channel Functions;");
+        out.line("[2] Execute a single Chat Channel Function (debug only);");
+        out.line("[3] Execute a MEANINGFUL set of Chat Message Functions;");
+        out.line("[4] Execute a single Chat Message Function (debug only);");
+        out.line("[" + COMMAND_EXIT + "] Exit;");
+        out.emit();
     }
 
     public static void printChatChannelMenu(String email) {
-        System.out.println("# Chat Channel Menu # userEmail=" + email);
-        System.out.println("[1] List user's channels;");
-        System.out.println("[2] Create a channel;");
-        System.out.println("[3] Get a channel;");
-        System.out.println("[4] Update a channel;");
-        System.out.println("[5] Delete a channel;");
-        System.out.println("[6] List channel members;");
-        System.out.println("[7] Invite channel members;");
-        System.out.println("[8] Join a channel;");
-        System.out.println("[9] Leave a channel;");
-        System.out.println("[10] Remove a member;");
-        System.out.println("[" + COMMAND_EXIT + "] Exit;");
+        var out = new Block();
+        out.line("# Chat Channel Menu # userEmail=" + email);
+        out.line("[1] List user's channels;");
+        out.line("[2] Create a channel;");
+        out.line("[3] Get a channel;");
+        out.line("[4] Update a channel;");
+        out.line("[5] Delete a channel;");
+        out.line("[6] List channel members;");
+        out.line("[7] Invite channel members;");
+        out.line("[8] Join a channel;");
+        out.line("[9] Leave a channel;");
+        out.line("[10] Remove a member;");
+        out.line("[" + COMMAND_EXIT + "] Exit;");
+        out.emit();
     }
 
     public static void printChatMessageMenu(String channelName) {
-        System.out.println("# Chat Message Menu # channelName=" + channelName);
-        System.out.println("[1] List channel messages;");
-        System.out.println("[2] Send channel messages;");
-        System.out.println("[3] Update a message;");
-        System.out.println("[4] Delete a message;");
-        System.out.println("[" + COMMAND_EXIT + "] Exit;");
+        var out = new Block();
+        out.line("# Chat Message Menu # channelName=" + channelName);
+        out.line("[1] List channel messages;");
+        out.line("[2] Send channel messages;");
+        out.line("[3] Update a message;");
+        out.line("[4] Delete a message;");
+        out.line("[" + COMMAND_EXIT + "] Exit;");
+        out.emit();
     }
 
     public static void printMainMenuM3() {
-        System.out.println("# Main Menu M3 #");
-        System.out.println("[1] Execute a MEANINGFUL set of Chat Functions;");
-        System.out.println("[2] Execute a single Chat Function (debug only);");
-        System.out.println("[" + COMMAND_EXIT + "] Exit;");
+        var out = new Block();
+        out.line("# Main Menu M3 #");
+        out.line("[1] Execute a MEANINGFUL set of Chat Functions;");
+        out.line("[2] Execute a single Chat Function (debug only);");
+        out.line("[" + COMMAND_EXIT + "] Exit;");
+        out.emit();
     }
 
     public static void printChatMenu(String channelName) {
-        System.out.println("# Chat Menu # channelName=" + channelName);
-        System.out.println("[1] Send channel messages;");
-        System.out.println("[2] Get channel message history;");
-        System.out.println("[3] Search messages by content;");
-        System.out.println("[4] Search messages by sender;");
-        System.out.println("[" + COMMAND_EXIT + "] Exit;");
+        var out = new Block();
+        out.line("# Chat Menu # channelName=" + channelName);
+        out.line("[1] Send channel messages;");
+        out.line("[2] Get channel message history;");
+        out.line("[3] Search messages by content;");
+        out.line("[4] Search messages by sender;");
+        out.line("[" + COMMAND_EXIT + "] Exit;");
+        out.emit();
     }
 
     public static void printTitle(String title) {
-        System.out.println(DIVIDER);
-        System.out.println("# " + title);
-        System.out.println(DIVIDER);
-        System.out.println();
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
     }
 
     public static void printMessageWithDivider(String message) {
-        System.out.println(DIVIDER);
-        System.out.println(message);
-        System.out.println(DIVIDER);
-        System.out.println();
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line(message);
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
     }
 
     public static void printUserInfo(User user) {
-        System.out.println(DIVIDER);
-        System.out.println("# You are logged in as");
-        System.out.println(user.getInfo());
-        System.out.println(DIVIDER);
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# You are logged in as");
+        out.line(user.getInfo());
+        out.line(DIVIDER);
+        out.emit();
     }
 
     public static void printChannelWithTitle(String title, Channel channel) {
-        System.out.println(DIVIDER);
-        System.out.println("# " + title);
-        System.out.println(channel.getName() + ": " + channel.getId());
-        System.out.println(DIVIDER);
-        System.out.println();
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
+        out.line(channel.getName() + ": " + channel.getId());
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
     }
 
     public static void printChannelsWithTitle(String title, List<Channel> channels) {
-        System.out.println(DIVIDER);
-        System.out.println("# " + title);
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
         var i = 0;
         for (Channel channel : channels) {
-            System.out.println("[" + (i + 1) + "] " + channel.getName() + ": " + channel.getId() + "(type: " + channel.getType() + ")");
+            out.line("[" + (i + 1) + "] " + channel.getName() + ": " + channel.getId() + "(type: " + channel.getType() + ")");
             i++;
         }
-        System.out.println(DIVIDER);
-        System.out.println();
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
     }
 
     public static void printMembersWithTitle(String title, List<User> members) {
-        System.out.println(DIVIDER);
-        System.out.println("# " + title);
+        membersBlock(title, members).emit();
+    }
+
+    /***
+     * Print a member added to a monitored channel; under load it may be dropped by the output overflow policy
+     */
+    public static void printMemberEvent(String title, User member) {
+        membersBlock(title, List.of(member)).emitEvent();
+    }
+
+    private static Block membersBlock(String title, List<User> members) {
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
         var i = 0;
         for (User member : members) {
-            System.out.println("[" + (i + 1) + "] ID: " + member.getId() + "\n" + member.getName() + "(" + member.getRole() + "): " + member.getEmail());
+            out.line(formatMember(i + 1, member));
             i++;
 
             if (i < members.size()) {
-                System.out.println();
+                out.line();
             }
         }
-        System.out.println(DIVIDER);
-        System.out.println();
+        out.line(DIVIDER);
+        out.line();
+        return out;
+    }
+
+    public static void printMemberStream(String title, MemberRosterIterator members) {
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# Streaming " + title);
+        while (members.hasNext()) {
+            out.line(formatMember(members.getMemberCount() + 1, members.next()));
+            out.line();
+            // hand over large rosters in chunks so the first page shows up early
+            if (out.length() >= STREAM_CHUNK_CHARS) {
+                out.emit();
+            }
+        }
+        if (members.getErrorMessage() == null) {
+            out.line("# " + members.getMemberCount() + " members in " + members.getPageCount() + " pages");
+        } else {
+            out.line("# Fail to list " + title + "\nReason: " + members.getErrorMessage());
+        }
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
     }
 
     public static void printInviteChannelMembersResultWithTitle(String title, IdAddedDateResponse result) {
-        System.out.println(DIVIDER);
-        System.out.println("# " + title + " at " + result.getAddedDate());
-        System.out.println("Ids: " + result.getIds());
-        System.out.println(DIVIDER);
-        System.out.println();
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title + " at " + result.getAddedDate());
+        out.line("Ids: " + result.getIds());
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
     }
 
     public static void printJoinAChannelResultWithTitle(String title, IdAddedDateResponse result) {
         if (result == null) return;
-        System.out.println(DIVIDER);
-        System.out.println("# " + title + " at " + result.getAddedDate());
-        System.out.println("Id: " + result.getId());
-        System.out.println(DIVIDER);
-        System.out.println();
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title + " at " + result.getAddedDate());
+        out.line("Id: " + result.getId());
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
     }
 
     public static void printChannelMessagesWithTitle(String title, List<Message> messages, boolean printId) {
-        System.out.println(DIVIDER);
-        System.out.println("# " + title);
+        channelMessagesBlock(title, messages, printId).emit();
+    }
+
+    /***
+     * Print a message seen by a monitor; under load it may be dropped by the output overflow policy
+     */
+    public static void printMessageEvent(String title, Message message) {
+        channelMessagesBlock(title, List.of(message), true).emitEvent();
+    }
+
+    private static Block channelMessagesBlock(String title, List<Message> messages, boolean printId) {
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
         var i = 0;
         for (var message : messages) {
-            System.out.println("[" + (i + 1) + "]" +
-                    (printId ? " " + message.getId() : "") +
-                    " " + message.getLocalDateTime() +
-                    " " + message.getSender() + ": "
-                    + message.getMessage());
+            out.line(formatMessage(i + 1, message, printId));
             i++;
         }
-        System.out.println(DIVIDER);
-        System.out.println();
+        out.line(DIVIDER);
+        out.line();
+        return out;
+    }
+
+    /***
+     * Print messages as they are streamed, so the first page shows up before the rest of the range is fetched
+     */
+    public static void printMessageStream(String title, String fromDate, String toDate, MessageHistoryIterator messages) {
+        title = title + "\nPeriod (" + TimeZone.getDefault().getID() + "): " + fromDate + " - " + toDate;
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# Streaming " + title);
+        var i = 0;
+        while (messages.hasNext()) {
+            out.line(formatMessage(i + 1, messages.next(), false));
+            i++;
+            // hand over long streams in chunks so the first pages show up early
+            if (out.length() >= STREAM_CHUNK_CHARS) {
+                out.emit();
+            }
+        }
+        if (messages.getErrorMessage() == null) {
+            out.line("# " + i + " messages in " + messages.getDayCount() + " days (" + messages.getPageCount() + " pages)");
+        } else {
+            out.line("# Fail to " + title + "\nReason: " + messages.getErrorMessage());
+        }
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
+    }
+
+    public static void printMonitorsWithTitle(String title, Collection<ChannelMonitor> monitors) {
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
+        var i = 0;
+        for (var monitor : monitors) {
+            out.line("[" + (i + 1) + "] " + monitor.getChannelName() +
+                    " (poll lag: " + monitor.getLastPollLagMillis() + " ms, max " + monitor.getMaxPollLagMillis() + " ms)" +
+                    (monitor.getLastErrorMessage() == null ? "" : "\n    Last error: " + monitor.getLastErrorMessage()));
+            i++;
+        }
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
+    }
+
+    public static void printSendResultsWithTitle(String title, List<SendResult> results) {
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
+        var failed = 0;
+        for (var result : results) {
+            if (result.isSuccess()) continue;
+            failed++;
+            out.line("[" + (result.getIndex() + 1) + "] Fail to send to " + result.getRequest().getChannelName() +
+                    "\nReason: " + result.getErrorMessage());
+        }
+        out.line("# " + (results.size() - failed) + " sent, " + failed + " failed");
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
+    }
+
+    public static void printMetricsWithTitle(String title, MetricsRegistry metrics) {
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
+        out.line("## Latency (ms) ##");
+        for (var timer : metrics.getTimers()) {
+            var latency = timer.getLatency();
+            out.line(String.format("%-40s n=%-6d p50=%-8.1f p90=%-8.1f p99=%-8.1f max=%-8.1f errors=%d retries=%d",
+                    timer.getName(), latency.getCount(), latency.getPercentile(50) / 1e6, latency.getPercentile(90) / 1e6,
+                    latency.getPercentile(99) / 1e6, latency.getMax() / 1e6, timer.getErrorCount(), timer.getRetryCount()));
+        }
+        out.line("## Histograms ##");
+        metrics.getHistograms().forEach((name, histogram) -> out.line(String.format(
+                "%-40s n=%-6d p50=%-8d p90=%-8d p99=%-8d max=%d", name, histogram.getCount(),
+                histogram.getPercentile(50), histogram.getPercentile(90), histogram.getPercentile(99), histogram.getMax())));
+        out.line("## Caches ##");
+        for (var cache : metrics.getCaches()) {
+            out.line(String.format("%-40s hits=%-6d misses=%-6d hit ratio=%.1f%%", cache.getName(),
+                    cache.getHitCount(), cache.getMissCount(), cache.getHitRatio() * 100));
+        }
+        out.line("## Gauges ##");
+        metrics.getGauges().forEach((name, value) -> out.line(String.format("%-40s %d", name, value)));
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
+    }
+
+    public static void printStartupTimingsWithTitle(String title, StartupPipeline pipeline) {
+        var out = new Block();
+        out.line(DIVIDER);
+        out.line("# " + title);
+        for (var timing : pipeline.getTimings()) {
+            out.line(String.format("%-10s start %8.1f ms, took %8.1f ms", timing.getName(),
+                    timing.getStartOffsetMillis(), timing.getDurationMillis()) +
+                    (timing.getDependencies().isEmpty() ? "" : ", after " + String.join(", ", timing.getDependencies())) +
+                    (timing.isBackground() ? " (background)" : "") +
+                    (timing.getErrorMessage() == null ? "" : "\n    Fail: " + timing.getErrorMessage()));
+        }
+        out.line(String.format("# Ready after %.1f ms", pipeline.getReadyMillis()));
+        out.line(DIVIDER);
+        out.line();
+        out.emit();
     }
 
     public static void printMessageListResult(String title, String fromDate, String toDate, ListResult<Message> result) {
+        printMessageListResult(title, fromDate, toDate, HistoryResult.of(result));
+    }
+
+    public static void printMessageListResult(String title, String fromDate, String toDate, HistoryResult result) {
         title = title + "\nPeriod (" + TimeZone.getDefault().getID() + "): " + fromDate + " - " + toDate;
         if (result.isSuccess()) {
             printChannelMessagesWithTitle("Succeed to " + title, result.getItems(), false);
@@ -362,15 +587,60 @@ public class BotIO {
     }
 
     public static void println(Object object) {
-        System.out.println(object);
+        ConsoleSink.INSTANCE.write(object + "\n");
     }
 
     public static void println() {
-        System.out.println();
+        ConsoleSink.INSTANCE.write("\n");
     }
 
     // endregion
 
+    // region Private Methods
+
+    /***
+     * Lines of one printout, rendered off the console and handed to the sink as a single write
+     */
+    private static class Block {
+        private final StringBuilder text = new StringBuilder(256);
+
+        void line(Object object) {
+            text.append(object).append('\n');
+        }
+
+        void line() {
+            text.append('\n');
+        }
+
+        int length() {
+            return text.length();
+        }
+
+        void emit() {
+            if (text.length() == 0) return;
+            ConsoleSink.INSTANCE.write(text.toString());
+            text.setLength(0);
+        }
+
+        void emitEvent() {
+            if (text.length() == 0) return;
+            ConsoleSink.INSTANCE.writeEvent(text.toString());
+            text.setLength(0);
+        }
+    }
+
+    private static String formatMember(int index, User member) {
+        return "[" + index + "] ID: " + member.getId() + "\n" + member.getName() + "(" + member.getRole() + "): " + member.getEmail();
+    }
+
+    private static String formatMessage(int index, Message message, boolean printId) {
+        return "[" + index + "]" +
+                (printId ? " " + message.getId() : "") +
+                " " + message.getLocalDateTime() +
+                " " + message.getSender() + ": "
+                + message.getMessage();
+    }
+
     private static int getDayInterval(String fromDate, String toDate) {
         try {
             var formatter = new SimpleDateFormat(DATE_FORMAT);
@@ -382,4 +652,6 @@ public class BotIO {
             return INVALID_DAY_INTERVAL;
         }
     }
+
+    // endregion
 }
@@ -0,0 +1,69 @@
+package com.github.dbchar.zoombot.arena;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+/***
+ * Flyweight view of a message in a {@link MessageArena}: every getter decodes its field from off-heap memory.
+ * Only the getters the bot reads are backed by the arena. The Message fields themselves stay empty, so a view
+ * must not be serialized with Gson; the store and the payload estimates only see messages fresh from the API
+ * or use {@link OffHeapMessages#getOffHeapBytes()}.
+ */
+class ArenaMessage extends Message {
+    // region Private Properties
+
+    private static final int ID = 0;
+    private static final int SENDER = 1;
+    private static final int DATE_TIME = 2;
+    private static final int TEXT = 3;
+
+    private final transient OffHeapMessages day;
+    private final transient int index;
+
+    // endregion
+
+    // region Public Methods
+
+    @Override
+    public String getId() {
+        return getString(ID);
+    }
+
+    @Override
+    public String getSender() {
+        return getString(SENDER);
+    }
+
+    @Override
+    public String getLocalDateTime() {
+        return getString(DATE_TIME);
+    }
+
+    @Override
+    public String getMessage() {
+        return getString(TEXT);
+    }
+
+    @Override
+    public long getTimestamp() {
+        return day.getArena().getTimestamp(day.getHandle(index));
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    ArenaMessage(OffHeapMessages day, int index) {
+        this.day = day;
+        this.index = index;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private String getString(int field) {
+        return day.getArena().getString(day.getHandle(index), field);
+    }
+
+    // endregion
+}
@@ -0,0 +1,190 @@
+package com.github.dbchar.zoombot.arena;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Off-heap storage for the messages the bot keeps for a long time: cached history days and the days
+ * monitors poll again and again, which also end up in the message index.
+ * A day is copied into chunks of a {@link SlabAllocator} and read back through flyweight Message views,
+ * so the heap only holds a handle per message and the GC does not scan message text.
+ * <p>
+ * Chunks of a day are released when the day is no longer reachable (neither cached, indexed nor being read),
+ * by a {@link Cleaner}. When the arena is full, days simply stay on the heap.
+ */
+public class MessageArena {
+    // region Public Constants
+
+    public static final long DEFAULT_MAX_MEGABYTES = 256;
+    public static final int DEFAULT_SLAB_KILOBYTES = 1024;
+
+    // endregion
+
+    // region Private Properties
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    // record layout: timestamp, then id, sender, date time and text, each as an int length (-1 for null) and UTF-8
+    private static final int TIMESTAMP_BYTES = Long.BYTES;
+    private static final int FIELD_COUNT = 4;
+
+    private final SlabAllocator allocator;
+    // size of the records of the days in the arena, without the rounding up to chunk sizes
+    private final AtomicLong recordBytes = new AtomicLong();
+
+    // endregion
+
+    // region Public Methods
+
+    public MessageArena(long maxBytes, int slabBytes) {
+        this.allocator = new SlabAllocator(maxBytes, slabBytes);
+    }
+
+    /***
+     * @return an immutable off-heap copy of the messages, or the messages themselves if the arena is full
+     */
+    public List<Message> copyOf(List<Message> messages) {
+        if (messages instanceof OffHeapMessages || messages.isEmpty()) return messages;
+
+        var handles = new long[messages.size()];
+        var bytes = 0L;
+        for (var i = 0; i < handles.length; i++) {
+            var message = messages.get(i);
+            var fields = new byte[][]{utf8(message.getId()), utf8(message.getSender()),
+                    utf8(message.getLocalDateTime()), utf8(message.getMessage())};
+            var size = TIMESTAMP_BYTES + FIELD_COUNT * Integer.BYTES;
+            for (var field : fields) {
+                size += field == null ? 0 : field.length;
+            }
+
+            var handle = allocator.allocate(size);
+            if (handle < 0) {
+                for (var j = 0; j < i; j++) {
+                    allocator.free(handles[j]);
+                }
+                return messages;
+            }
+            write(handle, message.getTimestamp(), fields);
+            handles[i] = handle;
+            bytes += size;
+        }
+
+        var day = new OffHeapMessages(this, handles, bytes);
+        recordBytes.addAndGet(bytes);
+        CLEANER.register(day, new Release(allocator, handles, recordBytes, bytes));
+        return day;
+    }
+
+    /***
+     * @return bytes of the chunks in use
+     */
+    public long getUsedBytes() {
+        return allocator.getUsedBytes();
+    }
+
+    /***
+     * @return bytes the chunks in use have beyond their records, as chunk sizes are powers of two
+     */
+    public long getPaddingBytes() {
+        return Math.max(0, allocator.getUsedBytes() - recordBytes.get());
+    }
+
+    /***
+     * @return bytes of free chunks that only records of their size class can use,
+     * e.g. slabs cut for long messages after the channels turned to short ones
+     */
+    public long getStrandedBytes() {
+        return allocator.getStrandedBytes();
+    }
+
+    /***
+     * @return bytes of the slabs allocated so far
+     */
+    public long getReservedBytes() {
+        return allocator.getReservedBytes();
+    }
+
+    public long getMaxBytes() {
+        return allocator.getMaxBytes();
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    long getTimestamp(long handle) {
+        return allocator.slab(handle).getLong(SlabAllocator.offset(handle));
+    }
+
+    /***
+     * @param field 0 id, 1 sender, 2 date time, 3 text
+     */
+    String getString(long handle, int field) {
+        var slab = allocator.slab(handle);
+        var position = SlabAllocator.offset(handle) + TIMESTAMP_BYTES;
+        for (var i = 0; i < field; i++) {
+            position += Integer.BYTES + Math.max(0, slab.getInt(position));
+        }
+
+        var length = slab.getInt(position);
+        if (length < 0) return null;
+        var bytes = new byte[length];
+        var view = slab.duplicate();
+        view.position(position + Integer.BYTES);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private void write(long handle, long timestamp, byte[][] fields) {
+        var view = allocator.slab(handle).duplicate();
+        view.position(SlabAllocator.offset(handle));
+        view.putLong(timestamp);
+        for (var field : fields) {
+            if (field == null) {
+                view.putInt(-1);
+            } else {
+                view.putInt(field.length);
+                view.put(field);
+            }
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /***
+     * Frees the chunks of a day once it is unreachable; must not refer to the day itself
+     */
+    private static class Release implements Runnable {
+        private final SlabAllocator allocator;
+        private final long[] handles;
+        private final AtomicLong recordBytes;
+        private final long bytes;
+
+        Release(SlabAllocator allocator, long[] handles, AtomicLong recordBytes, long bytes) {
+            this.allocator = allocator;
+            this.handles = handles;
+            this.recordBytes = recordBytes;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void run() {
+            for (var handle : handles) {
+                allocator.free(handle);
+            }
+            recordBytes.addAndGet(-bytes);
+        }
+    }
+
+    // endregion
+}
@@ -0,0 +1,59 @@
+package com.github.dbchar.zoombot.arena;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/***
+ * Immutable list of messages stored in a {@link MessageArena}.
+ * Elements are flyweight views created on access; a view keeps the list, and so its chunks, alive.
+ */
+public class OffHeapMessages extends AbstractList<Message> implements RandomAccess {
+    // region Private Properties
+
+    private final MessageArena arena;
+    private final long[] handles;
+    private final long offHeapBytes;
+
+    // endregion
+
+    // region Public Methods
+
+    @Override
+    public Message get(int index) {
+        return new ArenaMessage(this, index);
+    }
+
+    @Override
+    public int size() {
+        return handles.length;
+    }
+
+    /***
+     * @return size of the messages in the arena, about the size of their JSON
+     */
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    OffHeapMessages(MessageArena arena, long[] handles, long offHeapBytes) {
+        this.arena = arena;
+        this.handles = handles;
+        this.offHeapBytes = offHeapBytes;
+    }
+
+    MessageArena getArena() {
+        return arena;
+    }
+
+    long getHandle(int index) {
+        return handles[index];
+    }
+
+    // endregion
+}
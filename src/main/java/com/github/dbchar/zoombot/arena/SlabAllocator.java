@@ -0,0 +1,145 @@
+package com.github.dbchar.zoombot.arena;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/***
+ * Allocates chunks of off-heap memory out of direct buffers ("slabs").
+ * Chunk sizes are powers of two from MIN_CHUNK_BYTES to MAX_CHUNK_BYTES; each slab is cut into chunks of one size
+ * when it is first needed, and freed chunks go back to the free list of their size. Slabs are never returned to
+ * the JVM nor cut again for another size, so the arena fragments in two ways: a chunk is rounded up to a power of
+ * two (up to half of it unused), and when the mix of message sizes changes, the free chunks of slabs cut for sizes
+ * no longer asked for stay stranded. See {@link #getUsedBytes()} and {@link #getStrandedBytes()}.
+ * <p>
+ * A chunk is named by a handle: the slab index in the high 32 bits and the offset in the slab in the low ones.
+ */
+class SlabAllocator {
+    // region Package Constants
+
+    static final int MIN_CHUNK_BYTES = 64;
+    static final int MAX_CHUNK_BYTES = 64 * 1024;
+
+    // endregion
+
+    // region Private Properties
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CHUNK_BYTES);
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_CHUNK_BYTES) - MIN_SHIFT + 1;
+
+    private final int slabBytes;
+    private final AtomicReferenceArray<ByteBuffer> slabs;
+    private final int[] slabSizeClasses;
+    private final long[][] freeLists = new long[SIZE_CLASSES][];
+    private final int[] freeCounts = new int[SIZE_CLASSES];
+    private int slabCount;
+    private long usedBytes;
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * @param maxBytes total size of all slabs
+     * @param slabBytes size of one slab, at least MAX_CHUNK_BYTES
+     */
+    SlabAllocator(long maxBytes, int slabBytes) {
+        this.slabBytes = Integer.highestOneBit(Math.max(MAX_CHUNK_BYTES, slabBytes));
+        var maxSlabs = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / this.slabBytes));
+        this.slabs = new AtomicReferenceArray<>(maxSlabs);
+        this.slabSizeClasses = new int[maxSlabs];
+        Arrays.setAll(freeLists, sizeClass -> new long[16]);
+    }
+
+    /***
+     * @return handle of a chunk of at least the given size, or -1 if the size is too large or the arena is full
+     */
+    synchronized long allocate(int bytes) {
+        if (bytes > MAX_CHUNK_BYTES) return -1;
+        var sizeClass = sizeClassOf(bytes);
+        if (freeCounts[sizeClass] == 0 && !addSlab(sizeClass)) return -1;
+
+        usedBytes += chunkBytes(sizeClass);
+        return freeLists[sizeClass][--freeCounts[sizeClass]];
+    }
+
+    synchronized void free(long handle) {
+        var sizeClass = slabSizeClasses[slabIndex(handle)];
+        if (freeCounts[sizeClass] == freeLists[sizeClass].length) {
+            freeLists[sizeClass] = Arrays.copyOf(freeLists[sizeClass], freeCounts[sizeClass] * 2);
+        }
+        freeLists[sizeClass][freeCounts[sizeClass]++] = handle;
+        usedBytes -= chunkBytes(sizeClass);
+    }
+
+    /***
+     * @return the slab of a chunk; read it with absolute gets at {@link #offset(long)}
+     */
+    ByteBuffer slab(long handle) {
+        return slabs.get(slabIndex(handle));
+    }
+
+    static int offset(long handle) {
+        return (int) handle;
+    }
+
+    /***
+     * @return bytes of the chunks handed out, rounded up to their size class
+     */
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /***
+     * @return bytes of the free chunks in slabs already cut, which only allocations of their size class can use
+     */
+    synchronized long getStrandedBytes() {
+        return (long) slabCount * slabBytes - usedBytes;
+    }
+
+    synchronized long getReservedBytes() {
+        return (long) slabCount * slabBytes;
+    }
+
+    long getMaxBytes() {
+        return (long) slabs.length() * slabBytes;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private boolean addSlab(int sizeClass) {
+        if (slabCount == slabs.length()) return false;
+
+        var index = slabCount++;
+        slabs.set(index, ByteBuffer.allocateDirect(slabBytes));
+        slabSizeClasses[index] = sizeClass;
+
+        var chunkBytes = chunkBytes(sizeClass);
+        var chunkCount = slabBytes / chunkBytes;
+        if (freeLists[sizeClass].length < chunkCount) {
+            freeLists[sizeClass] = Arrays.copyOf(freeLists[sizeClass], chunkCount);
+        }
+        // highest offset first, so chunks are handed out in address order
+        for (var chunk = chunkCount - 1; chunk >= 0; chunk--) {
+            freeLists[sizeClass][freeCounts[sizeClass]++] = ((long) index << 32) | ((long) chunk * chunkBytes);
+        }
+        return true;
+    }
+
+    private static int sizeClassOf(int bytes) {
+        var shift = 32 - Integer.numberOfLeadingZeros(Math.max(MIN_CHUNK_BYTES, bytes) - 1);
+        return shift - MIN_SHIFT;
+    }
+
+    private static int chunkBytes(int sizeClass) {
+        return MIN_CHUNK_BYTES << sizeClass;
+    }
+
+    private static int slabIndex(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    // endregion
+}
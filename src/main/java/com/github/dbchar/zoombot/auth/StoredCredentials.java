@@ -0,0 +1,50 @@
+package com.github.dbchar.zoombot.auth;
+
+import com.github.dbchar.zoomapi.models.User;
+
+/***
+ * What a warm start needs to skip the OAuth flow: the tokens, when the access token was issued, and the user
+ */
+public class StoredCredentials {
+    // region Private Properties
+
+    private String clientId;
+    private String accessToken;
+    private String refreshToken;
+    private long issuedAtMillis;
+    private User user;
+
+    // endregion
+
+    // region Public Methods
+
+    public StoredCredentials(String clientId, String accessToken, String refreshToken, long issuedAtMillis, User user) {
+        this.clientId = clientId;
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+        this.issuedAtMillis = issuedAtMillis;
+        this.user = user;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public long getIssuedAtMillis() {
+        return issuedAtMillis;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    // endregion
+}
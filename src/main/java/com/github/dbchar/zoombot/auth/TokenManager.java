@@ -0,0 +1,241 @@
+package com.github.dbchar.zoombot.auth;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import com.github.dbchar.zoomapi.utils.ListResult;
+import com.github.dbchar.zoomapi.utils.Result;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Keeps the OAuth access token of the client fresh.
+ * The expiry of the current token is tracked from the time it was issued, and a background thread refreshes it
+ * shortly before it expires, so API calls in steady state never hit an expired token and the
+ * failed-call / refresh / retry round-trip of {@link #isSuccessOrRefreshToken(Result)} stays a fallback.
+ * Concurrent refresh requests share the refresh that is already in flight; the fallback goes through the manager
+ * too, so a burst of calls failing on the same expired token refreshes it once.
+ */
+public enum TokenManager {
+    INSTANCE;
+
+    // region Public Constants
+
+    public static final long DEFAULT_TOKEN_LIFETIME_SECONDS = 3600;
+    public static final long DEFAULT_REFRESH_MARGIN_SECONDS = 300;
+
+    // endregion
+
+    // region Listeners
+
+    public interface OnTokenRefreshedListener {
+        void onTokenRefreshed(OAuthZoomClient client);
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // the API answers a call made with an expired or revoked token with code 124 and this in its message
+    private static final String TOKEN_ERROR_MESSAGE = "access token";
+
+    private final Object lock = new Object();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final List<OnTokenRefreshedListener> onTokenRefreshedListeners = new CopyOnWriteArrayList<>();
+    private volatile OAuthZoomClient client;
+    private ScheduledExecutorService refresher;
+    private ScheduledFuture<?> nextRefresh;
+    private CompletableFuture<Boolean> inFlight;
+    private long lifetimeMillis;
+    private long marginMillis;
+    private volatile long issuedAtMillis;
+    private volatile long expiresAtMillis = Long.MAX_VALUE;
+    private volatile String lastErrorMessage;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * Start tracking the token the client has just obtained
+     */
+    public void start(OAuthZoomClient client, long lifetimeSeconds, long marginSeconds) {
+        start(client, lifetimeSeconds, marginSeconds, System.currentTimeMillis());
+    }
+
+    /***
+     * Start tracking a token issued at the given time, e.g. one restored from a previous run
+     */
+    public void start(OAuthZoomClient client, long lifetimeSeconds, long marginSeconds, long issuedAtMillis) {
+        synchronized (lock) {
+            stop();
+            this.client = client;
+            this.lifetimeMillis = TimeUnit.SECONDS.toMillis(lifetimeSeconds);
+            this.marginMillis = Math.min(TimeUnit.SECONDS.toMillis(marginSeconds), lifetimeMillis / 2);
+            refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "token-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        onTokenIssued(issuedAtMillis);
+    }
+
+    /***
+     * Refresh the token now, or wait for the refresh already in flight
+     * @return true if the token was refreshed
+     */
+    public boolean refresh() {
+        var flight = (CompletableFuture<Boolean>) null;
+        var isOwner = false;
+        // stop() may clear the client while it is being refreshed
+        var refreshing = (OAuthZoomClient) null;
+        synchronized (lock) {
+            if (client == null) return false;
+            refreshing = client;
+            if (inFlight == null) {
+                inFlight = new CompletableFuture<>();
+                isOwner = true;
+            }
+            flight = inFlight;
+        }
+
+        if (isOwner) {
+            var refreshed = false;
+            try {
+                refreshing.refreshToken();
+                refreshed = true;
+                refreshCount.incrementAndGet();
+            } catch (Exception e) {
+                failureCount.incrementAndGet();
+                lastErrorMessage = String.valueOf(e.getMessage());
+            }
+            synchronized (lock) {
+                inFlight = null;
+            }
+            if (refreshed) {
+                onTokenIssued(System.currentTimeMillis());
+                for (var listener : onTokenRefreshedListeners) {
+                    listener.onTokenRefreshed(refreshing);
+                }
+            } else {
+                scheduleRefresh(RETRY_DELAY_MILLIS);
+            }
+            flight.complete(refreshed);
+        }
+        return flight.join();
+    }
+
+    /***
+     * Fallback for a call that may have failed on an expired token, in place of the client's own
+     * {@code isSuccessOrRefreshToken}, which refreshes the token directly
+     * @return true if the call succeeded; if it failed on the token, the token is refreshed before returning false
+     */
+    public boolean isSuccessOrRefreshToken(Result<?> result) {
+        if (result.isSuccess()) return true;
+        refreshOnTokenError(result.getErrorMessage());
+        return false;
+    }
+
+    public boolean isSuccessOrRefreshToken(ListResult<?> result) {
+        if (result.isSuccess()) return true;
+        refreshOnTokenError(result.getErrorMessage());
+        return false;
+    }
+
+    /***
+     * @return true only if the call failed on the token and the token was refreshed, i.e. retrying it may succeed
+     */
+    public boolean refreshIfTokenFailed(Result<?> result) {
+        return !result.isSuccess() && refreshOnTokenError(result.getErrorMessage());
+    }
+
+    public boolean refreshIfTokenFailed(ListResult<?> result) {
+        return !result.isSuccess() && refreshOnTokenError(result.getErrorMessage());
+    }
+
+    /***
+     * Called before each API call; only blocks if the token has already expired,
+     * e.g. after the machine was asleep and the background refresh could not run in time
+     */
+    public void awaitFreshToken() {
+        if (System.currentTimeMillis() >= expiresAtMillis) {
+            refresh();
+        }
+    }
+
+    /***
+     * Listeners are called from the refreshing thread after every successful refresh
+     */
+    public void addOnTokenRefreshedListener(OnTokenRefreshedListener listener) {
+        onTokenRefreshedListeners.add(listener);
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            if (refresher != null) {
+                refresher.shutdownNow();
+                refresher = null;
+            }
+            nextRefresh = null;
+            client = null;
+            expiresAtMillis = Long.MAX_VALUE;
+        }
+    }
+
+    public long getIssuedAtMillis() {
+        return issuedAtMillis;
+    }
+
+    /***
+     * @return when the current token expires, or Long.MAX_VALUE if no token is tracked
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    public String getLastErrorMessage() {
+        return lastErrorMessage;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private boolean refreshOnTokenError(String errorMessage) {
+        if (errorMessage == null || !errorMessage.toLowerCase(Locale.ROOT).contains(TOKEN_ERROR_MESSAGE)) return false;
+        return refresh();
+    }
+
+    private void onTokenIssued(long issuedAtMillis) {
+        synchronized (lock) {
+            if (refresher == null) return;
+            this.issuedAtMillis = issuedAtMillis;
+            expiresAtMillis = issuedAtMillis + lifetimeMillis;
+        }
+        scheduleRefresh(expiresAtMillis - marginMillis - System.currentTimeMillis());
+    }
+
+    private void scheduleRefresh(long delayMillis) {
+        synchronized (lock) {
+            if (refresher == null) return;
+            if (nextRefresh != null) {
+                nextRefresh.cancel(false);
+            }
+            nextRefresh = refresher.schedule(this::refresh, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // endregion
+}
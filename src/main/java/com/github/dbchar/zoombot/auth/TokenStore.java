@@ -0,0 +1,145 @@
+package com.github.dbchar.zoombot.auth;
+
+import com.google.gson.Gson;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/***
+ * Keeps {@link StoredCredentials} in a local file encrypted with AES-GCM.
+ * The key is derived from the OAuth client secret (PBKDF2, random salt per write), so the file is useless
+ * without bot.ini, and the client id is bound as associated data so credentials of another app never load.
+ * <p>
+ * File layout: magic "ZBC1" | salt (16) | iv (12) | ciphertext with 128-bit tag
+ */
+public class TokenStore {
+    // region Public Constants
+
+    public static final String DEFAULT_PATH = "./.zoombot-credentials";
+
+    // endregion
+
+    // region Private Properties
+
+    private static final byte[] MAGIC = "ZBC1".getBytes(StandardCharsets.US_ASCII);
+    private static final int SALT_LENGTH = 16;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int KEY_BITS = 256;
+    // the client secret is already high-entropy, so a modest iteration count keeps warm starts fast
+    private static final int KEY_ITERATIONS = 10_000;
+
+    private final Path path;
+    private final String clientId;
+    private final char[] clientSecret;
+    private final SecureRandom random = new SecureRandom();
+    private final Gson gson = new Gson();
+
+    // endregion
+
+    // region Public Methods
+
+    public TokenStore(String path, String clientId, String clientSecret) {
+        this.path = Paths.get(path);
+        this.clientId = clientId;
+        this.clientSecret = clientSecret.toCharArray();
+    }
+
+    /***
+     * @return the stored credentials, or null if there are none or they cannot be decrypted with this client
+     */
+    public StoredCredentials load() {
+        try {
+            if (!Files.exists(path)) return null;
+
+            var buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            var magic = new byte[MAGIC.length];
+            var salt = new byte[SALT_LENGTH];
+            var iv = new byte[IV_LENGTH];
+            if (buffer.remaining() <= MAGIC.length + SALT_LENGTH + IV_LENGTH) return null;
+            buffer.get(magic).get(salt).get(iv);
+            if (!Arrays.equals(magic, MAGIC)) return null;
+            var encrypted = new byte[buffer.remaining()];
+            buffer.get(encrypted);
+
+            var cipher = cipher(Cipher.DECRYPT_MODE, salt, iv);
+            var json = new String(cipher.doFinal(encrypted), StandardCharsets.UTF_8);
+            var credentials = gson.fromJson(json, StoredCredentials.class);
+            return credentials != null && clientId.equals(credentials.getClientId()) ? credentials : null;
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            // unreadable, tampered with or written for another client: fall back to a fresh authorization
+            return null;
+        }
+    }
+
+    public void save(StoredCredentials credentials) throws IOException {
+        try {
+            var salt = new byte[SALT_LENGTH];
+            var iv = new byte[IV_LENGTH];
+            random.nextBytes(salt);
+            random.nextBytes(iv);
+
+            var cipher = cipher(Cipher.ENCRYPT_MODE, salt, iv);
+            var encrypted = cipher.doFinal(gson.toJson(credentials).getBytes(StandardCharsets.UTF_8));
+            var data = ByteBuffer.allocate(MAGIC.length + SALT_LENGTH + IV_LENGTH + encrypted.length)
+                    .put(MAGIC).put(salt).put(iv).put(encrypted)
+                    .array();
+
+            // write to a private temporary file and move it over, so a crash never leaves a torn file
+            var directory = path.toAbsolutePath().getParent();
+            var temporary = Files.createTempFile(directory, ".zoombot-credentials", ".tmp");
+            try {
+                restrictToOwner(temporary);
+                Files.write(temporary, data);
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Fail to encrypt credentials", e);
+        }
+    }
+
+    public void clear() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private Cipher cipher(int mode, byte[] salt, byte[] iv) throws GeneralSecurityException {
+        var keySpec = new PBEKeySpec(clientSecret, salt, KEY_ITERATIONS, KEY_BITS);
+        var keyBytes = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(keySpec).getEncoded();
+        keySpec.clearPassword();
+
+        var cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, new SecretKeySpec(keyBytes, "AES"), new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(clientId.getBytes(StandardCharsets.UTF_8));
+        return cipher;
+    }
+
+    private static void restrictToOwner(Path file) {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // not a POSIX file system
+        }
+    }
+
+    // endregion
+}
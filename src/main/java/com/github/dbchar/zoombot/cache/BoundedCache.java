@@ -0,0 +1,288 @@
+package com.github.dbchar.zoombot.cache;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/***
+ * Size-bounded cache with per-entry expiry and W-TinyLFU admission.
+ * New entries go to a small LRU window; an entry leaving the window only enters the main space (segmented LRU:
+ * probation and protected) if it has been accessed more often recently than the entry it would evict,
+ * so a burst of one-off reads cannot flush the entries that are read again and again.
+ * <p>
+ * The bound is on the total weight of the entries, e.g. their estimated size in bytes.
+ * All methods are synchronized; the cache sits in front of network calls, so contention is not a concern.
+ */
+public class BoundedCache<K, V> {
+    // region Public Types
+
+    public interface Weigher<K, V> {
+        long weigh(K key, V value);
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+    private static final int EXPECTED_ENTRIES = 4096;
+
+    private enum Segment {
+        WINDOW,
+        PROBATION,
+        PROTECTED
+    }
+
+    private static class Node<K, V> {
+        final K key;
+        V value;
+        long weight;
+        long expiresAtNanos;
+        Segment segment;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+
+    private final Map<K, Node<K, V>> data = new HashMap<>();
+    // access-ordered, least recently used first
+    private final LinkedHashMap<K, Node<K, V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch = new FrequencySketch(EXPECTED_ENTRIES);
+    private final Weigher<K, V> weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+    private long evictionCount;
+
+    // endregion
+
+    // region Public Methods
+
+    public BoundedCache(long maximumWeight, Weigher<K, V> weigher) {
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_RATIO));
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_RATIO);
+    }
+
+    /***
+     * @return the value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        var node = data.get(key);
+        if (node == null) return null;
+        if (System.nanoTime() - node.expiresAtNanos >= 0) {
+            removeNode(node);
+            return null;
+        }
+        onAccess(node);
+        return node.value;
+    }
+
+    /***
+     * Add or replace an entry; an entry heavier than the whole cache is not stored
+     */
+    public synchronized void put(K key, V value, long timeToLiveMillis) {
+        sketch.increment(key);
+        var weight = weigher.weigh(key, value);
+        var node = data.get(key);
+        if (weight > maximumWeight) {
+            if (node != null) removeNode(node);
+            return;
+        }
+
+        if (node == null) {
+            node = new Node<>(key);
+            node.segment = Segment.WINDOW;
+            data.put(key, node);
+            window.put(key, node);
+        } else {
+            onAccess(node);
+            addWeight(node.segment, -node.weight);
+        }
+        node.value = value;
+        node.weight = weight;
+        node.expiresAtNanos = System.nanoTime() + timeToLiveMillis * 1_000_000;
+        addWeight(node.segment, weight);
+        evict();
+    }
+
+    /***
+     * Replace the value of a live entry with a function of it, keeping its expiry and its place in the cache
+     * @return the new value, or null if absent or expired
+     */
+    public synchronized V computeIfPresent(K key, UnaryOperator<V> remapping) {
+        var node = data.get(key);
+        if (node == null) return null;
+        if (System.nanoTime() - node.expiresAtNanos >= 0) {
+            removeNode(node);
+            return null;
+        }
+        var value = remapping.apply(node.value);
+        var weight = weigher.weigh(key, value);
+        addWeight(node.segment, weight - node.weight);
+        node.value = value;
+        node.weight = weight;
+        if (weight > maximumWeight) {
+            removeNode(node);
+            return null;
+        }
+        evict();
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        var node = data.get(key);
+        if (node != null) {
+            removeNode(node);
+        }
+    }
+
+    public synchronized void invalidateIf(Predicate<K> predicate) {
+        for (var node : new ArrayList<>(data.values())) {
+            if (predicate.test(node.key)) {
+                removeNode(node);
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = probationWeight = protectedWeight = 0;
+    }
+
+    public synchronized int size() {
+        return data.size();
+    }
+
+    public synchronized long getWeight() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                window.get(node.key);
+                break;
+            case PROBATION:
+                // a second hit promotes the entry, demoting the least recently used protected ones if needed
+                probation.remove(node.key);
+                probationWeight -= node.weight;
+                node.segment = Segment.PROTECTED;
+                protectedSegment.put(node.key, node);
+                protectedWeight += node.weight;
+                while (protectedWeight > protectedMaximum && protectedSegment.size() > 1) {
+                    var demoted = first(protectedSegment);
+                    protectedSegment.remove(demoted.key);
+                    protectedWeight -= demoted.weight;
+                    demoted.segment = Segment.PROBATION;
+                    probation.put(demoted.key, demoted);
+                    probationWeight += demoted.weight;
+                }
+                break;
+            case PROTECTED:
+                protectedSegment.get(node.key);
+                break;
+        }
+    }
+
+    private void evict() {
+        // move window overflow into the main space, admitting each candidate only if it beats the victims
+        while (windowWeight > windowMaximum && !window.isEmpty()) {
+            var candidate = first(window);
+            window.remove(candidate.key);
+            windowWeight -= candidate.weight;
+
+            var mainMaximum = maximumWeight - windowMaximum;
+            var admitted = true;
+            while (probationWeight + protectedWeight + candidate.weight > mainMaximum) {
+                var victim = !probation.isEmpty() ? first(probation) : first(protectedSegment);
+                if (victim == null) break;
+                var victimExpired = System.nanoTime() - victim.expiresAtNanos >= 0;
+                if (!victimExpired && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    admitted = false;
+                    break;
+                }
+                removeNode(victim);
+                evictionCount++;
+            }
+
+            if (admitted) {
+                candidate.segment = Segment.PROBATION;
+                probation.put(candidate.key, candidate);
+                probationWeight += candidate.weight;
+            } else {
+                data.remove(candidate.key);
+                evictionCount++;
+            }
+        }
+
+        // replacing a value in the main space with a heavier one can still overflow it
+        while (getWeight() > maximumWeight) {
+            var victim = !probation.isEmpty() ? first(probation)
+                    : !protectedSegment.isEmpty() ? first(protectedSegment) : first(window);
+            removeNode(victim);
+            evictionCount++;
+        }
+    }
+
+    private void removeNode(Node<K, V> node) {
+        data.remove(node.key);
+        switch (node.segment) {
+            case WINDOW:
+                window.remove(node.key);
+                break;
+            case PROBATION:
+                probation.remove(node.key);
+                break;
+            case PROTECTED:
+                protectedSegment.remove(node.key);
+                break;
+        }
+        addWeight(node.segment, -node.weight);
+    }
+
+    private void addWeight(Segment segment, long weight) {
+        switch (segment) {
+            case WINDOW:
+                windowWeight += weight;
+                break;
+            case PROBATION:
+                probationWeight += weight;
+                break;
+            case PROTECTED:
+                protectedWeight += weight;
+                break;
+        }
+    }
+
+    private static <K, V> Node<K, V> first(LinkedHashMap<K, Node<K, V>> segment) {
+        var iterator = segment.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    // endregion
+}
@@ -0,0 +1,215 @@
+package com.github.dbchar.zoombot.cache;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import com.github.dbchar.zoomapi.models.Channel;
+import com.github.dbchar.zoombot.auth.TokenManager;
+import com.github.dbchar.zoombot.jfr.CacheLookupEvent;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.github.dbchar.zoombot.scheduler.RequestScheduler.EndpointClass.*;
+
+/***
+ * Channel name <-> id resolution shared by the bot, the history fetcher and the monitors,
+ * so name-based calls can use the id-based endpoints without listing channels first.
+ * <p>
+ * Kept up to date by channel listings and by the bot's own channel mutations.
+ * A name that cannot be resolved triggers at most one channel listing per MIN_RELOAD_INTERVAL_MILLIS.
+ * Renames and removals are handed to listeners, so what is kept by channel name follows the channel.
+ */
+public class ChannelDirectory {
+    // region Listeners
+
+    public interface OnChannelRenamedListener {
+        void onChannelRenamed(String channelId, String previousName, String channelName);
+    }
+
+    public interface OnChannelRemovedListener {
+        void onChannelRemoved(String channelId, String channelName);
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private static final long MIN_RELOAD_INTERVAL_MILLIS = 5_000;
+    private static final String CACHE_METRIC = "channel_directory";
+
+    private final OAuthZoomClient client;
+    private final Map<String, String> idsByName = new ConcurrentHashMap<>();
+    private final Map<String, String> namesById = new ConcurrentHashMap<>();
+    private volatile List<Channel> channels;
+    private volatile long lastLoadMillis;
+    private final List<OnChannelRenamedListener> onChannelRenamedListeners = new CopyOnWriteArrayList<>();
+    private final List<OnChannelRemovedListener> onChannelRemovedListeners = new CopyOnWriteArrayList<>();
+
+    // endregion
+
+    // region Public Methods
+
+    public ChannelDirectory(OAuthZoomClient client) {
+        this.client = client;
+    }
+
+    /***
+     * Replace the directory with a fresh listing of the user's channels
+     */
+    public synchronized void update(List<Channel> channels) {
+        // channels listed under another name than the known one were renamed, e.g. by another client
+        var renamed = new ArrayList<String[]>();
+        for (var channel : channels) {
+            var previousName = namesById.get(channel.getId());
+            if (previousName != null && !previousName.equals(channel.getName())) {
+                renamed.add(new String[]{channel.getId(), previousName, channel.getName()});
+            }
+        }
+
+        idsByName.clear();
+        namesById.clear();
+        for (var channel : channels) {
+            idsByName.put(channel.getName(), channel.getId());
+            namesById.put(channel.getId(), channel.getName());
+        }
+        this.channels = List.copyOf(channels);
+        lastLoadMillis = System.currentTimeMillis();
+        renamed.forEach(rename -> notifyRenamed(rename[0], rename[1], rename[2]));
+    }
+
+    /***
+     * @return the channels of the last listing, or null if a mutation made them stale
+     */
+    public List<Channel> getChannels() {
+        return channels;
+    }
+
+    /***
+     * @return names of the known channels, sorted; the channels are listed first if none are known yet
+     */
+    public List<String> getChannelNames() {
+        if (idsByName.isEmpty()) {
+            reload();
+        }
+        var names = new ArrayList<>(idsByName.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /***
+     * @return the id of the channel, or null if no channel has this name
+     */
+    public String getId(String channelName) {
+        var event = new CacheLookupEvent();
+        event.begin();
+        var id = idsByName.get(channelName);
+        MetricsRegistry.INSTANCE.recordCacheAccess(CACHE_METRIC, id != null);
+        commitEvent(event, channelName, id != null);
+        if (id == null && reload()) {
+            id = idsByName.get(channelName);
+        }
+        return id;
+    }
+
+    public String getName(String channelId) {
+        var event = new CacheLookupEvent();
+        event.begin();
+        var name = namesById.get(channelId);
+        MetricsRegistry.INSTANCE.recordCacheAccess(CACHE_METRIC, name != null);
+        commitEvent(event, channelId, name != null);
+        if (name == null && reload()) {
+            name = namesById.get(channelId);
+        }
+        return name;
+    }
+
+    public synchronized void put(String channelId, String channelName) {
+        rename(channelId, channelName);
+    }
+
+    /***
+     * @return the previous name, or null if the channel was not known
+     */
+    public synchronized String rename(String channelId, String channelName) {
+        var previousName = namesById.put(channelId, channelName);
+        if (previousName != null) {
+            idsByName.remove(previousName, channelId);
+        }
+        idsByName.put(channelName, channelId);
+        channels = null;
+        if (previousName != null && !previousName.equals(channelName)) {
+            notifyRenamed(channelId, previousName, channelName);
+        }
+        return previousName;
+    }
+
+    /***
+     * @return the name of the removed channel, or null if it was not known
+     */
+    public synchronized String remove(String channelId) {
+        var name = namesById.remove(channelId);
+        channels = null;
+        if (name != null) {
+            idsByName.remove(name, channelId);
+            onChannelRemovedListeners.forEach(listener -> listener.onChannelRemoved(channelId, name));
+        }
+        return name;
+    }
+
+    /***
+     * Listeners are called under the directory's lock, in the order the channels are renamed
+     */
+    public void addOnChannelRenamedListener(OnChannelRenamedListener listener) {
+        onChannelRenamedListeners.add(listener);
+    }
+
+    public void addOnChannelRemovedListener(OnChannelRemovedListener listener) {
+        onChannelRemovedListeners.add(listener);
+    }
+
+    /***
+     * Forget the listing, e.g. after joining a channel whose name is not known yet
+     */
+    public synchronized void invalidate() {
+        channels = null;
+        lastLoadMillis = 0;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private static void commitEvent(CacheLookupEvent event, String key, boolean hit) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.cache = CACHE_METRIC;
+        event.key = key;
+        event.hit = hit;
+        event.commit();
+    }
+
+    private void notifyRenamed(String channelId, String previousName, String channelName) {
+        onChannelRenamedListeners.forEach(listener -> listener.onChannelRenamed(channelId, previousName, channelName));
+    }
+
+    private synchronized boolean reload() {
+        if (System.currentTimeMillis() - lastLoadMillis < MIN_RELOAD_INTERVAL_MILLIS) {
+            return false;
+        }
+        lastLoadMillis = System.currentTimeMillis();
+
+        var result = RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.list", () -> client.getChatChannelsComponent().list(null, false));
+        if (TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+            update(result.getItems());
+            return true;
+        }
+        return false;
+    }
+
+    // endregion
+}
@@ -0,0 +1,89 @@
+package com.github.dbchar.zoombot.cache;
+
+/***
+ * Count-min sketch of recent access frequencies used by {@link BoundedCache} to decide admission.
+ * Each key maps to one counter in each of DEPTH rows; its frequency is the smallest of them.
+ * Counters saturate at MAX_COUNT and are all halved after a sample period, so old popularity fades.
+ * Not thread-safe, guarded by the cache.
+ */
+class FrequencySketch {
+    // region Private Properties
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int samplePeriod;
+    private int additions;
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * @param expectedEntries number of distinct keys the sketch should tell apart
+     */
+    FrequencySketch(int expectedEntries) {
+        var width = Integer.highestOneBit(Math.max(16, expectedEntries - 1) << 1);
+        counters = new byte[DEPTH][width];
+        mask = width - 1;
+        samplePeriod = 10 * width;
+    }
+
+    void increment(Object key) {
+        var hash = spread(key.hashCode());
+        var min = frequency(hash);
+        if (min >= MAX_COUNT) return;
+
+        // conservative update: only raise the counters that hold the minimum
+        for (var row = 0; row < DEPTH; row++) {
+            var index = indexOf(hash, row);
+            if (counters[row][index] == min) {
+                counters[row][index]++;
+            }
+        }
+        if (++additions >= samplePeriod) {
+            age();
+        }
+    }
+
+    int frequency(Object key) {
+        return frequency(spread(key.hashCode()));
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private int frequency(int hash) {
+        var min = MAX_COUNT;
+        for (var row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters[row][indexOf(hash, row)]);
+        }
+        return min;
+    }
+
+    private void age() {
+        for (var row : counters) {
+            for (var i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        var h = hash * SEEDS[row];
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ (hash >>> 16);
+    }
+
+    // endregion
+}
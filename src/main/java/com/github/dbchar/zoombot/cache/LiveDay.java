@@ -0,0 +1,108 @@
+package com.github.dbchar.zoombot.cache;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/***
+ * Cached messages of a day that is not over yet, newest first, with what is needed to sync it by delta:
+ * the newest timestamp the API has returned for it, and when it was last synced in part and in full.
+ * Messages written through by the bot do not move the timestamp, so the next delta still asks the API for
+ * everything after the last sync and replaces them with the API's version.
+ */
+public class LiveDay {
+    // region Private Properties
+
+    private final List<Message> messages;
+    private final long lastTimestamp;
+    private final long syncedAtNanos;
+    private final long fullSyncedAtNanos;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * @return the day as listed in full by the API
+     */
+    public static LiveDay full(List<Message> messages) {
+        var now = System.nanoTime();
+        return new LiveDay(messages, newestTimestamp(messages, Long.MIN_VALUE), now, now);
+    }
+
+    /***
+     * @param newMessages messages the API returned from the last timestamp on
+     * @param messages the day with them, see {@link #merge(List)}, as it should be kept
+     * @return the day synced by the delta
+     */
+    public LiveDay withDelta(List<Message> newMessages, List<Message> messages) {
+        return new LiveDay(messages, newestTimestamp(newMessages, lastTimestamp), System.nanoTime(), fullSyncedAtNanos);
+    }
+
+    /***
+     * @return the messages of the day with the new ones on top, replacing the ones it had with the same ids
+     */
+    public List<Message> merge(List<Message> newMessages) {
+        var ids = new HashSet<String>();
+        newMessages.forEach(message -> ids.add(message.getId()));
+        var merged = new ArrayList<Message>(newMessages.size() + messages.size());
+        merged.addAll(newMessages);
+        for (var message : messages) {
+            if (!ids.contains(message.getId())) merged.add(message);
+        }
+        return merged;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /***
+     * @return the newest timestamp returned by the API, or Long.MIN_VALUE if the day had no message
+     */
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public boolean isSyncedWithin(long millis) {
+        return System.nanoTime() - syncedAtNanos < millis * 1_000_000;
+    }
+
+    public boolean isFullySyncedWithin(long millis) {
+        return System.nanoTime() - fullSyncedAtNanos < millis * 1_000_000;
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * @return this day with other messages, e.g. patched by a write-through, keeping its sync state
+     */
+    LiveDay withMessages(List<Message> messages) {
+        return new LiveDay(messages, lastTimestamp, syncedAtNanos, fullSyncedAtNanos);
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private LiveDay(List<Message> messages, long lastTimestamp, long syncedAtNanos, long fullSyncedAtNanos) {
+        this.messages = messages;
+        this.lastTimestamp = lastTimestamp;
+        this.syncedAtNanos = syncedAtNanos;
+        this.fullSyncedAtNanos = fullSyncedAtNanos;
+    }
+
+    private static long newestTimestamp(List<Message> messages, long initial) {
+        var newest = initial;
+        for (var message : messages) {
+            newest = Math.max(newest, message.getTimestamp());
+        }
+        return newest;
+    }
+
+    // endregion
+}
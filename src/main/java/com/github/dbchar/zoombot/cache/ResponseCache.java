@@ -0,0 +1,441 @@
+package com.github.dbchar.zoombot.cache;
+
+import com.github.dbchar.zoomapi.models.Channel;
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoomapi.models.User;
+import com.github.dbchar.zoombot.arena.OffHeapMessages;
+import com.github.dbchar.zoombot.compress.CompressedMessages;
+import com.github.dbchar.zoombot.jfr.CacheLookupEvent;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.roster.ChannelRoster;
+import com.github.dbchar.zoombot.roster.MemberTable;
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/***
+ * The bot's cache of API responses, used instead of the unbounded zoomapi cache wherever "use cache" is asked for:
+ * the channel list, the roster of a channel and the messages of a channel day.
+ * History is kept in buckets of one channel and one local day: days that are over never change and are served
+ * whether or not the cache was asked for, and today is a {@link LiveDay} the history fetcher syncs by delta.
+ * Entries are bounded in total by their size (JSON size, or the compact size of a roster), expire after a time to live per data type, and are
+ * admitted with W-TinyLFU (see {@link BoundedCache}). Every successful listing refreshes its entry,
+ * channel and member mutations made by the bot invalidate exactly the keys they affect, and messages the bot
+ * sends, updates or deletes are written through to the cached day.
+ */
+public class ResponseCache {
+    // region Public Constants
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    public enum DataType {
+        CHANNELS(60),
+        MEMBERS(60),
+        HISTORY_TODAY(30),
+        // complete days never change, so they are only evicted for space
+        HISTORY_PAST(0);
+
+        private final long defaultTimeToLiveSeconds;
+
+        DataType(long defaultTimeToLiveSeconds) {
+            this.defaultTimeToLiveSeconds = defaultTimeToLiveSeconds;
+        }
+
+        public long getDefaultTimeToLiveSeconds() {
+            return defaultTimeToLiveSeconds;
+        }
+
+        /***
+         * @return key of the time to live in the [Cache] section of bot.ini, e.g. history_today_ttl_seconds;
+         * 0 keeps entries until they are evicted
+         */
+        public String getConfigKey() {
+            return name().toLowerCase() + "_ttl_seconds";
+        }
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private enum Kind {
+        CHANNELS,
+        MEMBERS,
+        HISTORY,
+        LIVE_DAY
+    }
+
+    private static final class Key {
+        final Kind kind;
+        final String id;
+        final String day;
+
+        Key(Kind kind, String id, String day) {
+            this.kind = kind;
+            this.id = id;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            var key = (Key) other;
+            return kind == key.kind && id.equals(key.id) && Objects.equals(day, key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, id, day);
+        }
+
+        @Override
+        public String toString() {
+            return day == null ? kind + "/" + id : kind + "/" + id + "/" + day;
+        }
+    }
+
+    private static final Key CHANNELS_KEY = new Key(Kind.CHANNELS, "", null);
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+    private static final long NO_EXPIRY_MILLIS = TimeUnit.DAYS.toMillis(365L * 100);
+    // a live day is kept for its next delta sync past its time to live, until it is over and fetched as complete
+    private static final long LIVE_DAY_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // JSON field names, quotes and separators of a message, and its timestamp
+    private static final long MESSAGE_JSON_OVERHEAD_BYTES = 80;
+    // field names, quotes and separators of a channel and its type
+    private static final long CHANNEL_JSON_OVERHEAD_BYTES = 40;
+    // field names, quotes and separators of a user, its type and the fields the bot does not read
+    private static final long USER_JSON_OVERHEAD_BYTES = 120;
+    private static final Gson GSON = new Gson();
+
+    private final BoundedCache<Key, Object> cache;
+    private final Map<DataType, Long> timeToLiveMillis = new EnumMap<>(DataType.class);
+    private volatile BiFunction<String, List<Message>, List<Message>> messageKeeper = (channelName, messages) -> messages;
+
+    // endregion
+
+    // region Public Methods
+
+    public ResponseCache(long maxBytes) {
+        cache = new BoundedCache<>(maxBytes, (key, value) -> ENTRY_OVERHEAD_BYTES + weigh(value));
+        for (var type : DataType.values()) {
+            timeToLiveMillis.put(type, type.getDefaultTimeToLiveSeconds() * 1000);
+        }
+    }
+
+    public synchronized void setTimeToLive(DataType type, long seconds) {
+        timeToLiveMillis.put(type, seconds * 1000);
+    }
+
+    /***
+     * How a day patched by a write-through is kept: by the history fetcher, which copies it back into the message
+     * arena or compresses it like the fetched day it replaces
+     */
+    public void setMessageKeeper(BiFunction<String, List<Message>, List<Message>> messageKeeper) {
+        this.messageKeeper = messageKeeper;
+    }
+
+    // endregion
+
+    // region Public Methods (Channels)
+
+    /***
+     * @return the cached channel list, or null
+     */
+    @SuppressWarnings("unchecked")
+    public List<Channel> getChannels() {
+        return (List<Channel>) get(CHANNELS_KEY);
+    }
+
+    public void putChannels(List<Channel> channels) {
+        put(CHANNELS_KEY, DataType.CHANNELS, channels);
+    }
+
+    /***
+     * Forget the channel list, e.g. after creating, renaming, joining or leaving a channel
+     */
+    public void invalidateChannels() {
+        cache.invalidate(CHANNELS_KEY);
+    }
+
+    // endregion
+
+    // region Public Methods (Members)
+
+    public ChannelRoster getMembers(String channelId) {
+        return (ChannelRoster) get(new Key(Kind.MEMBERS, channelId, null));
+    }
+
+    public void putMembers(ChannelRoster roster) {
+        put(new Key(Kind.MEMBERS, roster.getChannelId(), null), DataType.MEMBERS, roster);
+    }
+
+    /***
+     * Forget the roster of a channel, also as the latest one in the member table
+     */
+    public void invalidateMembers(String channelId) {
+        cache.invalidate(new Key(Kind.MEMBERS, channelId, null));
+        MemberTable.INSTANCE.removeRoster(channelId);
+    }
+
+    // endregion
+
+    // region Public Methods (History)
+
+    /***
+     * @return the cached messages of a day before today, or null
+     */
+    @SuppressWarnings("unchecked")
+    public List<Message> getPastDay(String channelName, String day) {
+        return (List<Message>) get(historyKey(channelName, day));
+    }
+
+    /***
+     * Keep a day fetched after it was over; it replaces the live day it was
+     */
+    public void putPastDay(String channelName, String day, List<Message> messages) {
+        put(historyKey(channelName, day), DataType.HISTORY_PAST, messages);
+        cache.invalidate(liveDayKey(channelName, day));
+    }
+
+    /***
+     * @return the cached state of today (or a later day), however long ago it was synced, or null
+     */
+    public LiveDay getLiveDay(String channelName, String day) {
+        return (LiveDay) get(liveDayKey(channelName, day));
+    }
+
+    public void putLiveDay(String channelName, String day, LiveDay liveDay) {
+        if (liveDay == null) return;
+        cache.put(liveDayKey(channelName, day), liveDay, LIVE_DAY_RETENTION_MILLIS);
+    }
+
+    /***
+     * @return whether a live day was synced recently enough to be listed from the cache
+     */
+    public boolean isFresh(LiveDay liveDay) {
+        return liveDay.isSyncedWithin(getTimeToLive(DataType.HISTORY_TODAY));
+    }
+
+    /***
+     * Forget every cached day of the channel, e.g. after it was renamed or deleted
+     */
+    public void invalidateHistory(String channelName) {
+        cache.invalidateIf(key -> (key.kind == Kind.HISTORY || key.kind == Kind.LIVE_DAY) && key.id.equals(channelName));
+    }
+
+    public void invalidateHistory(String channelName, String day) {
+        cache.invalidate(historyKey(channelName, day));
+        cache.invalidate(liveDayKey(channelName, day));
+    }
+
+    /***
+     * Write-through of a message the bot has sent: add it to the cached day, where messages are newest first
+     * @return whether the day was cached
+     */
+    public boolean addToHistory(String channelName, String day, Message message) {
+        return patchHistory(channelName, day, messages -> {
+            messages.removeIf(cached -> message.getId().equals(cached.getId()));
+            messages.add(0, message);
+        });
+    }
+
+    /***
+     * Write-through of a message the bot has updated: replace the cached message with the same id
+     * @return whether the day was cached
+     */
+    public boolean replaceInHistory(String channelName, String day, Message message) {
+        return patchHistory(channelName, day, messages -> messages.replaceAll(cached ->
+                message.getId().equals(cached.getId()) ? message : cached));
+    }
+
+    /***
+     * Write-through of a message the bot has deleted
+     * @return whether the day was cached
+     */
+    public boolean removeFromHistory(String channelName, String day, String messageId) {
+        return patchHistory(channelName, day, messages -> messages.removeIf(cached -> messageId.equals(cached.getId())));
+    }
+
+    /***
+     * Forget the channel list and the history cached under the old name of a renamed channel.
+     * The message index and the compressor dictionaries are moved to the new name by the rename in the
+     * {@link ChannelDirectory} this is called with.
+     */
+    public void invalidateRenamedChannel(String previousName) {
+        invalidateChannels();
+        if (previousName != null) {
+            invalidateHistory(previousName);
+        }
+    }
+
+    /***
+     * Forget everything cached about a channel that was deleted or left
+     */
+    public void invalidateChannel(String channelId, String channelName) {
+        invalidateChannels();
+        invalidateMembers(channelId);
+        if (channelName != null) {
+            invalidateHistory(channelName);
+        }
+    }
+
+    // endregion
+
+    // region Public Methods (Statistics)
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getWeight() {
+        return cache.getWeight();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private static long weigh(Object value) {
+        if (value instanceof ChannelRoster) {
+            return ((ChannelRoster) value).getSizeInBytes();
+        } else if (value instanceof OffHeapMessages) {
+            return ((OffHeapMessages) value).getOffHeapBytes();
+        } else if (value instanceof CompressedMessages) {
+            return ((CompressedMessages) value).getSizeInBytes();
+        } else if (value instanceof LiveDay) {
+            return weigh(((LiveDay) value).getMessages());
+        } else if (value instanceof List && !((List<?>) value).isEmpty()) {
+            var list = (List<?>) value;
+            var first = list.get(0);
+            if (first instanceof Message) {
+                return weighMessages(list);
+            } else if (first instanceof Channel) {
+                return weighChannels(list);
+            } else if (first instanceof User) {
+                return weighUsers(list);
+            }
+        }
+        return GSON.toJson(value).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /***
+     * Approximate JSON size of a channel list, from the fields of each channel instead of serializing it on every put
+     */
+    private static long weighChannels(List<?> channels) {
+        var bytes = 0L;
+        for (var item : channels) {
+            var channel = (Channel) item;
+            bytes += CHANNEL_JSON_OVERHEAD_BYTES + length(channel.getId()) + length(channel.getName());
+        }
+        return bytes;
+    }
+
+    /***
+     * Approximate JSON size of a user list, e.g. contacts, from the fields of each user
+     */
+    private static long weighUsers(List<?> users) {
+        var bytes = 0L;
+        for (var item : users) {
+            var user = (User) item;
+            bytes += USER_JSON_OVERHEAD_BYTES + length(user.getId()) + length(user.getName())
+                    + length(user.getEmail()) + length(user.getRole());
+        }
+        return bytes;
+    }
+
+    /***
+     * Approximate JSON size of a day of messages, from their getters: the day may hold off-heap or compressed views,
+     * which Gson would serialize as empty objects
+     */
+    private static long weighMessages(List<?> messages) {
+        var bytes = 0L;
+        for (var item : messages) {
+            var message = (Message) item;
+            bytes += MESSAGE_JSON_OVERHEAD_BYTES + length(message.getId()) + length(message.getSender())
+                    + length(message.getLocalDateTime()) + length(message.getMessage());
+        }
+        return bytes;
+    }
+
+    private static long length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static Key historyKey(String channelName, String day) {
+        return new Key(Kind.HISTORY, channelName, day);
+    }
+
+    private static Key liveDayKey(String channelName, String day) {
+        return new Key(Kind.LIVE_DAY, channelName, day);
+    }
+
+    /***
+     * Edit a copy of a cached day, past or live; the entry keeps its expiry and a live day its sync state,
+     * so the next delta still brings the API's version of what was patched.
+     * The copy is kept like the day it replaces, so an off-heap or compressed day stays so.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean patchHistory(String channelName, String day, Consumer<List<Message>> edit) {
+        var keeper = messageKeeper;
+        UnaryOperator<Object> remapping = value -> {
+            var liveDay = value instanceof LiveDay ? (LiveDay) value : null;
+            var messages = new ArrayList<>(liveDay != null ? liveDay.getMessages() : (List<Message>) value);
+            edit.accept(messages);
+            var kept = immutable(keeper.apply(channelName, messages));
+            return liveDay != null ? liveDay.withMessages(kept) : kept;
+        };
+        var patchedPast = cache.computeIfPresent(historyKey(channelName, day), remapping) != null;
+        var patchedLive = cache.computeIfPresent(liveDayKey(channelName, day), remapping) != null;
+        return patchedPast || patchedLive;
+    }
+
+    private synchronized long getTimeToLive(DataType type) {
+        var timeToLive = timeToLiveMillis.get(type);
+        return timeToLive > 0 ? timeToLive : NO_EXPIRY_MILLIS;
+    }
+
+    private Object get(Key key) {
+        var event = new CacheLookupEvent();
+        event.begin();
+        var value = cache.get(key);
+        var metricName = "response_cache." + key.kind.name().toLowerCase();
+        MetricsRegistry.INSTANCE.recordCacheAccess(metricName, value != null);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cache = metricName;
+            event.key = key.toString();
+            event.hit = value != null;
+            event.commit();
+        }
+        return value;
+    }
+
+    private void put(Key key, DataType type, Object value) {
+        if (value == null) return;
+        var timeToLive = getTimeToLive(type);
+        cache.put(key, value instanceof List ? immutable((List<?>) value) : value, timeToLive);
+    }
+
+    /***
+     * Off-heap and compressed days are immutable already; copying them would materialize a view per message
+     */
+    private static <T> List<T> immutable(List<T> list) {
+        return list instanceof OffHeapMessages || list instanceof CompressedMessages ? list : List.copyOf(list);
+    }
+
+    // endregion
+}
@@ -0,0 +1,55 @@
+package com.github.dbchar.zoombot.compress;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+/***
+ * Flyweight view of a message in {@link CompressedMessages}: the text is inflated on every {@code getMessage()},
+ * the other fields are read as they are. Like the off-heap views, the Message fields themselves stay empty,
+ * so a view must not be serialized with Gson.
+ */
+class CompressedMessage extends Message {
+    // region Private Properties
+
+    private final transient CompressedMessages day;
+    private final transient int index;
+
+    // endregion
+
+    // region Public Methods
+
+    @Override
+    public String getId() {
+        return day.getId(index);
+    }
+
+    @Override
+    public String getSender() {
+        return day.getSender(index);
+    }
+
+    @Override
+    public String getLocalDateTime() {
+        return day.getDateTime(index);
+    }
+
+    @Override
+    public String getMessage() {
+        return day.getText(index);
+    }
+
+    @Override
+    public long getTimestamp() {
+        return day.getTimestamp(index);
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    CompressedMessage(CompressedMessages day, int index) {
+        this.day = day;
+        this.index = index;
+    }
+
+    // endregion
+}
@@ -0,0 +1,121 @@
+package com.github.dbchar.zoombot.compress;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/***
+ * Immutable day of messages whose texts are compressed with the dictionary their channel had at the time.
+ * Elements are flyweight views created on access.
+ */
+public class CompressedMessages extends AbstractList<Message> implements RandomAccess {
+    // region Private Properties
+
+    // array slots, the text array and the id and date time String objects of one message, without their characters
+    private static final long MESSAGE_OVERHEAD_BYTES = 120;
+
+    private final TextDictionary dictionary;
+    private final String[] ids;
+    private final String[] senders;
+    private final String[] dateTimes;
+    private final long[] timestamps;
+    private final byte[][] texts;
+    private final int[] textLengths;
+    private final long sizeInBytes;
+    private final long textBytes;
+
+    // endregion
+
+    // region Public Methods
+
+    @Override
+    public Message get(int index) {
+        return new CompressedMessage(this, index);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /***
+     * @return estimated heap size of the day, texts compressed
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /***
+     * @return size of the texts as UTF-8 before compression
+     */
+    public long getTextBytes() {
+        return textBytes;
+    }
+
+    /***
+     * @return size of the texts as stored
+     */
+    public long getCompressedTextBytes() {
+        var bytes = 0L;
+        for (var text : texts) {
+            if (text != null) bytes += text.length;
+        }
+        return bytes;
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    CompressedMessages(TextDictionary dictionary, String[] ids, String[] senders, String[] dateTimes,
+                       long[] timestamps, byte[][] texts, int[] textLengths) {
+        this.dictionary = dictionary;
+        this.ids = ids;
+        this.senders = senders;
+        this.dateTimes = dateTimes;
+        this.timestamps = timestamps;
+        this.texts = texts;
+        this.textLengths = textLengths;
+
+        var size = 0L;
+        var raw = 0L;
+        for (var i = 0; i < ids.length; i++) {
+            size += MESSAGE_OVERHEAD_BYTES + length(ids[i]) + length(dateTimes[i])
+                    + (texts[i] == null ? 0 : texts[i].length);
+            raw += Math.max(0, textLengths[i]);
+        }
+        this.sizeInBytes = size;
+        this.textBytes = raw;
+    }
+
+    String getId(int index) {
+        return ids[index];
+    }
+
+    String getSender(int index) {
+        return senders[index];
+    }
+
+    String getDateTime(int index) {
+        return dateTimes[index];
+    }
+
+    long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    String getText(int index) {
+        return MessageCompressor.inflate(texts[index], textLengths[index], dictionary);
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    // endregion
+}
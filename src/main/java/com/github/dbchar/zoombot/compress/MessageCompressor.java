@@ -0,0 +1,208 @@
+package com.github.dbchar.zoombot.compress;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/***
+ * Compressed in-memory tier for the text of cached and indexed history days.
+ * Each channel gets a preset Deflate dictionary trained on its first TRAINING_MESSAGES messages, so the
+ * notifications, standard replies and URLs it repeats compress to a few bytes; until then its days are
+ * compressed without one.
+ * <p>
+ * Days are read back through flyweight Message views, which inflate the text on every {@code getMessage()}.
+ */
+public class MessageCompressor {
+    // region Public Constants
+
+    public static final int DEFAULT_DICTIONARY_KILOBYTES = 16;
+    public static final int TRAINING_MESSAGES = 500;
+
+    // endregion
+
+    // region Private Properties
+
+    private static final ThreadLocal<Deflater> DEFLATERS =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    private final int dictionaryBytes;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * @param dictionaryBytes size of the dictionary of each channel, 0 to compress without dictionaries
+     */
+    public MessageCompressor(int dictionaryBytes) {
+        this.dictionaryBytes = Math.min(dictionaryBytes, TextDictionary.MAX_BYTES);
+    }
+
+    /***
+     * @return an immutable compressed copy of a day of the channel
+     */
+    public List<Message> compress(String channelName, List<Message> messages) {
+        if (messages instanceof CompressedMessages || messages.isEmpty()) return messages;
+
+        var channel = channels.computeIfAbsent(channelName, key -> new Channel());
+        var dictionary = channel.train(messages, dictionaryBytes);
+        var senders = new HashMap<String, String>();
+
+        var size = messages.size();
+        var ids = new String[size];
+        var senderNames = new String[size];
+        var dateTimes = new String[size];
+        var timestamps = new long[size];
+        var texts = new byte[size][];
+        var textLengths = new int[size];
+        for (var i = 0; i < size; i++) {
+            var message = messages.get(i);
+            ids[i] = message.getId();
+            // a day has a handful of senders, so their names are shared within it
+            senderNames[i] = message.getSender() == null ? null
+                    : senders.computeIfAbsent(message.getSender(), sender -> sender);
+            dateTimes[i] = message.getLocalDateTime();
+            timestamps[i] = message.getTimestamp();
+
+            var text = message.getMessage();
+            if (text == null) {
+                textLengths[i] = -1;
+            } else {
+                var utf8 = text.getBytes(StandardCharsets.UTF_8);
+                textLengths[i] = utf8.length;
+                texts[i] = deflate(utf8, dictionary);
+            }
+        }
+        return new CompressedMessages(dictionary, ids, senderNames, dateTimes, timestamps, texts, textLengths);
+    }
+
+    /***
+     * Keep the dictionary of a renamed channel under its new name, unless the new name has one already.
+     * Compressed days hold on to the dictionary they were compressed with, so they read back either way.
+     */
+    public void renameChannel(String previousName, String channelName) {
+        if (previousName.equals(channelName)) return;
+        var channel = channels.remove(previousName);
+        if (channel != null) {
+            channels.putIfAbsent(channelName, channel);
+        }
+    }
+
+    /***
+     * Drop the dictionary of a channel, e.g. one that was deleted or left
+     */
+    public void removeChannel(String channelName) {
+        channels.remove(channelName);
+    }
+
+    /***
+     * @return size of the dictionary of the channel, or 0 while it is still being trained
+     */
+    public int getDictionarySize(String channelName) {
+        var channel = channels.get(channelName);
+        var dictionary = channel == null ? null : channel.dictionary;
+        return dictionary == null ? 0 : dictionary.getBytes().length;
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * @param length length of the UTF-8 text; a stored array shorter than that is compressed
+     */
+    static String inflate(byte[] stored, int length, TextDictionary dictionary) {
+        if (length < 0) return null;
+        if (stored.length == length) return new String(stored, StandardCharsets.UTF_8);
+
+        var inflater = INFLATERS.get();
+        inflater.reset();
+        if (dictionary != null) {
+            inflater.setDictionary(dictionary.getBytes());
+        }
+        inflater.setInput(stored);
+        var text = new byte[length];
+        try {
+            var read = 0;
+            while (read < length && !inflater.finished()) {
+                var count = inflater.inflate(text, read, length - read);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                read += count;
+            }
+            if (read < length) {
+                throw new IllegalStateException("Compressed message text is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed message text is corrupt", e);
+        }
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    /***
+     * @return the compressed text, or the text itself if compressing does not make it shorter
+     */
+    private static byte[] deflate(byte[] text, TextDictionary dictionary) {
+        var deflater = DEFLATERS.get();
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary.getBytes());
+        }
+        deflater.setInput(text);
+        deflater.finish();
+
+        var buffer = BUFFERS.get();
+        var size = 0;
+        while (!deflater.finished()) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                BUFFERS.set(buffer);
+            }
+            size += deflater.deflate(buffer, size, buffer.length - size);
+            // no point going on once the result would not be shorter
+            if (size >= text.length) return text;
+        }
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /***
+     * Dictionary of a channel, trained once enough of its messages were seen
+     */
+    private static class Channel {
+        private volatile TextDictionary dictionary;
+        private List<String> samples = new ArrayList<>();
+
+        TextDictionary train(List<Message> messages, int dictionaryBytes) {
+            if (dictionary != null || dictionaryBytes <= 0) return dictionary;
+
+            synchronized (this) {
+                if (dictionary != null) return dictionary;
+                for (var message : messages) {
+                    if (message.getMessage() != null) samples.add(message.getMessage());
+                }
+                if (samples.size() < TRAINING_MESSAGES) return null;
+
+                dictionary = TextDictionary.train(samples, dictionaryBytes);
+                samples = null;
+                return dictionary;
+            }
+        }
+    }
+
+    // endregion
+}
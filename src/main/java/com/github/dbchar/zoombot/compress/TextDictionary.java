@@ -0,0 +1,89 @@
+package com.github.dbchar.zoombot.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Preset dictionary of one channel for Deflate, built from sample texts of the channel.
+ * <p>
+ * Whole texts that repeat (bot notifications, standard replies) and long words that repeat (URLs, names)
+ * are scored by count times length, and the best ones are concatenated up to the dictionary size.
+ * The most valuable strings go last, where they are closest to the compressed text and cost the shortest
+ * back-references.
+ */
+class TextDictionary {
+    // region Package Constants
+
+    // Deflate only looks back 32 KB, so a larger dictionary would be partly out of reach
+    static final int MAX_BYTES = 32 * 1024;
+
+    // endregion
+
+    // region Private Properties
+
+    private static final int MIN_WORD_LENGTH = 6;
+
+    private final byte[] bytes;
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * @param maxBytes size limit of the dictionary, at most MAX_BYTES
+     */
+    static TextDictionary train(List<String> samples, int maxBytes) {
+        var counts = new HashMap<String, Integer>();
+        for (var text : samples) {
+            counts.merge(text, 1, Integer::sum);
+            for (var word : text.split("\\s+")) {
+                if (word.length() >= MIN_WORD_LENGTH && !word.equals(text)) {
+                    counts.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+
+        // only strings seen at least twice are worth a place
+        var candidates = new ArrayList<Map.Entry<String, Integer>>();
+        for (var entry : counts.entrySet()) {
+            if (entry.getValue() > 1) candidates.add(entry);
+        }
+        candidates.sort(Comparator.comparingLong((Map.Entry<String, Integer> entry) ->
+                (long) entry.getValue() * entry.getKey().length()).reversed());
+
+        var limit = Math.min(maxBytes, MAX_BYTES);
+        var chosen = new ArrayList<byte[]>();
+        var size = 0;
+        for (var entry : candidates) {
+            var utf8 = (entry.getKey() + "\n").getBytes(StandardCharsets.UTF_8);
+            if (size + utf8.length > limit) continue;
+            chosen.add(utf8);
+            size += utf8.length;
+        }
+
+        var out = new ByteArrayOutputStream(size);
+        for (var i = chosen.size() - 1; i >= 0; i--) {
+            out.writeBytes(chosen.get(i));
+        }
+        return new TextDictionary(out.toByteArray());
+    }
+
+    byte[] getBytes() {
+        return bytes;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private TextDictionary(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    // endregion
+}
@@ -0,0 +1,68 @@
+package com.github.dbchar.zoombot.history;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import com.github.dbchar.zoomapi.components.queries.PageConfiguration;
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoomapi.utils.ListResult;
+import com.github.dbchar.zoombot.auth.TokenManager;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler.EndpointClass;
+
+import java.util.function.Supplier;
+
+/***
+ * Lists messages through the zoomapi client, rate limited by the {@link RequestScheduler}
+ * and retried once after an expired token.
+ */
+class ClientMessageSource implements MessageSource {
+    // region Private Properties
+
+    private final OAuthZoomClient client;
+
+    // endregion
+
+    // region Public Methods
+
+    @Override
+    public MessagePage list(String userId, String channelId, String day, String pageToken) {
+        return toPage(withRetry("chat_messages.list", () -> client.getChatMessagesComponent().list(
+                userId, null, channelId, day, new PageConfiguration(PageConfiguration.MAX_PAGE_SIZE, pageToken))));
+    }
+
+    @Override
+    public MessagePage history(String channelName, String day) {
+        return toPage(withRetry("chat.history", () -> client.getChatComponent().history(channelName, day, day, false)));
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    ClientMessageSource(OAuthZoomClient client) {
+        this.client = client;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private static MessagePage toPage(ListResult<Message> result) {
+        return result.isSuccess()
+                ? MessagePage.success(result.getItems(), result.getNextPageToken())
+                : MessagePage.failure(result.getErrorMessage());
+    }
+
+    private ListResult<Message> withRetry(String operation, Supplier<ListResult<Message>> request) {
+        // First attempt, refreshing the token if it has expired
+        var result = RequestScheduler.INSTANCE.call(EndpointClass.MESSAGES_READ, operation, request);
+        if (!TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+            // Second attempt
+            MetricsRegistry.INSTANCE.apiTimer(operation).retry();
+            result = RequestScheduler.INSTANCE.call(EndpointClass.MESSAGES_READ, operation, request);
+        }
+        return result;
+    }
+
+    // endregion
+}
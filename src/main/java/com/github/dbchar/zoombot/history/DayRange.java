@@ -0,0 +1,45 @@
+package com.github.dbchar.zoombot.history;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.dbchar.zoomapi.utils.DateUtil.DATE_FORMAT;
+
+/***
+ * Splits a from/to query range (inclusive, local dates in DATE_FORMAT) into day buckets.
+ */
+public class DayRange {
+    public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT);
+
+    public static LocalDate parse(String date) {
+        return LocalDate.parse(date, FORMATTER);
+    }
+
+    public static String format(LocalDate date) {
+        return FORMATTER.format(date);
+    }
+
+    /***
+     * @return the local day of a message timestamp
+     */
+    public static String format(long epochMillis) {
+        return format(Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate());
+    }
+
+    public static String today() {
+        return format(LocalDate.now());
+    }
+
+    public static List<String> split(String fromDate, String toDate) {
+        var days = new ArrayList<String>();
+        var to = parse(toDate);
+        for (var day = parse(fromDate); !day.isAfter(to); day = day.plusDays(1)) {
+            days.add(format(day));
+        }
+        return days;
+    }
+}
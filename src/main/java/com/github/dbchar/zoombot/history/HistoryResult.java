@@ -0,0 +1,54 @@
+package com.github.dbchar.zoombot.history;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoomapi.utils.ListResult;
+
+import java.util.List;
+
+/***
+ * Same shape as {@link ListResult} of messages, for histories assembled by the bot
+ * (merged day buckets, local indexes, caches) rather than returned by a single API call.
+ */
+public class HistoryResult {
+    // region Private Properties
+
+    private final List<Message> items;
+    private final String errorMessage;
+
+    // endregion
+
+    // region Public Methods
+
+    private HistoryResult(List<Message> items, String errorMessage) {
+        this.items = items;
+        this.errorMessage = errorMessage;
+    }
+
+    public static HistoryResult success(List<Message> items) {
+        return new HistoryResult(items, null);
+    }
+
+    public static HistoryResult failure(String errorMessage) {
+        return new HistoryResult(List.of(), errorMessage);
+    }
+
+    public static HistoryResult of(ListResult<Message> result) {
+        return result.isSuccess()
+                ? success(result.getItems())
+                : failure(result.getErrorMessage());
+    }
+
+    public boolean isSuccess() {
+        return errorMessage == null;
+    }
+
+    public List<Message> getItems() {
+        return items;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    // endregion
+}
@@ -0,0 +1,39 @@
+package com.github.dbchar.zoombot.history;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/***
+ * Builds the messages the bot writes itself, so they can be put into the cached history and the index
+ * right away instead of listing the channel again.
+ * Messages are made through their JSON form, with the same field names as in API responses.
+ */
+public class LocalMessages {
+    private static final Gson GSON = new Gson();
+
+    /***
+     * @param id id returned by the send call
+     * @param timestamp local time of the send, in epoch milliseconds
+     */
+    public static Message sent(String id, String text, String sender, long timestamp) {
+        var json = new JsonObject();
+        json.addProperty("id", id);
+        json.addProperty("message", text);
+        json.addProperty("sender", sender);
+        json.addProperty("date_time", Instant.ofEpochMilli(timestamp).truncatedTo(ChronoUnit.SECONDS).toString());
+        json.addProperty("timestamp", timestamp);
+        return GSON.fromJson(json, Message.class);
+    }
+
+    /***
+     * @return a copy of the message with a new text
+     */
+    public static Message withText(Message message, String text) {
+        // built from the getters, as the message may be an off-heap view
+        return sent(message.getId(), text, message.getSender(), message.getTimestamp());
+    }
+}
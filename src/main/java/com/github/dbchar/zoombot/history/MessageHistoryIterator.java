@@ -0,0 +1,118 @@
+package com.github.dbchar.zoombot.history;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/***
+ * Lazily walks the history of an arbitrary from/to range one page at a time, following the next-page tokens
+ * of each day before moving on to the next day.
+ * The next page is requested as soon as the current one arrives, so it loads while the current one is consumed;
+ * only these two pages are held in memory, so memory use does not depend on the length of the range.
+ * Iteration stops at the first failed page; see {@link #getErrorMessage()}.
+ */
+public class MessageHistoryIterator implements Iterator<Message> {
+    // region Private Properties
+
+    private final BiFunction<String, String, Future<MessagePage>> pageLoader;
+    private final LocalDate lastDay;
+    private LocalDate prefetchedDay;
+    private Future<MessagePage> prefetched;
+    private Iterator<Message> page = Collections.emptyIterator();
+    private String errorMessage;
+    private int pageCount;
+    private int dayCount;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * @param pageLoader starts loading the page of a day (DATE_FORMAT) with a page token, null for its first page,
+     *                   and returns its future
+     */
+    public MessageHistoryIterator(String fromDate, String toDate, BiFunction<String, String, Future<MessagePage>> pageLoader) {
+        this.pageLoader = pageLoader;
+        this.lastDay = DayRange.parse(toDate);
+        prefetchDay(DayRange.parse(fromDate));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (prefetched == null || errorMessage != null) {
+                return false;
+            }
+
+            var result = ParallelHistoryFetcher.awaitPage(prefetched);
+            if (!result.isSuccess()) {
+                prefetched = null;
+                errorMessage = result.getErrorMessage();
+                return false;
+            }
+            pageCount++;
+            if (result.getNextPageToken() != null) {
+                prefetched = pageLoader.apply(DayRange.format(prefetchedDay), result.getNextPageToken());
+            } else {
+                dayCount++;
+                prefetchDay(prefetchedDay.plusDays(1));
+            }
+            page = result.getMessages().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Message next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    public Stream<Message> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /***
+     * Cancel the prefetched page, if any
+     */
+    public void close() {
+        if (prefetched != null) {
+            prefetched.cancel(true);
+            prefetched = null;
+        }
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /***
+     * @return number of days listed to their last page
+     */
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private void prefetchDay(LocalDate day) {
+        prefetchedDay = day;
+        prefetched = day.isAfter(lastDay) ? null : pageLoader.apply(DayRange.format(day), null);
+    }
+
+    // endregion
+}
@@ -0,0 +1,60 @@
+package com.github.dbchar.zoombot.history;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.util.List;
+
+/***
+ * One page of the messages of a channel day, newest first, or the error that ended the listing.
+ */
+public class MessagePage {
+    // region Private Properties
+
+    private final List<Message> messages;
+    private final String nextPageToken;
+    private final String errorMessage;
+
+    // endregion
+
+    // region Public Methods
+
+    public static MessagePage success(List<Message> messages, String nextPageToken) {
+        return new MessagePage(messages == null ? List.of() : messages,
+                nextPageToken == null || nextPageToken.isEmpty() ? null : nextPageToken, null);
+    }
+
+    public static MessagePage failure(String errorMessage) {
+        return new MessagePage(List.of(), null, String.valueOf(errorMessage));
+    }
+
+    public boolean isSuccess() {
+        return errorMessage == null;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /***
+     * @return token of the next page, or null on the last page
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private MessagePage(List<Message> messages, String nextPageToken, String errorMessage) {
+        this.messages = messages;
+        this.nextPageToken = nextPageToken;
+        this.errorMessage = errorMessage;
+    }
+
+    // endregion
+}
@@ -0,0 +1,18 @@
+package com.github.dbchar.zoombot.history;
+
+/***
+ * Where the {@link ParallelHistoryFetcher} lists messages from: the Zoom API through the client in the bot,
+ * or any other transport, e.g. a fake server in benchmarks.
+ */
+public interface MessageSource {
+    /***
+     * List one page of the messages of a channel on a day, by channel id
+     * @param pageToken token of the page, null for the first one
+     */
+    MessagePage list(String userId, String channelId, String day, String pageToken);
+
+    /***
+     * List the messages of a channel on a day in one call, by channel name
+     */
+    MessagePage history(String channelName, String day);
+}
@@ -0,0 +1,551 @@
+package com.github.dbchar.zoombot.history;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.arena.MessageArena;
+import com.github.dbchar.zoombot.cache.ChannelDirectory;
+import com.github.dbchar.zoombot.cache.LiveDay;
+import com.github.dbchar.zoombot.cache.ResponseCache;
+import com.github.dbchar.zoombot.compress.MessageCompressor;
+import com.github.dbchar.zoombot.jfr.CacheLookupEvent;
+import com.github.dbchar.zoombot.jfr.HistoryFetchEvent;
+import com.github.dbchar.zoombot.jfr.ListenerDispatchEvent;
+import com.github.dbchar.zoombot.jfr.Payload;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+import com.github.dbchar.zoombot.store.MessageStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/***
+ * Fetches the message history of a from/to range as one request per day,
+ * running the days concurrently on a bounded executor and merging them back in time order, oldest first.
+ * <p>
+ * Days that are over are served from the store or the response cache whenever they are there, as they never change.
+ * Today is kept in the response cache as a {@link LiveDay} and synced by delta: only the messages from its newest
+ * timestamp on are listed, and the day is listed in full every FULL_SYNC_SECONDS to pick up edits and deletions.
+ * Edits and deletions of older days are only picked up by {@link #refetch}, which lists the days from the API again.
+ */
+public class ParallelHistoryFetcher {
+    // region Public Constants
+
+    public static final int DEFAULT_PARALLELISM = 5;
+    public static final long DEFAULT_FULL_SYNC_SECONDS = 60;
+
+    // endregion
+
+    // region Listeners
+
+    public interface OnDayFetchedListener {
+        void onDayFetched(String channelName, String day, List<Message> messages);
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private static final String CACHE_METRIC = "history_store";
+    // stable, so messages sent in the same millisecond keep the order the API listed them in
+    private static final Comparator<Message> OLDEST_FIRST = Comparator.comparingLong(Message::getTimestamp);
+
+    /***
+     * Where a day may come from: a fresh cached today, a synced today, or the API for every day
+     */
+    private enum Policy {
+        USE_CACHE, SYNC, REFETCH
+    }
+
+    private final MessageSource messageSource;
+    private final ExecutorService executor;
+    private final List<OnDayFetchedListener> onDayFetchedListeners = new CopyOnWriteArrayList<>();
+    private volatile MessageStore messageStore;
+    private volatile ResponseCache responseCache;
+    private volatile MessageArena messageArena;
+    private volatile MessageCompressor messageCompressor;
+    private volatile ChannelDirectory channelDirectory;
+    private volatile String userId;
+    private volatile long fullSyncMillis = DEFAULT_FULL_SYNC_SECONDS * 1000;
+
+    // endregion
+
+    // region Public Methods
+
+    public ParallelHistoryFetcher(OAuthZoomClient client, int parallelism) {
+        this(new ClientMessageSource(client), parallelism);
+    }
+
+    /***
+     * @param messageSource where days are listed from when they are not stored or cached
+     */
+    public ParallelHistoryFetcher(MessageSource messageSource, int parallelism) {
+        this.messageSource = messageSource;
+
+        var threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            var thread = new Thread(runnable, "history-fetcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public HistoryResult history(String channelName, String fromDate, String toDate) {
+        return history(channelName, fromDate, toDate, false);
+    }
+
+    public HistoryResult history(String channelName, String fromDate, String toDate, boolean useCache) {
+        return history(channelName, DayRange.split(fromDate, toDate), useCache);
+    }
+
+    /***
+     * Fetch the given days (ascending, DATE_FORMAT) concurrently
+     */
+    public HistoryResult history(String channelName, List<String> days, boolean useCache) {
+        return history(channelName, days, useCache ? Policy.USE_CACHE : Policy.SYNC);
+    }
+
+    /***
+     * List the days of the range from the API again, skipping the store and the cache, and replace what they hold,
+     * so edits and deletions of messages of past days are seen
+     */
+    public HistoryResult refetch(String channelName, String fromDate, String toDate) {
+        return history(channelName, DayRange.split(fromDate, toDate), Policy.REFETCH);
+    }
+
+    public HistoryResult search(String channelName, String fromDate, String toDate, Predicate<Message> predicate) {
+        var result = history(channelName, fromDate, toDate);
+        return result.isSuccess()
+                ? HistoryResult.success(result.getItems().stream().filter(predicate).collect(Collectors.toList()))
+                : result;
+    }
+
+    /***
+     * Stream the history of a range of any length page by page: stored and cached days come as one page,
+     * days listed from the API come page by page as they arrive, and the next page is prefetched while
+     * the current one is consumed.
+     * Days come oldest first, and the messages of each day newest first, as the API lists them.
+     * Streamed days are not handed to the day-fetched listeners, so a long range does not fill the index.
+     */
+    public MessageHistoryIterator stream(String channelName, String fromDate, String toDate, boolean useCache) {
+        return stream(channelName, fromDate, toDate, useCache, false);
+    }
+
+    /***
+     * @param notifyListeners whether streamed days are handed to the day-fetched listeners, e.g. to be indexed
+     */
+    public MessageHistoryIterator stream(String channelName, String fromDate, String toDate, boolean useCache,
+                                         boolean notifyListeners) {
+        var lane = RequestScheduler.currentLane();
+        var policy = useCache ? Policy.USE_CACHE : Policy.SYNC;
+        // pages of a day are requested one after the other, so one list collects the day being listed
+        var received = new ArrayList<Message>();
+        return new MessageHistoryIterator(fromDate, toDate, (day, pageToken) -> executor.submit(() ->
+                RequestScheduler.inLane(lane, () -> fetchPage(channelName, day, pageToken, received, policy, notifyListeners))));
+    }
+
+    /***
+     * Listeners are called from fetcher threads with every day fetched successfully
+     */
+    public void addOnDayFetchedListener(OnDayFetchedListener listener) {
+        onDayFetchedListeners.add(listener);
+    }
+
+    /***
+     * Serve complete days from the store and store every complete day fetched from the API.
+     * Only channels the channel directory knows the id of are stored.
+     */
+    public void setMessageStore(MessageStore messageStore) {
+        this.messageStore = messageStore;
+    }
+
+    /***
+     * Keep every fetched day in the cache: past days are then always served from it,
+     * and today is listed from it when the caller asks to use it, or synced by delta otherwise
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        // days patched by write-throughs are kept like the fetched days they replace
+        responseCache.setMessageKeeper(this::keep);
+    }
+
+    /***
+     * Copy every fetched day into the arena before it is cached and handed to the listeners,
+     * so the days kept by the cache and the index live off the heap
+     */
+    public void setMessageArena(MessageArena messageArena) {
+        this.messageArena = messageArena;
+    }
+
+    /***
+     * Compress the text of every fetched day before it is cached and handed to the listeners;
+     * days that go to the message arena are not compressed
+     */
+    public void setMessageCompressor(MessageCompressor messageCompressor) {
+        this.messageCompressor = messageCompressor;
+    }
+
+    /***
+     * Resolve channel names through the directory and page through the id-based messages endpoint,
+     * instead of letting the name-based ChatComponent list channels behind every day
+     */
+    public void setChannelDirectory(ChannelDirectory channelDirectory, String userId) {
+        this.userId = userId;
+        this.channelDirectory = channelDirectory;
+    }
+
+    /***
+     * @param seconds how long today is synced by delta before it is listed in full again
+     */
+    public void setFullSyncInterval(long seconds) {
+        this.fullSyncMillis = seconds * 1000;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private HistoryResult history(String channelName, List<String> days, Policy policy) {
+        var lane = RequestScheduler.currentLane();
+        var futures = new ArrayList<Future<HistoryResult>>();
+        for (var day : days) {
+            futures.add(executor.submit(() -> RequestScheduler.inLane(lane, () -> fetchDay(channelName, day, policy, true))));
+        }
+
+        // days are disjoint but listed newest first, so each day is put in time order before it is appended
+        var messages = new ArrayList<Message>();
+        for (var future : futures) {
+            var result = await(future);
+            if (!result.isSuccess()) {
+                futures.forEach(f -> f.cancel(true));
+                return result;
+            }
+            var start = messages.size();
+            messages.addAll(result.getItems());
+            messages.subList(start, messages.size()).sort(OLDEST_FIRST);
+        }
+        return HistoryResult.success(messages);
+    }
+
+    private HistoryResult fetchDay(String channelName, String day, Policy policy, boolean notifyListeners) {
+        var event = new HistoryFetchEvent();
+        event.begin();
+        var result = fetchDay(channelName, day, policy, notifyListeners, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.channel = channelName;
+            event.day = day;
+            event.success = result.isSuccess();
+            if (result.isSuccess()) {
+                event.messages = result.getItems().size();
+                event.bytes = Payload.bytesOf(result.getItems());
+            }
+            event.commit();
+        }
+        return result;
+    }
+
+    private HistoryResult fetchDay(String channelName, String day, Policy policy, boolean notifyListeners,
+                                   HistoryFetchEvent event) {
+        var epochDay = DayRange.parse(day).toEpochDay();
+        var isPast = epochDay < LocalDate.now().toEpochDay();
+        var cache = responseCache;
+        var channelId = getChannelId(channelName);
+        // days are stored by channel id, so a renamed channel keeps its history; without an id the store is skipped
+        var store = channelId == null ? null : messageStore;
+        var liveDay = !isPast && cache != null ? cache.getLiveDay(channelName, day) : null;
+        var known = fetchKnownDay(channelName, channelId, day, epochDay, isPast, liveDay, policy, store, cache, event);
+        if (known != null) {
+            if (notifyListeners) dispatchDayFetched(channelName, day, known);
+            return HistoryResult.success(known);
+        }
+
+        if (channelId != null && liveDay != null && policy != Policy.REFETCH && liveDay.isFullySyncedWithin(fullSyncMillis)) {
+            return syncLiveDay(channelName, channelId, day, liveDay, cache, notifyListeners, event);
+        }
+
+        var result = channelId == null
+                ? fetchDayByName(channelName, day, event)
+                : fetchDayById(channelId, day, Long.MIN_VALUE, event);
+        if (!result.isSuccess()) {
+            return result;
+        }
+        var messages = keepFetchedDay(channelName, channelId, day, epochDay, isPast, policy, store, cache, result.getItems());
+        if (notifyListeners) dispatchDayFetched(channelName, day, messages);
+        return HistoryResult.success(messages);
+    }
+
+    /***
+     * Fetch one page of a streamed day: the whole day when it is stored, cached or listed by name,
+     * or the page of it the API returns for the token.
+     * The API pages of a day are collected in {@code received}, and once the last one arrives the day is
+     * stored, cached and handed to the listeners as a fetched day is.
+     * @param pageToken token of the page, null for the first page of the day
+     */
+    private MessagePage fetchPage(String channelName, String day, String pageToken, List<Message> received,
+                                  Policy policy, boolean notifyListeners) {
+        var epochDay = DayRange.parse(day).toEpochDay();
+        var isPast = epochDay < LocalDate.now().toEpochDay();
+        var cache = responseCache;
+        var channelId = getChannelId(channelName);
+        var store = channelId == null ? null : messageStore;
+
+        var event = new HistoryFetchEvent();
+        event.begin();
+        var page = (MessagePage) null;
+        var liveDay = pageToken == null && !isPast && cache != null ? cache.getLiveDay(channelName, day) : null;
+        var known = pageToken == null
+                ? fetchKnownDay(channelName, channelId, day, epochDay, isPast, liveDay, policy, store, cache, event)
+                : null;
+        if (known != null) {
+            if (notifyListeners) dispatchDayFetched(channelName, day, known);
+            page = MessagePage.success(known, null);
+        } else if (channelId == null) {
+            // the name-based endpoint lists a day in one call
+            var result = fetchDayByName(channelName, day, event);
+            if (result.isSuccess()) {
+                var messages = keepFetchedDay(channelName, null, day, epochDay, isPast, policy, null, cache, result.getItems());
+                if (notifyListeners) dispatchDayFetched(channelName, day, messages);
+                page = MessagePage.success(messages, null);
+            } else {
+                page = MessagePage.failure(result.getErrorMessage());
+            }
+        } else {
+            if (pageToken == null) received.clear();
+            event.source = "api";
+            event.pages = 1;
+            page = messageSource.list(userId, channelId, day, pageToken);
+            if (!page.isSuccess()) {
+                page = MessagePage.failure(day + ": " + page.getErrorMessage());
+            } else {
+                received.addAll(page.getMessages());
+                if (page.getNextPageToken() == null) {
+                    var messages = keepFetchedDay(channelName, channelId, day, epochDay, isPast, policy, store, cache,
+                            new ArrayList<>(received));
+                    received.clear();
+                    if (notifyListeners) dispatchDayFetched(channelName, day, messages);
+                }
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.channel = channelName;
+            event.day = day;
+            event.success = page.isSuccess();
+            event.messages = page.getMessages().size();
+            event.bytes = Payload.bytesOf(page.getMessages());
+            event.commit();
+        }
+        return page;
+    }
+
+    private String getChannelId(String channelName) {
+        var directory = channelDirectory;
+        return directory == null ? null : directory.getId(channelName);
+    }
+
+    /***
+     * Days before today never change, so a stored or cached day is served without an API call,
+     * and so is a fresh cached today when the caller asks to use the cache
+     * @param liveDay the cached today, null for a past day
+     * @return the messages of the day, or null to fetch it
+     */
+    private List<Message> fetchKnownDay(String channelName, String channelId, String day, long epochDay, boolean isPast,
+                                        LiveDay liveDay, Policy policy, MessageStore store, ResponseCache cache,
+                                        HistoryFetchEvent event) {
+        if (isPast) {
+            return policy == Policy.REFETCH ? null : fetchPastDay(channelName, channelId, day, epochDay, store, cache, event);
+        }
+
+        if (liveDay != null && policy == Policy.USE_CACHE && cache.isFresh(liveDay)) {
+            event.source = "cache";
+            return liveDay.getMessages();
+        }
+        return null;
+    }
+
+    /***
+     * Store and cache a day listed from the API; every fetch refreshes the cache, so monitors keep it warm for the menu
+     * @return the messages as they are kept
+     */
+    private List<Message> keepFetchedDay(String channelName, String channelId, String day, long epochDay, boolean isPast,
+                                         Policy policy, MessageStore store, ResponseCache cache, List<Message> messages) {
+        if (store != null && isPast) {
+            if (policy == Policy.REFETCH) {
+                store.replace(channelId, epochDay, messages);
+            } else {
+                store.append(channelId, epochDay, messages);
+            }
+        }
+        messages = keep(channelName, messages);
+        if (cache != null) {
+            if (isPast) {
+                cache.putPastDay(channelName, day, messages);
+            } else {
+                cache.putLiveDay(channelName, day, LiveDay.full(messages));
+            }
+        }
+        return messages;
+    }
+
+    /***
+     * @return the cached or stored messages of a day before today, or null to fetch it
+     */
+    private List<Message> fetchPastDay(String channelName, String channelId, String day, long epochDay,
+                                       MessageStore store, ResponseCache cache, HistoryFetchEvent event) {
+        var cached = cache == null ? null : cache.getPastDay(channelName, day);
+        if (cached != null) {
+            event.source = "cache";
+            return cached;
+        }
+
+        if (store != null) {
+            var lookup = new CacheLookupEvent();
+            lookup.begin();
+            var stored = store.read(channelId, epochDay);
+            MetricsRegistry.INSTANCE.recordCacheAccess(CACHE_METRIC, stored != null);
+            lookup.end();
+            if (lookup.shouldCommit()) {
+                lookup.cache = CACHE_METRIC;
+                lookup.key = channelName + "/" + day;
+                lookup.hit = stored != null;
+                lookup.commit();
+            }
+            if (stored != null) {
+                // the cache holds the day from now on, so the store is only read again once it is evicted
+                event.source = "store";
+                var messages = keep(channelName, stored);
+                if (cache != null) {
+                    cache.putPastDay(channelName, day, messages);
+                }
+                return messages;
+            }
+        }
+        return null;
+    }
+
+    /***
+     * List only the messages of today from its newest known timestamp on, and put them on top of the cached day
+     */
+    private HistoryResult syncLiveDay(String channelName, String channelId, String day, LiveDay liveDay,
+                                      ResponseCache cache, boolean notifyListeners, HistoryFetchEvent event) {
+        var result = fetchDayById(channelId, day, liveDay.getLastTimestamp(), event);
+        if (!result.isSuccess()) {
+            return result;
+        }
+        event.source = "delta";
+
+        var newMessages = result.getItems();
+        var messages = newMessages.isEmpty() ? liveDay.getMessages() : keep(channelName, liveDay.merge(newMessages));
+        cache.putLiveDay(channelName, day, liveDay.withDelta(newMessages, messages));
+        if (notifyListeners) dispatchDayFetched(channelName, day, messages);
+        return HistoryResult.success(messages);
+    }
+
+    /***
+     * @return the messages as they are kept in the cache and the index: in the message arena, compressed or as they are
+     */
+    private List<Message> keep(String channelName, List<Message> messages) {
+        var arena = messageArena;
+        var compressor = messageCompressor;
+        if (arena != null) {
+            return arena.copyOf(messages);
+        } else if (compressor != null) {
+            return compressor.compress(channelName, messages);
+        }
+        return messages;
+    }
+
+    private void dispatchDayFetched(String channelName, String day, List<Message> messages) {
+        var event = new ListenerDispatchEvent();
+        event.begin();
+        onDayFetchedListeners.forEach(listener -> listener.onDayFetched(channelName, day, messages));
+        event.end();
+        if (event.shouldCommit()) {
+            event.event = "day_fetched";
+            event.channel = channelName;
+            event.listeners = onDayFetchedListeners.size();
+            event.commit();
+        }
+    }
+
+    private HistoryResult fetchDayByName(String channelName, String day, HistoryFetchEvent event) {
+        event.source = "api";
+        event.pages = 1;
+        var page = messageSource.history(channelName, day);
+        if (!page.isSuccess()) {
+            return HistoryResult.failure(day + ": " + page.getErrorMessage());
+        }
+        return HistoryResult.success(page.getMessages());
+    }
+
+    /***
+     * @param since oldest timestamp to list. Pages are expected newest first, so listing stops at the first page
+     *              reaching past it, but only while the messages seen so far are in that order: once one is newer
+     *              than the message before it, every page of the day is listed and filtered.
+     *              Out-of-order messages on pages after the stop are picked up by the next full listing of the day.
+     */
+    private HistoryResult fetchDayById(String channelId, String day, long since, HistoryFetchEvent event) {
+        event.source = "api";
+        var messages = new ArrayList<Message>();
+        var nextPageToken = (String) null;
+        var reachedSince = false;
+        var isNewestFirst = true;
+        var previousTimestamp = Long.MAX_VALUE;
+        do {
+            var page = messageSource.list(userId, channelId, day, nextPageToken);
+            event.pages++;
+            if (!page.isSuccess()) {
+                return HistoryResult.failure(day + ": " + page.getErrorMessage());
+            }
+            for (var message : page.getMessages()) {
+                var timestamp = message.getTimestamp();
+                if (timestamp > previousTimestamp) {
+                    isNewestFirst = false;
+                }
+                previousTimestamp = timestamp;
+                // messages at the timestamp itself are listed again, in case more arrived in the same millisecond
+                if (timestamp >= since) {
+                    messages.add(message);
+                } else {
+                    reachedSince = true;
+                }
+            }
+            nextPageToken = page.getNextPageToken();
+        } while ((!reachedSince || !isNewestFirst) && nextPageToken != null);
+        return HistoryResult.success(messages);
+    }
+
+    static MessagePage awaitPage(Future<MessagePage> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return MessagePage.failure("Interrupted while fetching history");
+        } catch (ExecutionException e) {
+            return MessagePage.failure(String.valueOf(e.getCause().getMessage()));
+        }
+    }
+
+    static HistoryResult await(Future<HistoryResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return HistoryResult.failure("Interrupted while fetching history");
+        } catch (ExecutionException e) {
+            return HistoryResult.failure(String.valueOf(e.getCause().getMessage()));
+        }
+    }
+
+    // endregion
+}
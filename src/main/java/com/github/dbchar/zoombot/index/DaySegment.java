@@ -0,0 +1,161 @@
+package com.github.dbchar.zoombot.index;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.util.*;
+
+/***
+ * Inverted index over the messages of one channel on one day.
+ * Documents are only appended; an updated message tombstones its previous version.
+ */
+class DaySegment {
+    // region Private Properties
+
+    // rough heap estimates: the document slot and id map entry of a message, each posting, each char of text
+    private static final long SEGMENT_OVERHEAD_BYTES = 256;
+    private static final long DOCUMENT_OVERHEAD_BYTES = 96;
+    private static final long POSTING_BYTES = Integer.BYTES;
+
+    private final List<Message> documents = new ArrayList<>();
+    private final TreeMap<String, IntList> postings = new TreeMap<>();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long sizeInBytes = SEGMENT_OVERHEAD_BYTES;
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * @return the document id of the message within this segment
+     */
+    int add(Message message) {
+        var previous = documentIds.get(message.getId());
+        if (previous != null) {
+            release(previous);
+        }
+
+        var documentId = documents.size();
+        documents.add(message);
+        documentIds.put(message.getId(), documentId);
+        var text = message.getMessage();
+        var terms = new LinkedHashSet<>(Tokenizer.tokenize(text));
+        for (var term : terms) {
+            postings.computeIfAbsent(term, key -> new IntList()).add(documentId);
+        }
+        sizeInBytes += documentBytes(message) + terms.size() * POSTING_BYTES;
+        return documentId;
+    }
+
+    void remove(String messageId) {
+        var documentId = documentIds.remove(messageId);
+        if (documentId != null) {
+            release(documentId);
+        }
+    }
+
+    /***
+     * @return the document id of the current version of the message, or -1 if it is not in this segment
+     */
+    int indexOf(String messageId) {
+        var documentId = documentIds.get(messageId);
+        return documentId == null ? -1 : documentId;
+    }
+
+    /***
+     * @return the current version of the message, or null if it is not in this segment
+     */
+    Message find(String messageId) {
+        var documentId = documentIds.get(messageId);
+        return documentId == null ? null : documents.get(documentId);
+    }
+
+    /***
+     * @return the message, or null if it has been updated or removed since
+     */
+    Message get(int documentId) {
+        return documentId < documents.size() && !deleted.get(documentId) ? documents.get(documentId) : null;
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    /***
+     * @return estimated heap size of the segment, including the messages it holds
+     */
+    long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    List<Message> search(IndexQuery query) {
+        var matches = new BitSet();
+        matches.set(0, documents.size());
+        matches.andNot(deleted);
+
+        for (var term : query.getTerms()) {
+            matches.and(toBitSet(postings.get(term)));
+        }
+        for (var prefix : query.getPrefixes()) {
+            var union = new BitSet();
+            for (var postingList : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                union.or(toBitSet(postingList));
+            }
+            matches.and(union);
+        }
+        var phrase = query.getPhrase();
+        for (var term : phrase) {
+            matches.and(toBitSet(postings.get(term)));
+        }
+
+        var results = new ArrayList<Message>();
+        for (var i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            var message = documents.get(i);
+            if (phrase.size() < 2 || containsPhrase(Tokenizer.tokenize(message.getMessage()), phrase)) {
+                results.add(message);
+            }
+        }
+        return results;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    /***
+     * Tombstone a document and let go of its message; its postings stay until the day is indexed again
+     */
+    private void release(int documentId) {
+        deleted.set(documentId);
+        var message = documents.set(documentId, null);
+        if (message != null) {
+            sizeInBytes -= documentBytes(message);
+        }
+    }
+
+    private static long documentBytes(Message message) {
+        var text = message.getMessage();
+        return DOCUMENT_OVERHEAD_BYTES + (text == null ? 0 : 2L * text.length());
+    }
+
+    private static BitSet toBitSet(IntList postingList) {
+        var bits = new BitSet();
+        if (postingList != null) {
+            for (var i = 0; i < postingList.size(); i++) {
+                bits.set(postingList.get(i));
+            }
+        }
+        return bits;
+    }
+
+    private static boolean containsPhrase(List<String> terms, List<String> phrase) {
+        for (var start = 0; start + phrase.size() <= terms.size(); start++) {
+            if (terms.subList(start, start + phrase.size()).equals(phrase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // endregion
+}
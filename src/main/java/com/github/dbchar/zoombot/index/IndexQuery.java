@@ -0,0 +1,61 @@
+package com.github.dbchar.zoombot.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * A parsed content query. All clauses must match.
+ * <ul>
+ * <li>{@code deploy release} - messages containing both terms</li>
+ * <li>{@code depl*} - messages containing a term starting with "depl"</li>
+ * <li>{@code "deploy to prod"} - messages containing the exact phrase</li>
+ * </ul>
+ */
+public class IndexQuery {
+    // region Private Properties
+
+    private final List<String> terms = new ArrayList<>();
+    private final List<String> prefixes = new ArrayList<>();
+    private final List<String> phrase = new ArrayList<>();
+
+    // endregion
+
+    // region Public Methods
+
+    public static IndexQuery parse(String query) {
+        var parsed = new IndexQuery();
+        var trimmed = query.trim();
+        if (trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            parsed.phrase.addAll(Tokenizer.tokenize(trimmed.substring(1, trimmed.length() - 1)));
+            return parsed;
+        }
+
+        for (var word : trimmed.split("\\s+")) {
+            if (word.endsWith("*") && word.length() > 1) {
+                parsed.prefixes.addAll(Tokenizer.tokenize(word.substring(0, word.length() - 1).toLowerCase(Locale.ROOT)));
+            } else {
+                parsed.terms.addAll(Tokenizer.tokenize(word));
+            }
+        }
+        return parsed;
+    }
+
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    public List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    public List<String> getPhrase() {
+        return phrase;
+    }
+
+    public boolean isEmpty() {
+        return terms.isEmpty() && prefixes.isEmpty() && phrase.isEmpty();
+    }
+
+    // endregion
+}
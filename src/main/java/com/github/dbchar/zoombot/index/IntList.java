@@ -0,0 +1,26 @@
+package com.github.dbchar.zoombot.index;
+
+import java.util.Arrays;
+
+/***
+ * Growable list of primitive ints, used for posting lists.
+ */
+class IntList {
+    private int[] values = new int[4];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.dbchar.zoombot.index;
+
+import java.util.Arrays;
+
+/***
+ * Sorted list of primitive longs, used for packed message references.
+ */
+class LongList {
+    private long[] values = new long[4];
+    private int size;
+
+    void insert(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        // references are appended in time order almost always, so this is usually a plain append
+        var index = size;
+        while (index > 0 && values[index - 1] > value) {
+            index--;
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+    }
+
+    /***
+     * Remove all values in [from, to)
+     */
+    void removeRange(long from, long to) {
+        var start = lowerBound(from);
+        var end = lowerBound(to);
+        System.arraycopy(values, end, values, start, size - end);
+        size -= end - start;
+    }
+
+    /***
+     * @return index of the first value >= key
+     */
+    int lowerBound(long key) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (values[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    long get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,529 @@
+package com.github.dbchar.zoombot.index;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.history.DayRange;
+import com.github.dbchar.zoombot.history.HistoryResult;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+/***
+ * Local full-text and sender index of message history, kept per channel and per day.
+ * Days fetched in full before today are complete and searched without any API call;
+ * today is refreshed by the caller and topped up by monitored messages.
+ * <p>
+ * The sender index maps a normalized sender to a sorted list of packed (epoch day, document id)
+ * references for each channel, plus the set of channels each sender has written in.
+ * <p>
+ * The index is bounded by an estimate of its heap size: when it grows past the limit, the least recently indexed
+ * or searched days are dropped whole, and are fetched again the next time a search needs them.
+ */
+public class MessageIndex {
+    // region Public Constants
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // endregion
+
+    // region Private Properties
+
+    private final Map<String, ChannelIndex> channels = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> channelsBySender = new ConcurrentHashMap<>();
+    // every indexed day, least recently used first; guarded by itself
+    private final LinkedHashMap<DayKey, Usage> usages = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * Bound the estimated heap size of the index, dropping the least recently used days beyond it
+     */
+    public void setMaxBytes(long maxBytes) {
+        synchronized (usages) {
+            this.maxBytes = maxBytes;
+        }
+        evict(null);
+    }
+
+    /***
+     * @return estimated heap size of the indexed days
+     */
+    public long getSizeInBytes() {
+        synchronized (usages) {
+            return usedBytes;
+        }
+    }
+
+    public int getDayCount() {
+        synchronized (usages) {
+            return usages.size();
+        }
+    }
+
+    /***
+     * Replace the indexed messages of a channel on a day with a complete fetch of that day
+     */
+    public void indexDay(String channelName, String day, List<Message> messages) {
+        var segment = new DaySegment();
+        messages.forEach(segment::add);
+        getChannel(channelName).putSegment(day, segment, isPast(day));
+        messages.forEach(message -> registerSender(channelName, message));
+        record(channelName, day, segment);
+    }
+
+    /***
+     * Add or replace a single message, e.g. one received or updated by a monitor
+     */
+    public void add(String channelName, String day, Message message) {
+        var segment = getChannel(channelName).add(day, message);
+        registerSender(channelName, message);
+        record(channelName, day, segment);
+    }
+
+    /***
+     * Remove a message, e.g. one deleted through the bot, along with its sender reference
+     */
+    public void remove(String channelName, String day, String messageId) {
+        var channel = channels.get(channelName);
+        var removed = channel == null ? null : channel.remove(day, messageId);
+        if (removed == null) return;
+
+        var sender = normalizeSender(removed.getSender());
+        if (!channel.hasSender(sender)) {
+            unregisterSender(channelName, sender);
+        }
+        var segment = channel.getSegment(day);
+        if (segment != null) {
+            record(channelName, day, segment);
+        }
+    }
+
+    /***
+     * Move the indexed days of a renamed channel to its new name.
+     * If the new name has indexed days already, e.g. fetched after a rename by another client, those are kept
+     * and the days of the old name are dropped.
+     */
+    public void renameChannel(String previousName, String channelName) {
+        if (previousName.equals(channelName)) return;
+        var channel = channels.get(previousName);
+        if (channel == null) return;
+        if (channels.putIfAbsent(channelName, channel) != null) {
+            removeChannel(previousName);
+            return;
+        }
+        channels.remove(previousName, channel);
+
+        synchronized (usages) {
+            // re-inserted in order, so the renamed days keep their place in the eviction order
+            var renamed = new LinkedHashMap<DayKey, Usage>();
+            usages.forEach((key, usage) -> renamed.put(
+                    key.channelName.equals(previousName) ? new DayKey(channelName, key.day) : key, usage));
+            usages.clear();
+            usages.putAll(renamed);
+        }
+        for (var channelNames : channelsBySender.values()) {
+            if (channelNames.remove(previousName)) {
+                channelNames.add(channelName);
+            }
+        }
+    }
+
+    /***
+     * Drop every indexed day of a channel, e.g. one that was deleted or left
+     */
+    public void removeChannel(String channelName) {
+        if (channels.remove(channelName) == null) return;
+        synchronized (usages) {
+            var iterator = usages.entrySet().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                if (entry.getKey().channelName.equals(channelName)) {
+                    iterator.remove();
+                    usedBytes -= entry.getValue().bytes;
+                }
+            }
+        }
+        channelsBySender.keySet().forEach(sender -> unregisterSender(channelName, sender));
+    }
+
+    /***
+     * @return the indexed message with the id, newest day first, or null if no indexed day has it
+     */
+    public Message find(String channelName, String messageId) {
+        var channel = channels.get(channelName);
+        return channel == null ? null : channel.find(messageId);
+    }
+
+    /***
+     * @return days of the range that have to be fetched before the index can answer for it
+     */
+    public List<String> getMissingDays(String channelName, String fromDate, String toDate) {
+        var channel = getChannel(channelName);
+        var missing = new ArrayList<String>();
+        for (var day : DayRange.split(fromDate, toDate)) {
+            if (!channel.isComplete(day)) {
+                missing.add(day);
+            }
+        }
+        return missing;
+    }
+
+    /***
+     * @return channel name -> days of the range that have to be fetched, only for channels with such days
+     */
+    public Map<String, List<String>> getMissingDays(Collection<String> channelNames, String fromDate, String toDate) {
+        var missing = new TreeMap<String, List<String>>();
+        for (var channelName : channelNames) {
+            var days = getMissingDays(channelName, fromDate, toDate);
+            if (!days.isEmpty()) {
+                missing.put(channelName, days);
+            }
+        }
+        return missing;
+    }
+
+    /***
+     * Unlike missing days, today counts as indexed once any of it is, as searches then cover what is known of it
+     * @return channel name -> days of the range the index holds nothing of, only for channels with such days
+     */
+    public Map<String, List<String>> getUnindexedDays(Collection<String> channelNames, String fromDate, String toDate) {
+        var unindexed = new TreeMap<String, List<String>>();
+        for (var channelName : channelNames) {
+            var channel = channels.get(channelName);
+            var days = new ArrayList<String>();
+            for (var day : DayRange.split(fromDate, toDate)) {
+                if (channel == null || !channel.hasDay(day)) {
+                    days.add(day);
+                }
+            }
+            if (!days.isEmpty()) {
+                unindexed.put(channelName, days);
+            }
+        }
+        return unindexed;
+    }
+
+    public HistoryResult search(String channelName, String fromDate, String toDate, String query) {
+        var parsed = IndexQuery.parse(query);
+        if (parsed.isEmpty()) {
+            return HistoryResult.failure("Query '" + query + "' contains no searchable terms");
+        }
+        var channel = getChannel(channelName);
+        touch(channelName, channel.getDays(fromDate, toDate));
+        return HistoryResult.success(channel.search(fromDate, toDate, parsed));
+    }
+
+    /***
+     * Messages of a channel whose sender contains the query (case-insensitive)
+     */
+    public HistoryResult searchBySender(String channelName, String fromDate, String toDate, String query) {
+        var channel = getChannel(channelName);
+        touch(channelName, channel.getDays(fromDate, toDate));
+        return HistoryResult.success(
+                channel.searchBySender(normalizeSender(query), toReference(fromDate, 0), toReference(toDate, 1)));
+    }
+
+    /***
+     * Messages of every indexed channel whose sender contains the query (case-insensitive).
+     * Only indexed days are searched; see {@link #getUnindexedDays(Collection, String, String)} for the rest.
+     * @return channel name -> messages in time order, only for channels with matches
+     */
+    public Map<String, List<Message>> searchBySenderInAllChannels(String fromDate, String toDate, String query) {
+        var normalizedQuery = normalizeSender(query);
+        var candidates = new TreeSet<String>();
+        channelsBySender.forEach((sender, channelNames) -> {
+            if (sender.contains(normalizedQuery)) {
+                candidates.addAll(channelNames);
+            }
+        });
+
+        var results = new TreeMap<String, List<Message>>();
+        for (var channelName : candidates) {
+            var channel = getChannel(channelName);
+            touch(channelName, channel.getDays(fromDate, toDate));
+            var messages = channel.searchBySender(normalizedQuery, toReference(fromDate, 0), toReference(toDate, 1));
+            if (!messages.isEmpty()) {
+                results.put(channelName, messages);
+            }
+        }
+        return results;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private ChannelIndex getChannel(String channelName) {
+        return channels.computeIfAbsent(channelName, key -> new ChannelIndex());
+    }
+
+    /***
+     * Account for a day that was indexed or grew, and drop the least recently used days over the limit
+     */
+    private void record(String channelName, String day, DaySegment segment) {
+        var key = new DayKey(channelName, day);
+        synchronized (usages) {
+            var previous = usages.put(key, new Usage(segment, segment.getSizeInBytes()));
+            usedBytes += segment.getSizeInBytes() - (previous == null ? 0 : previous.bytes);
+        }
+        evict(key);
+    }
+
+    /***
+     * Mark the days as just used, so a search keeps the days it reads
+     */
+    private void touch(String channelName, List<String> days) {
+        synchronized (usages) {
+            for (var day : days) {
+                usages.get(new DayKey(channelName, day));
+            }
+        }
+    }
+
+    /***
+     * @param keep day that must not be dropped, e.g. the one just indexed; null for none
+     */
+    private void evict(DayKey keep) {
+        var victims = new ArrayList<Map.Entry<DayKey, Usage>>();
+        synchronized (usages) {
+            var iterator = usages.entrySet().iterator();
+            while (usedBytes > maxBytes && iterator.hasNext()) {
+                var entry = iterator.next();
+                if (entry.getKey().equals(keep)) continue;
+                iterator.remove();
+                usedBytes -= entry.getValue().bytes;
+                victims.add(entry);
+            }
+        }
+        // channel locks are only taken once the usage lock is released, so the two are never nested
+        for (var victim : victims) {
+            var channel = channels.get(victim.getKey().channelName);
+            if (channel != null) {
+                channel.removeSegment(victim.getKey().day, victim.getValue().segment);
+            }
+        }
+    }
+
+    private void registerSender(String channelName, Message message) {
+        // compute, not computeIfAbsent, so a concurrent unregisterSender cannot drop the set being added to
+        channelsBySender.compute(normalizeSender(message.getSender()), (sender, channelNames) -> {
+            var names = channelNames == null ? ConcurrentHashMap.<String>newKeySet() : channelNames;
+            names.add(channelName);
+            return names;
+        });
+    }
+
+    private void unregisterSender(String channelName, String normalizedSender) {
+        channelsBySender.computeIfPresent(normalizedSender, (sender, channelNames) -> {
+            channelNames.remove(channelName);
+            return channelNames.isEmpty() ? null : channelNames;
+        });
+    }
+
+    private static String normalizeSender(String sender) {
+        return sender == null ? "" : sender.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isPast(String day) {
+        return DayRange.parse(day).isBefore(LocalDate.now());
+    }
+
+    /***
+     * Pack a day and a document id into one sortable reference
+     */
+    private static long toReference(long epochDay, int documentId) {
+        return (epochDay << 32) | documentId;
+    }
+
+    /***
+     * @return the first reference of the given day plus dayOffset days
+     */
+    private static long toReference(String day, int dayOffset) {
+        return toReference(DayRange.parse(day).toEpochDay() + dayOffset, 0);
+    }
+
+    private static final class DayKey {
+        final String channelName;
+        final String day;
+
+        DayKey(String channelName, String day) {
+            this.channelName = channelName;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof DayKey)) return false;
+            var key = (DayKey) other;
+            return channelName.equals(key.channelName) && day.equals(key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(channelName, day);
+        }
+    }
+
+    private static final class Usage {
+        final DaySegment segment;
+        final long bytes;
+
+        Usage(DaySegment segment, long bytes) {
+            this.segment = segment;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class ChannelIndex {
+        private final TreeMap<String, DaySegment> segments = new TreeMap<>();
+        private final Set<String> completeDays = new HashSet<>();
+        private final Map<String, LongList> references = new HashMap<>();
+
+        synchronized void putSegment(String day, DaySegment segment, boolean complete) {
+            // drop references into the segment being replaced
+            removeReferences(day);
+
+            segments.put(day, segment);
+            for (var documentId = 0; documentId < segment.size(); documentId++) {
+                addReference(day, documentId, segment.get(documentId));
+            }
+            if (complete) {
+                completeDays.add(day);
+            }
+        }
+
+        /***
+         * @return the segment the message was added to
+         */
+        synchronized DaySegment add(String day, Message message) {
+            var segment = segments.computeIfAbsent(day, key -> new DaySegment());
+            var previous = segment.indexOf(message.getId());
+            if (previous >= 0) {
+                removeReference(day, previous, segment.get(previous));
+            }
+            addReference(day, segment.add(message), message);
+            return segment;
+        }
+
+        /***
+         * Drop an evicted day, unless it has been replaced since; it is no longer complete
+         */
+        synchronized void removeSegment(String day, DaySegment segment) {
+            if (segments.get(day) != segment) return;
+            segments.remove(day);
+            completeDays.remove(day);
+            removeReferences(day);
+        }
+
+        synchronized List<String> getDays(String fromDate, String toDate) {
+            return new ArrayList<>(segments.subMap(fromDate, true, toDate, true).keySet());
+        }
+
+        /***
+         * @return the removed message, or null if the day does not have it
+         */
+        synchronized Message remove(String day, String messageId) {
+            var segment = segments.get(day);
+            var documentId = segment == null ? -1 : segment.indexOf(messageId);
+            if (documentId < 0) return null;
+
+            var message = segment.get(documentId);
+            removeReference(day, documentId, message);
+            segment.remove(messageId);
+            return message;
+        }
+
+        synchronized DaySegment getSegment(String day) {
+            return segments.get(day);
+        }
+
+        synchronized boolean hasSender(String normalizedSender) {
+            return references.containsKey(normalizedSender);
+        }
+
+        synchronized Message find(String messageId) {
+            for (var segment : segments.descendingMap().values()) {
+                var message = segment.find(messageId);
+                if (message != null) return message;
+            }
+            return null;
+        }
+
+        synchronized boolean hasDay(String day) {
+            return segments.containsKey(day);
+        }
+
+        synchronized boolean isComplete(String day) {
+            return completeDays.contains(day);
+        }
+
+        synchronized List<Message> search(String fromDate, String toDate, IndexQuery query) {
+            var results = new ArrayList<Message>();
+            for (var segment : segments.subMap(fromDate, true, toDate, true).values()) {
+                results.addAll(segment.search(query));
+            }
+            return results;
+        }
+
+        synchronized List<Message> searchBySender(String normalizedQuery, long fromReference, long toReference) {
+            var matches = LongStream.builder();
+            references.forEach((sender, list) -> {
+                if (sender.contains(normalizedQuery)) {
+                    for (var i = list.lowerBound(fromReference); i < list.lowerBound(toReference); i++) {
+                        matches.add(list.get(i));
+                    }
+                }
+            });
+
+            var results = new ArrayList<Message>();
+            for (var reference : matches.build().sorted().toArray()) {
+                var segment = segments.get(DayRange.format(LocalDate.ofEpochDay(reference >>> 32)));
+                var message = segment == null ? null : segment.get((int) reference);
+                if (message != null) {
+                    results.add(message);
+                }
+            }
+            return results;
+        }
+
+        private void removeReferences(String day) {
+            var first = toReference(day, 0);
+            var last = toReference(day, 1);
+            var iterator = references.values().iterator();
+            while (iterator.hasNext()) {
+                var list = iterator.next();
+                list.removeRange(first, last);
+                if (list.size() == 0) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        private void removeReference(String day, int documentId, Message message) {
+            if (message == null) return;
+            var sender = normalizeSender(message.getSender());
+            var list = references.get(sender);
+            if (list == null) return;
+            var reference = toReference(DayRange.parse(day).toEpochDay(), documentId);
+            list.removeRange(reference, reference + 1);
+            if (list.size() == 0) {
+                references.remove(sender);
+            }
+        }
+
+        private void addReference(String day, int documentId, Message message) {
+            if (message != null) {
+                references.computeIfAbsent(normalizeSender(message.getSender()), key -> new LongList())
+                        .insert(toReference(DayRange.parse(day).toEpochDay(), documentId));
+            }
+        }
+    }
+
+    // endregion
+}
@@ -0,0 +1,27 @@
+package com.github.dbchar.zoombot.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * Splits message text into lower-case terms of letters and digits.
+ */
+public class Tokenizer {
+    public static List<String> tokenize(String text) {
+        var terms = new ArrayList<String>();
+        if (text == null) return terms;
+
+        var start = -1;
+        for (var i = 0; i <= text.length(); i++) {
+            var isTermChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isTermChar && start < 0) {
+                start = i;
+            } else if (!isTermChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,283 @@
+package com.github.dbchar.zoombot.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Asynchronous output for everything the bot prints.
+ * Callers hand over fully rendered blocks; a single writer thread drains the bounded queue
+ * in batches and writes each batch to the console (and optionally a file) with one write and one flush.
+ * Interactive output always waits for room in the queue; only monitor events are subject to the overflow policy.
+ */
+public enum ConsoleSink {
+    INSTANCE;
+
+    // region Public Constants
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    public enum OverflowPolicy {
+        /** wait for room in the queue (the caller may block) */
+        BLOCK,
+        /** discard the block being written */
+        DROP_NEWEST,
+        /** discard the oldest queued block to make room */
+        DROP_OLDEST
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private static final int MAX_BATCH_CHARS = 64 * 1024;
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(DEFAULT_CAPACITY);
+    private volatile PrintStream console = System.out;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Object completedLock = new Object();
+    private long completed;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private volatile boolean consoleEnabled = true;
+    private volatile Writer file;
+    private Thread writer;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * Queue a rendered block of interactive output, waiting for room in the queue; it is never dropped
+     */
+    public void write(String block) {
+        ensureStarted();
+        enqueued.incrementAndGet();
+        put(new Entry(block, false, null));
+    }
+
+    /***
+     * Queue a rendered monitor event. Never blocks unless the overflow policy is BLOCK;
+     * the other policies only ever drop monitor events.
+     */
+    public void writeEvent(String block) {
+        ensureStarted();
+        enqueued.incrementAndGet();
+        var entry = new Entry(block, true, null);
+        switch (overflowPolicy) {
+            case BLOCK:
+                put(entry);
+                break;
+            case DROP_NEWEST:
+                if (!queue.offer(entry)) {
+                    dropped.incrementAndGet();
+                    markCompleted(1);
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    if (!dropOldestEvent()) {
+                        // the queue is full of interactive output, which is never dropped
+                        put(entry);
+                        break;
+                    }
+                }
+                break;
+        }
+    }
+
+    /***
+     * Wait until everything queued so far has been written, e.g. before prompting the user
+     */
+    public void flush() {
+        var target = enqueued.get();
+        synchronized (completedLock) {
+            while (completed < target) {
+                try {
+                    completedLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /***
+     * @param overflowPolicy what happens to a monitor event when the queue is full
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void setConsoleEnabled(boolean consoleEnabled) {
+        this.consoleEnabled = consoleEnabled;
+    }
+
+    /***
+     * Print to another stream than standard output, e.g. standard error when standard output carries script results
+     */
+    public void setConsoleStream(PrintStream console) {
+        this.console = console;
+    }
+
+    /***
+     * Also write all output to a file
+     */
+    public synchronized void openFile(String path, boolean append) throws IOException {
+        closeFile();
+        file = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path, append), StandardCharsets.UTF_8));
+    }
+
+    /***
+     * Close the output file once everything queued so far has been written to it
+     */
+    public synchronized void closeFile() {
+        var output = file;
+        if (output == null) return;
+        // the writer thread closes it, so it is never closed in the middle of a write
+        ensureStarted();
+        enqueued.incrementAndGet();
+        put(new Entry(null, false, output));
+        flush();
+    }
+
+    /***
+     * @return number of monitor events discarded by the overflow policy
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private synchronized void ensureStarted() {
+        if (writer != null) return;
+        writer = new Thread(this::drain, "console-sink");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void put(Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            markCompleted(1);
+        }
+    }
+
+    /***
+     * @return whether a queued monitor event was dropped; false if only interactive output is queued
+     */
+    private boolean dropOldestEvent() {
+        for (var entry : queue) {
+            if (entry.isEvent && queue.remove(entry)) {
+                dropped.incrementAndGet();
+                markCompleted(1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain() {
+        var batch = new ArrayList<Entry>();
+        var text = new StringBuilder(8 * 1024);
+        var reportedDrops = 0L;
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            var totalDrops = dropped.get();
+            if (totalDrops > reportedDrops) {
+                text.append("[console output: ").append(totalDrops - reportedDrops).append(" blocks dropped]\n");
+                reportedDrops = totalDrops;
+            }
+            for (var i = 0; i < batch.size(); i++) {
+                var entry = batch.get(i);
+                if (entry.fileToClose != null) {
+                    emit(text.toString());
+                    text.setLength(0);
+                    closeOutputFile(entry.fileToClose);
+                    continue;
+                }
+                text.append(entry.text);
+                // keep single writes bounded when a burst has piled up
+                if (text.length() >= MAX_BATCH_CHARS || i == batch.size() - 1) {
+                    emit(text.toString());
+                    text.setLength(0);
+                }
+            }
+            markCompleted(batch.size());
+            batch.clear();
+        }
+    }
+
+    private void emit(String text) {
+        if (text.isEmpty()) return;
+        if (consoleEnabled) {
+            var target = console;
+            target.print(text);
+            target.flush();
+        }
+        var output = file;
+        if (output != null) {
+            try {
+                output.write(text);
+                output.flush();
+            } catch (IOException e) {
+                System.err.println("Failed to write output file: " + e.getMessage());
+            }
+        }
+    }
+
+    /***
+     * Only called from the writer thread, after everything queued before the close was written
+     */
+    private void closeOutputFile(Writer output) {
+        // closeFile waits for this with the lock held, so no lock here; a file opened since is left alone
+        if (file == output) file = null;
+        try {
+            output.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void markCompleted(long count) {
+        synchronized (completedLock) {
+            completed += count;
+            completedLock.notifyAll();
+        }
+    }
+
+    /***
+     * A queued block, or the file to close once the blocks before it are written
+     */
+    private static class Entry {
+        final String text;
+        final boolean isEvent;
+        final Writer fileToClose;
+
+        Entry(String text, boolean isEvent, Writer fileToClose) {
+            this.text = text;
+            this.isEvent = isEvent;
+            this.fileToClose = fileToClose;
+        }
+    }
+
+    // endregion
+}
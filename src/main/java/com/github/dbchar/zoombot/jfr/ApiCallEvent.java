@@ -0,0 +1,39 @@
+package com.github.dbchar.zoombot.jfr;
+
+import jdk.jfr.*;
+
+/***
+ * One zoomapi request run by the RequestScheduler, not including the time spent waiting for a token
+ */
+@Name("zoombot.ApiCall")
+@Label("API Call")
+@Category({"Zoombot", "API"})
+public class ApiCallEvent extends Event {
+    @Label("Operation")
+    @Description("Component and method, e.g. chat_channels.list")
+    public String operation;
+
+    @Label("Endpoint Class")
+    public String endpoint;
+
+    @Label("Lane")
+    public String lane;
+
+    @Label("Attempt")
+    @Description("0 for the first attempt, 1 for the retry after a rate limited response")
+    public int attempt;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Items")
+    public int items;
+
+    @Label("Bytes")
+    @Description("Estimated size of the returned items as JSON, measured from message fields or a fixed size per item")
+    @DataAmount
+    public long bytes;
+
+    @Label("Error Message")
+    public String errorMessage;
+}
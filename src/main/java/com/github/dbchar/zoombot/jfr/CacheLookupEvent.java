@@ -0,0 +1,21 @@
+package com.github.dbchar.zoombot.jfr;
+
+import jdk.jfr.*;
+
+/***
+ * A lookup in one of the bot's caches
+ */
+@Name("zoombot.CacheLookup")
+@Label("Cache Lookup")
+@Category({"Zoombot", "Cache"})
+@StackTrace(false)
+public class CacheLookupEvent extends Event {
+    @Label("Cache")
+    public String cache;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Hit")
+    public boolean hit;
+}
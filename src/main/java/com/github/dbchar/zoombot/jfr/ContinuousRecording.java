@@ -0,0 +1,111 @@
+package com.github.dbchar.zoombot.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/***
+ * A flight recording kept running in the background, so a stall can be examined after the fact.
+ * Only the last max age / max size of data is kept on disk; it is written to the destination file when the
+ * recording stops (also on exit) and can be dumped at any time from the menu.
+ * <p>
+ * The zoombot events cost a few field writes when no recording is running.
+ */
+public enum ContinuousRecording {
+    INSTANCE;
+
+    // region Public Constants
+
+    public static final String DEFAULT_FILE = "./zoombot.jfr";
+    public static final String DEFAULT_SETTINGS = "default";
+    public static final long DEFAULT_MAX_AGE_MINUTES = 30;
+    public static final long DEFAULT_MAX_SIZE_MEGABYTES = 100;
+
+    // endregion
+
+    // region Private Properties
+
+    private static final List<Class<? extends Event>> EVENT_CLASSES = List.of(ApiCallEvent.class,
+            CacheLookupEvent.class, HistoryFetchEvent.class, MonitorPollEvent.class, ListenerDispatchEvent.class);
+    private static final DateTimeFormatter DUMP_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private Recording recording;
+    private Path destination;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * @param settings name of a JDK recording configuration ("default" or "profile") or path of a .jfc file
+     */
+    public synchronized void start(String file, String settings, long maxAgeMinutes, long maxSizeMegabytes)
+            throws IOException, ParseException {
+        stop();
+
+        var configuration = settings.endsWith(".jfc")
+                ? Configuration.create(Paths.get(settings))
+                : Configuration.getConfiguration(settings);
+        var newRecording = new Recording(configuration);
+        newRecording.setName("zoombot");
+        newRecording.setToDisk(true);
+        if (maxAgeMinutes > 0) {
+            newRecording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+        }
+        if (maxSizeMegabytes > 0) {
+            newRecording.setMaxSize(maxSizeMegabytes * 1024 * 1024);
+        }
+        for (var eventClass : EVENT_CLASSES) {
+            newRecording.enable(eventClass).withThreshold(Duration.ZERO);
+        }
+        destination = Paths.get(file);
+        newRecording.setDestination(destination);
+        newRecording.setDumpOnExit(true);
+        newRecording.start();
+        recording = newRecording;
+    }
+
+    /***
+     * Write what has been recorded so far next to the destination file, e.g. zoombot-20200428-153000.jfr
+     * @return the written file
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No flight recording is running, see [JFR] in bot.ini");
+        }
+        var name = destination.getFileName().toString();
+        var base = name.endsWith(".jfr") ? name.substring(0, name.length() - ".jfr".length()) : name;
+        var path = destination.resolveSibling(base + "-" + LocalDateTime.now().format(DUMP_SUFFIX) + ".jfr");
+        recording.dump(path);
+        return path;
+    }
+
+    public synchronized boolean isRunning() {
+        return recording != null;
+    }
+
+    /***
+     * Stop the recording and write it to the destination file
+     */
+    public synchronized void stop() {
+        if (recording == null) return;
+        try {
+            recording.stop();
+        } catch (IllegalStateException ignored) {
+            // already stopped
+        }
+        recording.close();
+        recording = null;
+    }
+
+    // endregion
+}
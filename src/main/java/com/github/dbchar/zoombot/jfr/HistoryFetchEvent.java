@@ -0,0 +1,36 @@
+package com.github.dbchar.zoombot.jfr;
+
+import jdk.jfr.*;
+
+/***
+ * The messages of one day of a channel, served from the history store or fetched page by page
+ */
+@Name("zoombot.HistoryFetch")
+@Label("History Fetch")
+@Category({"Zoombot", "History"})
+@StackTrace(false)
+public class HistoryFetchEvent extends Event {
+    @Label("Channel")
+    public String channel;
+
+    @Label("Day")
+    public String day;
+
+    @Label("Source")
+    @Description("store, cache, api, or delta for a partial listing of today")
+    public String source;
+
+    @Label("Pages")
+    public int pages;
+
+    @Label("Messages")
+    public int messages;
+
+    @Label("Bytes")
+    @Description("Estimated size of the messages as JSON, measured from their fields")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,24 @@
+package com.github.dbchar.zoombot.jfr;
+
+import jdk.jfr.*;
+
+/***
+ * Calling the listeners of one event, e.g. every OnMessageReceived listener of a monitor for one message
+ */
+@Name("zoombot.ListenerDispatch")
+@Label("Listener Dispatch")
+@Category({"Zoombot", "Listeners"})
+@StackTrace(false)
+public class ListenerDispatchEvent extends Event {
+    @Label("Event")
+    public String event;
+
+    @Label("Channel")
+    public String channel;
+
+    @Label("Listeners")
+    public int listeners;
+
+    @Label("Failures")
+    public int failures;
+}
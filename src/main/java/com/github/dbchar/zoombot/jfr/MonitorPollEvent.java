@@ -0,0 +1,35 @@
+package com.github.dbchar.zoombot.jfr;
+
+import jdk.jfr.*;
+
+/***
+ * One poll of a monitored channel
+ */
+@Name("zoombot.MonitorPoll")
+@Label("Monitor Poll")
+@Category({"Zoombot", "Monitor"})
+@StackTrace(false)
+public class MonitorPollEvent extends Event {
+    @Label("Channel")
+    public String channel;
+
+    @Label("Lag")
+    @Description("How late the poll started compared to its schedule")
+    @Timespan(Timespan.MILLISECONDS)
+    public long lag;
+
+    @Label("From Day")
+    public String fromDay;
+
+    @Label("To Day")
+    public String toDay;
+
+    @Label("Messages")
+    public int messages;
+
+    @Label("Members Polled")
+    public boolean membersPolled;
+
+    @Label("Success")
+    public boolean success;
+}
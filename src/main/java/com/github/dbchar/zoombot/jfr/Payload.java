@@ -0,0 +1,88 @@
+package com.github.dbchar.zoombot.jfr;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoomapi.utils.ListResult;
+import com.github.dbchar.zoomapi.utils.Result;
+import com.github.dbchar.zoombot.arena.OffHeapMessages;
+import com.github.dbchar.zoombot.compress.CompressedMessages;
+
+import java.util.Collection;
+
+/***
+ * Size estimates for event fields. Payloads are never serialized for them, so a recording does not add
+ * a JSON encoding of every response to the calls it observes: messages are measured from their fields,
+ * other items count as a fixed size.
+ */
+public class Payload {
+    // region Private Properties
+
+    // JSON field names, quotes and separators of a message, and its timestamp
+    private static final long MESSAGE_OVERHEAD_BYTES = 80;
+    // a channel, a member or a contact as JSON, roughly
+    private static final long ITEM_BYTES = 256;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * @return number of items of a ListResult, 1 for a successful Result, 0 otherwise
+     */
+    public static int itemsOf(Object result) {
+        if (result instanceof ListResult) {
+            var items = ((ListResult<?>) result).getItems();
+            return items == null ? 0 : items.size();
+        }
+        return result instanceof Result && ((Result<?>) result).isSuccess() ? 1 : 0;
+    }
+
+    /***
+     * @return estimated size in bytes of the items of a Result or ListResult as JSON
+     */
+    public static long bytesOf(Object result) {
+        if (result instanceof ListResult) {
+            var items = ((ListResult<?>) result).getItems();
+            return items == null ? 0 : bytesOf(items);
+        } else if (result instanceof Result) {
+            return itemBytes(((Result<?>) result).getItem());
+        }
+        return 0;
+    }
+
+    public static long bytesOf(Collection<?> items) {
+        // off-heap and compressed days know the size of their records, which is about that of their JSON
+        if (items instanceof OffHeapMessages) return ((OffHeapMessages) items).getOffHeapBytes();
+        if (items instanceof CompressedMessages) return ((CompressedMessages) items).getSizeInBytes();
+
+        var bytes = 0L;
+        for (var item : items) {
+            bytes += itemBytes(item);
+        }
+        return bytes;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private static long itemBytes(Object item) {
+        if (item == null) {
+            return 0;
+        } else if (item instanceof Message) {
+            var message = (Message) item;
+            return MESSAGE_OVERHEAD_BYTES + length(message.getId()) + length(message.getSender())
+                    + length(message.getLocalDateTime()) + length(message.getMessage());
+        } else if (item instanceof CharSequence) {
+            return ((CharSequence) item).length() + 2;
+        } else if (item instanceof Boolean || item instanceof Number) {
+            return String.valueOf(item).length();
+        }
+        return ITEM_BYTES;
+    }
+
+    private static long length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    // endregion
+}
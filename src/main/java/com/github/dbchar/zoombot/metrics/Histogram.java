@@ -0,0 +1,93 @@
+package com.github.dbchar.zoombot.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * Lock-free histogram of non-negative long values with log-linear buckets.
+ * Values below 16 get a bucket each; above that every power of two is split into 16 buckets,
+ * so a reported percentile is within about 6% of the recorded value.
+ */
+public class Histogram {
+    // region Private Properties
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    // endregion
+
+    // region Public Methods
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        var n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /***
+     * @param percentile in [0, 100]
+     * @return the upper bound of the bucket holding the percentile, capped at the maximum, or 0 if empty
+     */
+    public long getPercentile(double percentile) {
+        var n = count.sum();
+        if (n == 0) return 0;
+
+        var rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        var seen = 0L;
+        for (var i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+        var exponent = 63 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        var exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        var subBucket = index % SUB_BUCKET_COUNT;
+        var shift = exponent - SUB_BUCKET_BITS;
+        var lowerBound = ((long) (SUB_BUCKET_COUNT + subBucket)) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    // endregion
+}
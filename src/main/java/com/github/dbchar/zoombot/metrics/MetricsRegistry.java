@@ -0,0 +1,242 @@
+package com.github.dbchar.zoombot.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/***
+ * In-process metrics of the bot: latency timers of menu commands and API calls, value histograms
+ * (e.g. monitor poll lag), cache hit ratios and gauges read when a snapshot is taken (e.g. off-heap bytes).
+ * Recording only touches striped adders and atomic arrays, so it is cheap enough for every API call.
+ * A snapshot can be printed from the menu or dumped to a JSON file periodically.
+ */
+public enum MetricsRegistry {
+    INSTANCE;
+
+    // region Public Constants
+
+    public static final String COMMAND_PREFIX = "command.";
+    public static final String API_PREFIX = "api.";
+
+    // endregion
+
+    // region Public Types
+
+    public static class CacheStats {
+        private final String name;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private CacheStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        public double getHitRatio() {
+            var hitCount = hits.sum();
+            var total = hitCount + misses.sum();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private ScheduledExecutorService dumper;
+    private volatile Path dumpPath;
+
+    // endregion
+
+    // region Public Methods (Recording)
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /***
+     * @param operation component and method, e.g. "chat_channels.list"
+     */
+    public Timer apiTimer(String operation) {
+        return timer(API_PREFIX + operation);
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    public void recordCacheAccess(String cache, boolean hit) {
+        var stats = caches.computeIfAbsent(cache, CacheStats::new);
+        if (hit) {
+            stats.hits.increment();
+        } else {
+            stats.misses.increment();
+        }
+    }
+
+    /***
+     * Report a value read on every snapshot, replacing the gauge registered under the name before
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // endregion
+
+    // region Public Methods (Reading)
+
+    public List<Timer> getTimers() {
+        var list = new ArrayList<>(timers.values());
+        list.sort(Comparator.comparing(Timer::getName));
+        return list;
+    }
+
+    public SortedMap<String, Histogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public List<CacheStats> getCaches() {
+        var list = new ArrayList<>(caches.values());
+        list.sort(Comparator.comparing(CacheStats::getName));
+        return list;
+    }
+
+    /***
+     * @return current value of every gauge, by name
+     */
+    public SortedMap<String, Long> getGauges() {
+        var values = new TreeMap<String, Long>();
+        gauges.forEach((name, value) -> values.put(name, value.getAsLong()));
+        return values;
+    }
+
+    /***
+     * @return all metrics as nested maps, latencies in milliseconds
+     */
+    public Map<String, Object> snapshot() {
+        var timerMap = new LinkedHashMap<String, Object>();
+        for (var timer : getTimers()) {
+            var latency = timer.getLatency();
+            var map = new LinkedHashMap<String, Object>();
+            map.put("count", latency.getCount());
+            map.put("errors", timer.getErrorCount());
+            map.put("retries", timer.getRetryCount());
+            map.put("mean_ms", latency.getMean() / NANOS_PER_MILLI);
+            map.put("p50_ms", latency.getPercentile(50) / NANOS_PER_MILLI);
+            map.put("p90_ms", latency.getPercentile(90) / NANOS_PER_MILLI);
+            map.put("p99_ms", latency.getPercentile(99) / NANOS_PER_MILLI);
+            map.put("max_ms", latency.getMax() / NANOS_PER_MILLI);
+            timerMap.put(timer.getName(), map);
+        }
+
+        var histogramMap = new LinkedHashMap<String, Object>();
+        getHistograms().forEach((name, histogram) -> {
+            var map = new LinkedHashMap<String, Object>();
+            map.put("count", histogram.getCount());
+            map.put("mean", histogram.getMean());
+            map.put("p50", histogram.getPercentile(50));
+            map.put("p90", histogram.getPercentile(90));
+            map.put("p99", histogram.getPercentile(99));
+            map.put("max", histogram.getMax());
+            histogramMap.put(name, map);
+        });
+
+        var cacheMap = new LinkedHashMap<String, Object>();
+        for (var cache : getCaches()) {
+            var map = new LinkedHashMap<String, Object>();
+            map.put("hits", cache.getHitCount());
+            map.put("misses", cache.getMissCount());
+            map.put("hit_ratio", cache.getHitRatio());
+            cacheMap.put(cache.getName(), map);
+        }
+
+        var snapshot = new LinkedHashMap<String, Object>();
+        snapshot.put("timestamp", System.currentTimeMillis());
+        snapshot.put("timers", timerMap);
+        snapshot.put("histograms", histogramMap);
+        snapshot.put("caches", cacheMap);
+        snapshot.put("gauges", getGauges());
+        return snapshot;
+    }
+
+    // endregion
+
+    // region Public Methods (Dump)
+
+    /***
+     * Write a snapshot to the file now and then every interval, replacing the previous one
+     */
+    public synchronized void startDump(String path, long intervalSeconds) {
+        stopDump();
+        dumpPath = Paths.get(path);
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleWithFixedDelay(this::dumpQuietly, 0, Math.max(1, intervalSeconds), TimeUnit.SECONDS);
+    }
+
+    /***
+     * Stop the periodic dump after writing a last snapshot
+     */
+    public synchronized void stopDump() {
+        if (dumper == null) return;
+        dumper.shutdownNow();
+        dumper = null;
+        dumpQuietly();
+        dumpPath = null;
+    }
+
+    public void dump(Path path) throws IOException {
+        var directory = path.toAbsolutePath().getParent();
+        var temporary = Files.createTempFile(directory, "metrics", ".tmp");
+        try {
+            Files.write(temporary, gson.toJson(snapshot()).getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private void dumpQuietly() {
+        var path = dumpPath;
+        if (path == null) return;
+        try {
+            dump(path);
+        } catch (IOException e) {
+            System.err.println("Fail to dump metrics.\nReason: " + e.getMessage());
+        }
+    }
+
+    // endregion
+}
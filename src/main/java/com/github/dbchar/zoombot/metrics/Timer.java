@@ -0,0 +1,74 @@
+package com.github.dbchar.zoombot.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * Latency histogram (in nanoseconds) of an operation, with the number of failed and retried runs
+ */
+public class Timer {
+    // region Private Properties
+
+    private static final ThreadLocal<long[]> THREAD_ERROR_COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final String name;
+    private final Histogram latency = new Histogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    // endregion
+
+    // region Public Methods
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    /***
+     * @return System.nanoTime() to pass to {@link #stop(long, boolean)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long startNanos, boolean success) {
+        record(System.nanoTime() - startNanos, success);
+    }
+
+    public void record(long nanos, boolean success) {
+        latency.record(nanos);
+        if (!success) {
+            errors.increment();
+            THREAD_ERROR_COUNT.get()[0]++;
+        }
+    }
+
+    /***
+     * @return number of failures recorded by any timer on the current thread, e.g. to tell whether
+     * a menu command ran into API errors it only printed
+     */
+    public static long getThreadErrorCount() {
+        return THREAD_ERROR_COUNT.get()[0];
+    }
+
+    public void retry() {
+        retries.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    // endregion
+}
@@ -0,0 +1,285 @@
+package com.github.dbchar.zoombot.monitor;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoomapi.models.User;
+import com.github.dbchar.zoombot.cache.ChannelDirectory;
+import com.github.dbchar.zoombot.history.DayRange;
+import com.github.dbchar.zoombot.history.ParallelHistoryFetcher;
+import com.github.dbchar.zoombot.jfr.ListenerDispatchEvent;
+import com.github.dbchar.zoombot.jfr.MonitorPollEvent;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.roster.ChannelRoster;
+import com.github.dbchar.zoombot.roster.RosterFetcher;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/***
+ * State of one monitored channel, polled by the {@link MonitorEngine}.
+ * Counterpart of zoomapi's MonitorTask: the first poll records a baseline,
+ * later polls report received and updated messages and added members.
+ * Polls after the first one only fetch the days from the high-water mark on.
+ * Members are listed far less often than messages, each monitor at its own random offset within the member poll
+ * interval, so many monitors started together do not list their rosters on the same ticks.
+ */
+public class ChannelMonitor {
+    // region Public Constants
+
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 1_000;
+    public static final long DEFAULT_MEMBER_POLL_INTERVAL_MILLIS = 300_000;
+    public static final int FULL_RESYNC_EVERY = 60;
+
+    // endregion
+
+    // region Private Properties
+
+    private final String channelName;
+    private final String fromDate;
+    private final String toDate;
+    private final long pollIntervalMillis;
+    private final ParallelHistoryFetcher historyFetcher;
+    private final RosterFetcher rosterFetcher;
+    private final ChannelDirectory channelDirectory;
+    private final List<BiConsumer<String, Message>> onMessageReceivedListeners = new CopyOnWriteArrayList<>();
+    private final List<BiConsumer<String, Message>> onMessageUpdatedListeners = new CopyOnWriteArrayList<>();
+    private final List<BiConsumer<String, User>> onMemberAddedListeners = new CopyOnWriteArrayList<>();
+
+    private final MessageDiffer messageDiffer = new MessageDiffer();
+    private ChannelRoster members;
+    private long pollCount;
+    private volatile long memberPollIntervalMillis = DEFAULT_MEMBER_POLL_INTERVAL_MILLIS;
+    private long nextMemberPollMillis = Long.MIN_VALUE;
+    private volatile boolean cancelled;
+    private volatile long scheduledAtMillis;
+    private volatile long lastPollLagMillis;
+    private volatile long maxPollLagMillis;
+    private volatile String lastErrorMessage;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * @param rosterFetcher lists the members of the channel, or null to not watch them
+     */
+    public ChannelMonitor(String channelName, String fromDate, String toDate, long pollIntervalMillis,
+                          ParallelHistoryFetcher historyFetcher, RosterFetcher rosterFetcher, ChannelDirectory channelDirectory) {
+        this.channelName = channelName;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.historyFetcher = historyFetcher;
+        this.rosterFetcher = rosterFetcher;
+        this.channelDirectory = channelDirectory;
+    }
+
+    public void setOnMessageReceivedListeners(List<BiConsumer<String, Message>> listeners) {
+        onMessageReceivedListeners.clear();
+        onMessageReceivedListeners.addAll(listeners);
+    }
+
+    public void setOnMessageUpdatedListeners(List<BiConsumer<String, Message>> listeners) {
+        onMessageUpdatedListeners.clear();
+        onMessageUpdatedListeners.addAll(listeners);
+    }
+
+    public void setOnMemberAddedListeners(List<BiConsumer<String, User>> listeners) {
+        onMemberAddedListeners.clear();
+        onMemberAddedListeners.addAll(listeners);
+    }
+
+    /***
+     * @param millis how often the members of the channel are listed, 0 to not watch them
+     */
+    public void setMemberPollInterval(long millis) {
+        this.memberPollIntervalMillis = millis;
+    }
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    /***
+     * @return how late the last poll started compared to its schedule, in milliseconds
+     */
+    public long getLastPollLagMillis() {
+        return lastPollLagMillis;
+    }
+
+    public long getMaxPollLagMillis() {
+        return maxPollLagMillis;
+    }
+
+    public String getLastErrorMessage() {
+        return lastErrorMessage;
+    }
+
+    // endregion
+
+    // region Package Methods (MonitorEngine)
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void setScheduledAtMillis(long scheduledAtMillis) {
+        this.scheduledAtMillis = scheduledAtMillis;
+    }
+
+    /***
+     * @return when the next poll is due, without trying to catch up on missed polls
+     */
+    long getNextDeadlineMillis(long nowMillis) {
+        return Math.max(scheduledAtMillis + pollIntervalMillis, nowMillis);
+    }
+
+    /***
+     * Called by one engine worker at a time
+     */
+    void poll(long nowMillis) {
+        lastPollLagMillis = Math.max(0, nowMillis - scheduledAtMillis);
+        maxPollLagMillis = Math.max(maxPollLagMillis, lastPollLagMillis);
+        MetricsRegistry.INSTANCE.histogram("monitor.poll_lag_ms").record(lastPollLagMillis);
+
+        var event = new MonitorPollEvent();
+        event.begin();
+        try {
+            poll(event, nowMillis);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.channel = channelName;
+                event.lag = lastPollLagMillis;
+                event.success = lastErrorMessage == null;
+                event.commit();
+            }
+        }
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private void poll(MonitorPollEvent event, long nowMillis) {
+        var today = DayRange.format(LocalDate.now());
+        if (fromDate.compareTo(today) > 0) return;
+        var startDate = getFirstDayToPoll(today);
+        var endDate = toDate.compareTo(today) < 0 ? toDate : today;
+        if (startDate.compareTo(endDate) > 0) return;
+        event.fromDay = startDate;
+        event.toDay = endDate;
+
+        // a full resync lists every day of the window from the API, as stored and cached past days never change
+        var result = isFullResync()
+                ? historyFetcher.refetch(channelName, startDate, endDate)
+                : historyFetcher.history(channelName, startDate, endDate, false);
+        if (!result.isSuccess()) {
+            lastErrorMessage = result.getErrorMessage();
+            return;
+        }
+        lastErrorMessage = null;
+        event.messages = result.getItems().size();
+        messageDiffer.apply(result.getItems(), new MessageDiffer.Callback() {
+            @Override
+            public void onReceived(Message message) {
+                ChannelMonitor.this.notify("message_received", onMessageReceivedListeners, message);
+            }
+
+            @Override
+            public void onUpdated(Message message) {
+                ChannelMonitor.this.notify("message_updated", onMessageUpdatedListeners, message);
+            }
+        });
+
+        pollCount++;
+        if (isMemberPollDue(nowMillis)) {
+            event.membersPolled = true;
+            pollMembers();
+        }
+    }
+
+    /***
+     * The first roster listing, which is the baseline, falls at a random point of the first interval,
+     * and the next ones every interval after it
+     */
+    private boolean isMemberPollDue(long nowMillis) {
+        var interval = memberPollIntervalMillis;
+        if (rosterFetcher == null || interval <= 0) return false;
+        if (nextMemberPollMillis == Long.MIN_VALUE) {
+            nextMemberPollMillis = nowMillis + ThreadLocalRandom.current().nextLong(interval);
+        }
+        if (nowMillis < nextMemberPollMillis) return false;
+        nextMemberPollMillis = Math.max(nextMemberPollMillis + interval, nowMillis);
+        return true;
+    }
+
+    /***
+     * Only days from the watermark on can hold new messages, so the rest of the window is
+     * re-examined only on the first poll and every FULL_RESYNC_EVERY polls (to catch edits of older messages)
+     */
+    private String getFirstDayToPoll(String today) {
+        if (!messageDiffer.hasBaseline() || isFullResync()) {
+            return fromDate;
+        }
+
+        var watermark = messageDiffer.getWatermark();
+        var watermarkDay = watermark == Long.MIN_VALUE
+                ? today
+                : DayRange.format(Instant.ofEpochMilli(watermark).atZone(ZoneId.systemDefault()).toLocalDate());
+        return watermarkDay.compareTo(fromDate) > 0 ? watermarkDay : fromDate;
+    }
+
+    /***
+     * @return whether this poll re-examines the whole window from the API; never the first poll, which is the baseline
+     */
+    private boolean isFullResync() {
+        return pollCount > 0 && pollCount % FULL_RESYNC_EVERY == 0;
+    }
+
+    private void pollMembers() {
+        if (rosterFetcher == null) return;
+        var channelId = channelDirectory.getId(channelName);
+        if (channelId == null) return;
+
+        // the roster is only compared, and kept by the fetcher, once it has been listed to the end
+        var current = rosterFetcher.list(channelId);
+        if (current == null) return;
+        if (members != null) {
+            current.getMembersNotIn(members).forEach(member -> notify("member_added", onMemberAddedListeners, member));
+        }
+        members = current;
+    }
+
+    private <T> void notify(String eventName, List<BiConsumer<String, T>> listeners, T item) {
+        var event = new ListenerDispatchEvent();
+        event.begin();
+        var failures = 0;
+        for (var listener : listeners) {
+            try {
+                listener.accept(channelName, item);
+            } catch (Exception e) {
+                failures++;
+                System.err.println("Monitor listener failed at channel '" + channelName + "': " + e.getMessage());
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.event = eventName;
+            event.channel = channelName;
+            event.listeners = listeners.size();
+            event.failures = failures;
+            event.commit();
+        }
+    }
+
+    // endregion
+}
@@ -0,0 +1,94 @@
+package com.github.dbchar.zoombot.monitor;
+
+/***
+ * Open-addressing hash map from primitive long keys to primitive int values, without boxing.
+ */
+class LongIntMap {
+    // region Private Properties
+
+    private static final long EMPTY = 0L;
+    private static final long ZERO_KEY_REPLACEMENT = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    // endregion
+
+    // region Package Methods
+
+    LongIntMap(int expectedSize) {
+        var capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    boolean containsKey(long key) {
+        return keys[indexOf(normalize(key))] != EMPTY;
+    }
+
+    /***
+     * @return the value of the key, or defaultValue if it is absent
+     */
+    int get(long key, int defaultValue) {
+        var index = indexOf(normalize(key));
+        return keys[index] == EMPTY ? defaultValue : values[index];
+    }
+
+    void put(long key, int value) {
+        key = normalize(key);
+        var index = indexOf(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+        if (size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private static long normalize(long key) {
+        return key == EMPTY ? ZERO_KEY_REPLACEMENT : key;
+    }
+
+    private int indexOf(long key) {
+        var mask = keys.length - 1;
+        var index = (int) (mix(key) & mask);
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private void resize() {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        for (var i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                var index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    // endregion
+}
@@ -0,0 +1,90 @@
+package com.github.dbchar.zoombot.monitor;
+
+import com.github.dbchar.zoomapi.models.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/***
+ * Incremental diff of successive polls of one channel.
+ * Keeps a primitive map from message id hash to content hash and a high-water-mark timestamp,
+ * so each poll costs one hash lookup per message instead of rebuilding a snapshot of the window.
+ */
+class MessageDiffer {
+    // region Listeners
+
+    interface Callback {
+        void onReceived(Message message);
+
+        void onUpdated(Message message);
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private final LongIntMap contentHashes = new LongIntMap(256);
+    private long watermark = Long.MIN_VALUE;
+    private boolean hasBaseline;
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * Apply one poll. The first poll only records a baseline.
+     */
+    void apply(List<Message> messages, Callback callback) {
+        for (var message : messages) {
+            var idHash = hashId(message.getId());
+            var contentHash = hashContent(message.getMessage());
+
+            if (!contentHashes.containsKey(idHash)) {
+                contentHashes.put(idHash, contentHash);
+                if (hasBaseline) {
+                    callback.onReceived(message);
+                }
+            } else if (contentHashes.get(idHash, contentHash) != contentHash) {
+                contentHashes.put(idHash, contentHash);
+                if (hasBaseline) {
+                    callback.onUpdated(message);
+                }
+            }
+            watermark = Math.max(watermark, message.getTimestamp());
+        }
+        hasBaseline = true;
+    }
+
+    /***
+     * @return the timestamp of the newest message seen, or Long.MIN_VALUE before the first poll
+     */
+    long getWatermark() {
+        return watermark;
+    }
+
+    boolean hasBaseline() {
+        return hasBaseline;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    /***
+     * 64-bit FNV-1a, so distinct ids practically never collide
+     */
+    private static long hashId(String id) {
+        var hash = 0xcbf29ce484222325L;
+        for (var b : (id == null ? "" : id).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static int hashContent(String content) {
+        return content == null ? 0 : content.hashCode();
+    }
+
+    // endregion
+}
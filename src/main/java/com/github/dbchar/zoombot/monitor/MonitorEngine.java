@@ -0,0 +1,167 @@
+package com.github.dbchar.zoombot.monitor;
+
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler.Lane;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Runs every monitored channel from a single timer-wheel scheduler thread and a small worker pool.
+ * Channels that fall due on the same tick are polled in batches, one batch per worker task,
+ * and a channel whose previous poll is still running is never polled twice at once.
+ */
+public enum MonitorEngine {
+    INSTANCE;
+
+    // region Public Constants
+
+    public static final long TICK_MILLIS = 100;
+    public static final int DEFAULT_WORKER_COUNT = 4;
+    public static final int BATCH_SIZE = 16;
+
+    // endregion
+
+    // region Private Properties
+
+    private static final int WHEEL_SLOTS = 512;
+
+    private final Map<String, ChannelMonitor> monitors = new ConcurrentHashMap<>();
+    private TimerWheel<ChannelMonitor> wheel;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+    private int workerCount = DEFAULT_WORKER_COUNT;
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * Takes effect the next time the engine starts
+     */
+    public synchronized void setWorkerCount(int workerCount) {
+        this.workerCount = Math.max(1, workerCount);
+    }
+
+    public void startTask(ChannelMonitor monitor) {
+        var now = System.currentTimeMillis();
+        synchronized (this) {
+            startService();
+            var previous = monitors.put(monitor.getChannelName(), monitor);
+            if (previous != null) {
+                previous.cancel();
+            }
+            monitor.setScheduledAtMillis(now);
+            wheel.schedule(monitor, now);
+        }
+    }
+
+    public void stopTask(String channelName) {
+        var monitor = monitors.remove(channelName);
+        if (monitor != null) {
+            monitor.cancel();
+        }
+    }
+
+    public void stopAllTasks() {
+        monitors.keySet().forEach(this::stopTask);
+    }
+
+    public Set<String> getMonitoringChannelNames() {
+        return new TreeSet<>(monitors.keySet());
+    }
+
+    /***
+     * @return channel name -> the monitor of that channel, sorted by name
+     */
+    public Map<String, ChannelMonitor> getMonitors() {
+        return new TreeMap<>(monitors);
+    }
+
+    public synchronized void stopService() {
+        stopAllTasks();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            workers.shutdownNow();
+            scheduler = null;
+            workers = null;
+        }
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private synchronized void startService() {
+        if (scheduler != null) return;
+
+        wheel = new TimerWheel<>(TICK_MILLIS, WHEEL_SLOTS, System.currentTimeMillis());
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("monitor-scheduler"));
+        workers = Executors.newFixedThreadPool(workerCount, daemonThreads("monitor-worker"));
+        scheduler.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        List<ChannelMonitor> due;
+        ExecutorService pool;
+        synchronized (this) {
+            if (wheel == null) return;
+            due = wheel.advance(System.currentTimeMillis());
+            pool = workers;
+        }
+
+        var batch = new ArrayList<ChannelMonitor>(BATCH_SIZE);
+        for (var monitor : due) {
+            if (monitor.isCancelled()) continue;
+            batch.add(monitor);
+            if (batch.size() == BATCH_SIZE) {
+                submit(pool, batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submit(pool, batch);
+        }
+    }
+
+    private void submit(ExecutorService pool, List<ChannelMonitor> batch) {
+        try {
+            // polls yield to interactive and bulk requests
+            pool.submit(() -> RequestScheduler.runInLane(Lane.BACKGROUND, () -> pollBatch(batch)));
+        } catch (RejectedExecutionException ignored) {
+            // the service is stopping
+        }
+    }
+
+    private void pollBatch(List<ChannelMonitor> batch) {
+        for (var monitor : batch) {
+            if (monitor.isCancelled()) continue;
+            try {
+                monitor.poll(System.currentTimeMillis());
+            } catch (Exception e) {
+                System.err.println("Failed to poll channel '" + monitor.getChannelName() + "': " + e.getMessage());
+            }
+
+            // a monitor is rescheduled only after its poll has finished
+            var next = monitor.getNextDeadlineMillis(System.currentTimeMillis());
+            synchronized (this) {
+                if (!monitor.isCancelled() && wheel != null) {
+                    monitor.setScheduledAtMillis(next);
+                    wheel.schedule(monitor, next);
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        var count = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // endregion
+}
@@ -0,0 +1,75 @@
+package com.github.dbchar.zoombot.monitor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/***
+ * Hashed timer wheel: scheduling and expiring an item cost O(1) no matter how many items are scheduled.
+ * Not thread-safe on its own; the engine guards it.
+ */
+class TimerWheel<T> {
+    // region Private Properties
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final List<List<Entry<T>>> slots = new ArrayList<>();
+    private final int mask;
+    private long currentTick;
+
+    private static class Entry<T> {
+        final T item;
+        final long tick;
+
+        Entry(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * @param slotCount number of slots, rounded up to a power of two
+     */
+    TimerWheel(long tickMillis, int slotCount, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        var size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        for (var i = 0; i < size; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+    }
+
+    void schedule(T item, long deadlineMillis) {
+        var tick = Math.max(currentTick + 1, (deadlineMillis - startMillis + tickMillis - 1) / tickMillis);
+        slots.get((int) (tick & mask)).add(new Entry<>(item, tick));
+    }
+
+    /***
+     * Advance the wheel to the given time
+     * @return the items whose deadline has passed
+     */
+    List<T> advance(long nowMillis) {
+        var expired = new ArrayList<T>();
+        var targetTick = (nowMillis - startMillis) / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            Iterator<Entry<T>> iterator = slots.get((int) (currentTick & mask)).iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                // entries more than one revolution away stay for a later round
+                if (entry.tick <= currentTick) {
+                    expired.add(entry.item);
+                    iterator.remove();
+                }
+            }
+        }
+        return expired;
+    }
+
+    // endregion
+}
@@ -0,0 +1,164 @@
+package com.github.dbchar.zoombot.roster;
+
+import com.github.dbchar.zoomapi.models.User;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Immutable member list of one channel as slots of the {@link MemberTable}: an int per member
+ * and a byte for their role in the channel, sorted by slot, instead of a list of User objects.
+ * Members are materialized from the table only when read, e.g. for printing.
+ */
+public class ChannelRoster {
+    // region Private Properties
+
+    private static final long OBJECT_OVERHEAD_BYTES = 64;
+
+    private final String channelId;
+    private final int[] slots;
+    private final byte[] roles;
+
+    // endregion
+
+    // region Public Methods
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    public boolean contains(int slot) {
+        return Arrays.binarySearch(slots, slot) >= 0;
+    }
+
+    /***
+     * @return the members, looked up in the member table as they are read
+     */
+    public List<User> getMembers() {
+        return new AbstractList<>() {
+            @Override
+            public User get(int index) {
+                return MemberTable.INSTANCE.get(slots[index], roles[index]);
+            }
+
+            @Override
+            public int size() {
+                return slots.length;
+            }
+        };
+    }
+
+    /***
+     * @return members of this roster that are not in the previous one, e.g. the previous poll of a monitor
+     */
+    public List<User> getMembersNotIn(ChannelRoster previous) {
+        var members = getMembers();
+        var added = new ArrayList<User>();
+        for (var i = 0; i < slots.length; i++) {
+            if (!previous.contains(slots[i])) {
+                added.add(members.get(i));
+            }
+        }
+        return added;
+    }
+
+    public long getSizeInBytes() {
+        return OBJECT_OVERHEAD_BYTES + slots.length * (Integer.BYTES + 1L);
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    int getSlot(int index) {
+        return slots[index];
+    }
+
+    // endregion
+
+    // region Builder
+
+    /***
+     * Collects the members of a channel as they are listed, a page at a time. Not thread-safe.
+     * The builder holds the slots of its members in the member table until it is built, and the roster holds them
+     * from then on; a builder that is given up on is discarded, so its members can be dropped.
+     */
+    public static class Builder {
+        private final String channelId;
+        // slot in the high bits, role code in the low byte, so sorting by slot keeps each role with its member
+        private long[] entries = new long[16];
+        private int size;
+
+        public Builder(String channelId) {
+            this.channelId = channelId;
+        }
+
+        public String getChannelId() {
+            return channelId;
+        }
+
+        /***
+         * Intern the member and add it to the roster
+         * @return the shared instance of the member with its role in this channel
+         */
+        public User add(User user) {
+            var slot = MemberTable.INSTANCE.intern(user);
+            var role = MemberTable.INSTANCE.roleCode(user.getRole());
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = ((long) slot << 8) | (role & 0xFF);
+            return MemberTable.INSTANCE.get(slot, role);
+        }
+
+        public ChannelRoster build() {
+            var sorted = Arrays.copyOf(entries, size);
+            Arrays.sort(sorted);
+
+            // a member listed twice (e.g. across pages while the channel changed) is kept once
+            var slots = new int[size];
+            var roles = new byte[size];
+            var count = 0;
+            for (var entry : sorted) {
+                var slot = (int) (entry >>> 8);
+                if (count > 0 && slots[count - 1] == slot) {
+                    MemberTable.INSTANCE.release(slot);
+                    continue;
+                }
+                slots[count] = slot;
+                roles[count] = (byte) entry;
+                count++;
+            }
+            size = 0;
+            return new ChannelRoster(channelId, Arrays.copyOf(slots, count), Arrays.copyOf(roles, count));
+        }
+
+        /***
+         * Release the members added so far, e.g. when a page failed
+         */
+        public void discard() {
+            for (var i = 0; i < size; i++) {
+                MemberTable.INSTANCE.release((int) (entries[i] >>> 8));
+            }
+            size = 0;
+        }
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private ChannelRoster(String channelId, int[] slots, byte[] roles) {
+        this.channelId = channelId;
+        this.slots = slots;
+        this.roles = roles;
+    }
+
+    // endregion
+}
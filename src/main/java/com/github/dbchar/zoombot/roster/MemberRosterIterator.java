@@ -0,0 +1,113 @@
+package com.github.dbchar.zoombot.roster;
+
+import com.github.dbchar.zoomapi.models.User;
+
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/***
+ * Lazily walks the members of a channel one page at a time, following next-page tokens.
+ * The next page is requested as soon as the current one arrives, so it loads while the current one is consumed;
+ * only these two pages are held in memory, whatever the size of the channel.
+ * Iteration stops at the first failed page; see {@link #getErrorMessage()}.
+ */
+public class MemberRosterIterator implements Iterator<User> {
+    // region Private Properties
+
+    private final Function<String, Future<RosterPage>> pageLoader;
+    private Future<RosterPage> prefetched;
+    private Iterator<User> page = Collections.emptyIterator();
+    private String errorMessage;
+    private int pageCount;
+    private int memberCount;
+
+    // endregion
+
+    // region Public Methods
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (prefetched == null || errorMessage != null) {
+                return false;
+            }
+
+            var result = RosterFetcher.await(prefetched);
+            prefetched = result.isSuccess() && result.getNextPageToken() != null
+                    ? pageLoader.apply(result.getNextPageToken())
+                    : null;
+            if (!result.isSuccess()) {
+                errorMessage = result.getErrorMessage();
+                return false;
+            }
+            pageCount++;
+            page = result.getMembers().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public User next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        memberCount++;
+        return page.next();
+    }
+
+    public Stream<User> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /***
+     * Cancel the prefetched page, if any
+     */
+    public void close() {
+        if (prefetched != null) {
+            prefetched.cancel(true);
+            prefetched = null;
+        }
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /***
+     * @return number of members handed out so far
+     */
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * @param pageLoader starts loading the page of a given token (null for the first page) and returns its future
+     */
+    MemberRosterIterator(Function<String, Future<RosterPage>> pageLoader) {
+        this.pageLoader = pageLoader;
+        this.prefetched = pageLoader.apply(null);
+    }
+
+    /***
+     * Iterate over a roster that is already in memory, e.g. a cached one
+     */
+    MemberRosterIterator(List<User> members) {
+        this.pageLoader = token -> null;
+        this.page = members.iterator();
+        this.pageCount = 1;
+    }
+
+    // endregion
+}
@@ -0,0 +1,207 @@
+package com.github.dbchar.zoombot.roster;
+
+import com.github.dbchar.zoomapi.models.User;
+import com.google.gson.Gson;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Process-wide table of the members seen in any channel, so each person is held once however many channels
+ * they are in. A member is interned into a slot (a small int) by user id; channel rosters are arrays of slots,
+ * see {@link ChannelRoster}.
+ * <p>
+ * The role of a member differs per channel, so it is kept in the roster, not here.
+ * The table also keeps the latest roster of every channel listed or monitored, which makes
+ * "which channels is X in" a lookup over these rosters without any API call.
+ * <p>
+ * Slots are counted by the kept rosters and the roster builders that hold them. Once a roster is replaced or
+ * removed, the members no longer in any are dropped and their slots reused, oldest first, for new members.
+ */
+public enum MemberTable {
+    INSTANCE;
+
+    // region Private Properties
+
+    private static final Gson GSON = new Gson();
+
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private final Map<String, Integer> slotsByEmail = new HashMap<>();
+    private final List<User> members = new ArrayList<>();
+    // kept rosters and roster builders holding each slot
+    private int[] references = new int[16];
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    // roles are few (owner, admin, member), so rosters refer to them by a one-byte code
+    private final List<String> roles = new ArrayList<>();
+    // slot in the high bits, role code in the low byte
+    private final Map<Long, User> membersWithRole = new HashMap<>();
+    private final Map<String, ChannelRoster> rosters = new ConcurrentHashMap<>();
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * @return the slot of the member, adding it or refreshing its record (e.g. a changed name or email).
+     * The caller holds the slot until it releases it, see {@link ChannelRoster.Builder}.
+     */
+    public synchronized int intern(User user) {
+        var slot = slotsById.get(user.getId());
+        if (slot == null) {
+            slot = freeSlots.isEmpty() ? members.size() : freeSlots.poll();
+            if (slot == members.size()) {
+                members.add(user);
+                if (slot == references.length) {
+                    references = Arrays.copyOf(references, slot * 2);
+                }
+            } else {
+                members.set(slot, user);
+            }
+            slotsById.put(user.getId(), slot);
+        } else {
+            var previous = members.get(slot);
+            if (!Objects.equals(previous.getName(), user.getName()) || !Objects.equals(previous.getEmail(), user.getEmail())) {
+                members.set(slot, user);
+                removeEmail(previous, slot);
+                removeMembersWithRole(slot);
+            }
+        }
+        if (user.getEmail() != null) {
+            slotsByEmail.put(user.getEmail().toLowerCase(Locale.ROOT), slot);
+        }
+        references[slot]++;
+        return slot;
+    }
+
+    /***
+     * @return the member in a slot with a role of some channel; one shared instance per member and role,
+     * or null if the slot has been dropped since
+     */
+    public synchronized User get(int slot, byte role) {
+        var member = members.get(slot);
+        if (member == null) return null;
+        var roleName = role < 0 ? null : roles.get(role);
+        if (roleName == null || roleName.equals(member.getRole())) {
+            return member;
+        }
+        return membersWithRole.computeIfAbsent(withRole(slot, role), key -> {
+            var json = GSON.toJsonTree(member).getAsJsonObject();
+            json.addProperty("role", roleName);
+            return GSON.fromJson(json, User.class);
+        });
+    }
+
+    /***
+     * @param idOrEmail user id or email (any case)
+     * @return the slot of the member, or -1 if the member is in no roster seen so far
+     */
+    public synchronized int getSlot(String idOrEmail) {
+        var slot = slotsById.get(idOrEmail);
+        if (slot == null) {
+            slot = slotsByEmail.get(idOrEmail.toLowerCase(Locale.ROOT));
+        }
+        return slot == null ? -1 : slot;
+    }
+
+    /***
+     * @return number of members held by a roster or a roster builder
+     */
+    public synchronized int size() {
+        return members.size() - freeSlots.size();
+    }
+
+    /***
+     * Keep the roster as the latest one of its channel; it takes over the slots its builder held,
+     * and the roster it replaces releases its slots
+     */
+    public void putRoster(ChannelRoster roster) {
+        var previous = rosters.put(roster.getChannelId(), roster);
+        if (previous != null && previous != roster) {
+            release(previous);
+        }
+    }
+
+    /***
+     * @return the latest roster of the channel, or null if it has not been listed or monitored
+     */
+    public ChannelRoster getRoster(String channelId) {
+        return rosters.get(channelId);
+    }
+
+    public void removeRoster(String channelId) {
+        var removed = rosters.remove(channelId);
+        if (removed != null) {
+            release(removed);
+        }
+    }
+
+    /***
+     * @return ids of the channels whose latest roster contains the member
+     */
+    public List<String> getChannelsOf(String idOrEmail) {
+        var slot = getSlot(idOrEmail);
+        if (slot < 0) return List.of();
+
+        var channelIds = new ArrayList<String>();
+        for (var roster : rosters.values()) {
+            if (roster.contains(slot)) {
+                channelIds.add(roster.getChannelId());
+            }
+        }
+        return channelIds;
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    /***
+     * Drop a reference to the slot, and the member once no roster nor builder holds it
+     */
+    synchronized void release(int slot) {
+        if (--references[slot] > 0) return;
+        var member = members.set(slot, null);
+        slotsById.remove(member.getId(), slot);
+        removeEmail(member, slot);
+        removeMembersWithRole(slot);
+        freeSlots.add(slot);
+    }
+
+    synchronized byte roleCode(String role) {
+        if (role == null) return -1;
+        var code = roles.indexOf(role);
+        if (code < 0) {
+            code = roles.size();
+            roles.add(role);
+        }
+        return (byte) code;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private synchronized void release(ChannelRoster roster) {
+        for (var i = 0; i < roster.size(); i++) {
+            release(roster.getSlot(i));
+        }
+    }
+
+    private void removeEmail(User member, int slot) {
+        if (member.getEmail() != null) {
+            slotsByEmail.remove(member.getEmail().toLowerCase(Locale.ROOT), slot);
+        }
+    }
+
+    private void removeMembersWithRole(int slot) {
+        for (var role = 0; role < roles.size(); role++) {
+            membersWithRole.remove(withRole(slot, (byte) role));
+        }
+    }
+
+    private static long withRole(int slot, byte role) {
+        return ((long) slot << 8) | (role & 0xFF);
+    }
+
+    // endregion
+}
@@ -0,0 +1,39 @@
+package com.github.dbchar.zoombot.roster;
+
+import com.github.dbchar.zoomapi.models.User;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+/***
+ * Writes a roster as CSV (id, name, role, email) one member at a time, so exports of any size use constant memory.
+ */
+public class RosterCsv {
+    public static final String HEADER = "id,name,role,email";
+
+    /***
+     * @return number of members written
+     */
+    public static int write(Iterator<User> members, Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        var count = 0;
+        while (members.hasNext()) {
+            var member = members.next();
+            writer.write(escape(member.getId()) + ',' + escape(member.getName()) + ',' +
+                    escape(member.getRole()) + ',' + escape(member.getEmail()) + '\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static String escape(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.dbchar.zoombot.roster;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import com.github.dbchar.zoomapi.components.queries.PageConfiguration;
+import com.github.dbchar.zoomapi.models.User;
+import com.github.dbchar.zoomapi.utils.ListResult;
+import com.github.dbchar.zoombot.auth.TokenManager;
+import com.github.dbchar.zoombot.cache.ResponseCache;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler.EndpointClass;
+
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/***
+ * Lists the members of channels of any size as a stream of pages of MAX_PAGE_SIZE,
+ * loading the next page on a fetcher thread while the caller consumes the current one.
+ * Pages of one roster are chained by their next-page tokens, so each roster has at most one page in flight;
+ * the fetcher threads bound how many rosters are listed at once.
+ * <p>
+ * Members are interned into the {@link MemberTable} as they arrive, and a roster listed to the end
+ * is kept there and in the response cache as a compact {@link ChannelRoster}.
+ */
+public class RosterFetcher {
+    // region Public Constants
+
+    public static final int DEFAULT_PARALLELISM = 2;
+
+    // endregion
+
+    // region Private Properties
+
+    private static final String OPERATION = "chat_channels.list_members";
+
+    private final OAuthZoomClient client;
+    private final ExecutorService executor;
+    private volatile ResponseCache responseCache;
+
+    // endregion
+
+    // region Public Methods
+
+    public RosterFetcher(OAuthZoomClient client, int parallelism) {
+        this.client = client;
+
+        var threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            var thread = new Thread(runnable, "roster-fetcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /***
+     * Stream the members of a channel page by page, starting the first page right away
+     */
+    public MemberRosterIterator stream(String channelId, boolean useCache) {
+        var cache = responseCache;
+        var cached = useCache && cache != null ? cache.getMembers(channelId) : null;
+        if (cached != null) {
+            return new MemberRosterIterator(cached.getMembers());
+        }
+
+        // pages are chained, so they reach the builder one after another
+        var builder = new ChannelRoster.Builder(channelId);
+        var lane = RequestScheduler.currentLane();
+        return new MemberRosterIterator(pageToken ->
+                executor.submit(() -> RequestScheduler.inLane(lane, () -> fetchPage(builder, pageToken))));
+    }
+
+    /***
+     * List every page of the roster of a channel on the calling thread, e.g. a monitor's
+     * @return the roster listed to the end, or null if a page failed
+     */
+    public ChannelRoster list(String channelId) {
+        var builder = new ChannelRoster.Builder(channelId);
+        var pageToken = (String) null;
+        do {
+            var page = fetchPage(builder, pageToken);
+            if (!page.isSuccess()) return null;
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        // the last page put the roster into the member table
+        return MemberTable.INSTANCE.getRoster(channelId);
+    }
+
+    /***
+     * Serve rosters from the cache when the caller asks to use it, and put every one listed to the end into it
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private RosterPage fetchPage(ChannelRoster.Builder builder, String pageToken) {
+        var result = withRetry(() -> client.getChatChannelsComponent().listMembers(
+                builder.getChannelId(), new PageConfiguration(PageConfiguration.MAX_PAGE_SIZE, pageToken)));
+        if (!result.isSuccess()) {
+            // the roster is not listed to the end, so the members listed so far are not kept for it
+            builder.discard();
+            return RosterPage.failure(result.getErrorMessage());
+        }
+
+        // hand out the shared member instances, so the page's own User objects are garbage right away
+        var members = new ArrayList<User>();
+        if (result.getItems() != null) {
+            result.getItems().forEach(member -> members.add(builder.add(member)));
+        }
+        var page = RosterPage.success(members, result.getNextPageToken());
+        if (page.getNextPageToken() == null) {
+            var roster = builder.build();
+            MemberTable.INSTANCE.putRoster(roster);
+            var cache = responseCache;
+            if (cache != null) {
+                cache.putMembers(roster);
+            }
+        }
+        return page;
+    }
+
+    private ListResult<User> withRetry(Supplier<ListResult<User>> request) {
+        // First attempt, refreshing the token if it has expired
+        var result = RequestScheduler.INSTANCE.call(EndpointClass.MEMBERS, OPERATION, request);
+        if (!TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+            // Second attempt
+            MetricsRegistry.INSTANCE.apiTimer(OPERATION).retry();
+            result = RequestScheduler.INSTANCE.call(EndpointClass.MEMBERS, OPERATION, request);
+        }
+        return result;
+    }
+
+    static RosterPage await(Future<RosterPage> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RosterPage.failure("Interrupted while listing members");
+        } catch (ExecutionException e) {
+            return RosterPage.failure(String.valueOf(e.getCause().getMessage()));
+        } catch (CancellationException e) {
+            return RosterPage.failure("Listing members was cancelled");
+        }
+    }
+
+    // endregion
+}
@@ -0,0 +1,56 @@
+package com.github.dbchar.zoombot.roster;
+
+import com.github.dbchar.zoomapi.models.User;
+
+import java.util.List;
+
+/***
+ * One page of a channel roster, or the error that ended the listing.
+ */
+class RosterPage {
+    // region Private Properties
+
+    private final List<User> members;
+    private final String nextPageToken;
+    private final String errorMessage;
+
+    // endregion
+
+    // region Package Methods
+
+    private RosterPage(List<User> members, String nextPageToken, String errorMessage) {
+        this.members = members;
+        this.nextPageToken = nextPageToken;
+        this.errorMessage = errorMessage;
+    }
+
+    static RosterPage success(List<User> members, String nextPageToken) {
+        return new RosterPage(members == null ? List.of() : members,
+                nextPageToken == null || nextPageToken.isEmpty() ? null : nextPageToken, null);
+    }
+
+    static RosterPage failure(String errorMessage) {
+        return new RosterPage(List.of(), null, errorMessage);
+    }
+
+    boolean isSuccess() {
+        return errorMessage == null;
+    }
+
+    List<User> getMembers() {
+        return members;
+    }
+
+    /***
+     * @return token of the next page, or null on the last page
+     */
+    String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    String getErrorMessage() {
+        return errorMessage;
+    }
+
+    // endregion
+}
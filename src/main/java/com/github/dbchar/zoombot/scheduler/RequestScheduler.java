@@ -0,0 +1,389 @@
+package com.github.dbchar.zoombot.scheduler;
+
+import com.github.dbchar.zoomapi.utils.ListResult;
+import com.github.dbchar.zoomapi.utils.Result;
+import com.github.dbchar.zoombot.auth.TokenManager;
+import com.github.dbchar.zoombot.jfr.ApiCallEvent;
+import com.github.dbchar.zoombot.jfr.Payload;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/***
+ * Central gate for every zoomapi call.
+ * Each endpoint class has a token bucket sized to its per-second budget, and callers wait in one of three
+ * priority lanes until a token is available. A waiting INTERACTIVE call always gets the next token of its
+ * endpoint class before BULK and BACKGROUND calls do, so the menu stays responsive while monitors poll.
+ * When a response still reports a rate limit, the endpoint class backs off and the call is retried once.
+ * <p>
+ * The calling thread runs the request itself; the scheduler has no threads of its own.
+ */
+public enum RequestScheduler {
+    INSTANCE;
+
+    // region Public Constants
+
+    /***
+     * Priority lanes, highest first
+     */
+    public enum Lane {
+        INTERACTIVE,
+        BULK,
+        BACKGROUND
+    }
+
+    public enum EndpointClass {
+        USERS(30),
+        CHANNELS(20),
+        MEMBERS(20),
+        CONTACTS(20),
+        MESSAGES_READ(20),
+        MESSAGES_WRITE(10);
+
+        private final double defaultPerSecond;
+
+        EndpointClass(double defaultPerSecond) {
+            this.defaultPerSecond = defaultPerSecond;
+        }
+
+        public double getDefaultPerSecond() {
+            return defaultPerSecond;
+        }
+
+        /***
+         * @return key of the budget in the [Scheduler] section of bot.ini, e.g. messages_write_per_second
+         */
+        public String getConfigKey() {
+            return name().toLowerCase() + "_per_second";
+        }
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private static final long THROTTLED_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_THROTTLED_RETRIES = 1;
+    private static final String WAIT_METRIC_PREFIX = "scheduler.wait_ns.";
+    private static final ThreadLocal<Lane> CURRENT_LANE = ThreadLocal.withInitial(() -> Lane.INTERACTIVE);
+
+    private static class Ticket {
+        final EndpointClass endpoint;
+        boolean granted;
+
+        Ticket(EndpointClass endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private static class TokenBucket {
+        private double perSecond;
+        private double capacity;
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+        private long pausedUntilNanos;
+
+        TokenBucket(double perSecond) {
+            setRate(perSecond);
+            tokens = capacity;
+        }
+
+        void setRate(double perSecond) {
+            this.perSecond = Math.max(0.1, perSecond);
+            // allow a burst of one second worth of requests
+            this.capacity = Math.max(1, this.perSecond);
+            tokens = Math.min(tokens, capacity);
+        }
+
+        boolean tryTake(long now) {
+            refill(now);
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
+
+        long nanosUntilToken(long now) {
+            if (now < pausedUntilNanos) return pausedUntilNanos - now;
+            return Math.max(1, (long) Math.ceil((1 - tokens) * 1e9 / perSecond));
+        }
+
+        void pause(long now, long nanos) {
+            tokens = 0;
+            pausedUntilNanos = now + nanos;
+            lastRefillNanos = pausedUntilNanos;
+        }
+
+        private void refill(long now) {
+            if (now <= lastRefillNanos) return;
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * perSecond / 1e9);
+            lastRefillNanos = now;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<EndpointClass, TokenBucket> buckets = new EnumMap<>(EndpointClass.class);
+    // one queue per lane, iterated in lane order
+    private final Map<Lane, ArrayDeque<Ticket>> queues = new EnumMap<>(Lane.class);
+    private final AtomicLong throttledCount = new AtomicLong();
+    private volatile boolean stopped;
+
+    // endregion
+
+    // region Constructors
+
+    RequestScheduler() {
+        for (var endpoint : EndpointClass.values()) {
+            buckets.put(endpoint, new TokenBucket(endpoint.getDefaultPerSecond()));
+        }
+        for (var lane : Lane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+        }
+    }
+
+    // endregion
+
+    // region Public Methods
+
+    /***
+     * @return lane of calls made by the current thread (INTERACTIVE unless set with runInLane/inLane)
+     */
+    public static Lane currentLane() {
+        return CURRENT_LANE.get();
+    }
+
+    public static <T> T inLane(Lane lane, Supplier<T> task) {
+        var previous = CURRENT_LANE.get();
+        CURRENT_LANE.set(lane);
+        try {
+            return task.get();
+        } finally {
+            CURRENT_LANE.set(previous);
+        }
+    }
+
+    public static void runInLane(Lane lane, Runnable task) {
+        inLane(lane, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public void setRate(EndpointClass endpoint, double perSecond) {
+        lock.lock();
+        try {
+            buckets.get(endpoint).setRate(perSecond);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***
+     * Run a request in the lane of the current thread
+     */
+    public <T> T call(EndpointClass endpoint, String operation, Supplier<T> request) {
+        return call(currentLane(), endpoint, operation, request);
+    }
+
+    /***
+     * Wait for a token of the endpoint class, then run the request on the calling thread.
+     * The time spent waiting is recorded per lane and the request itself under the operation name.
+     * @param operation component and method for the metrics, e.g. "chat_channels.list"
+     * @throws CancellationException if the scheduler is stopped or the thread is interrupted while waiting
+     */
+    public <T> T call(Lane lane, EndpointClass endpoint, String operation, Supplier<T> request) {
+        var metrics = MetricsRegistry.INSTANCE;
+        var timer = metrics.apiTimer(operation);
+        for (var attempt = 0; ; attempt++) {
+            var waitStart = System.nanoTime();
+            acquire(lane, endpoint);
+            TokenManager.INSTANCE.awaitFreshToken();
+            metrics.histogram(WAIT_METRIC_PREFIX + lane.name().toLowerCase()).record(System.nanoTime() - waitStart);
+
+            var event = new ApiCallEvent();
+            var start = timer.start();
+            event.begin();
+            T result;
+            try {
+                result = request.get();
+            } catch (RuntimeException e) {
+                timer.stop(start, false);
+                commitEvent(event, lane, endpoint, operation, attempt, null, String.valueOf(e.getMessage()));
+                throw e;
+            }
+            var errorMessage = errorMessageOf(result);
+            timer.stop(start, errorMessage == null);
+            commitEvent(event, lane, endpoint, operation, attempt, result, errorMessage);
+            if (attempt >= MAX_THROTTLED_RETRIES || !isThrottled(errorMessage)) {
+                return result;
+            }
+            throttledCount.incrementAndGet();
+            timer.retry();
+            backOff(endpoint);
+        }
+    }
+
+    /***
+     * @return number of calls waiting for a token in all lanes
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            var depth = 0;
+            for (var queue : queues.values()) depth += queue.size();
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth(Lane lane) {
+        lock.lock();
+        try {
+            return queues.get(lane).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***
+     * @return number of responses that reported a rate limit despite the budgets
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /***
+     * Fail all waiting and future calls
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private void acquire(Lane lane, EndpointClass endpoint) {
+        var ticket = new Ticket(endpoint);
+        lock.lock();
+        try {
+            queues.get(lane).add(ticket);
+            while (true) {
+                if (stopped) {
+                    queues.get(lane).remove(ticket);
+                    throw new CancellationException("Request scheduler is stopped");
+                }
+                var waitNanos = dispatch();
+                if (ticket.granted) return;
+                if (waitNanos == Long.MAX_VALUE) {
+                    changed.await();
+                } else {
+                    changed.awaitNanos(waitNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queues.get(lane).remove(ticket);
+            throw new CancellationException("Interrupted while waiting for a request slot");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***
+     * Grant tokens to waiting tickets in lane order. Once a ticket of an endpoint class has to wait,
+     * no later ticket of that class may take a token, which keeps each class FIFO within a lane
+     * and lets higher lanes go first.
+     * @return nanos until the next token of a waiting endpoint class, or Long.MAX_VALUE if nothing waits
+     */
+    private long dispatch() {
+        var now = System.nanoTime();
+        var blocked = EnumSet.noneOf(EndpointClass.class);
+        var waitNanos = Long.MAX_VALUE;
+        var granted = false;
+
+        for (var queue : queues.values()) {
+            for (var iterator = queue.iterator(); iterator.hasNext(); ) {
+                var ticket = iterator.next();
+                if (blocked.contains(ticket.endpoint)) continue;
+
+                var bucket = buckets.get(ticket.endpoint);
+                if (bucket.tryTake(now)) {
+                    ticket.granted = true;
+                    iterator.remove();
+                    granted = true;
+                } else {
+                    blocked.add(ticket.endpoint);
+                    waitNanos = Math.min(waitNanos, bucket.nanosUntilToken(now));
+                }
+            }
+        }
+
+        if (granted) {
+            changed.signalAll();
+        }
+        return waitNanos;
+    }
+
+    private void backOff(EndpointClass endpoint) {
+        lock.lock();
+        try {
+            buckets.get(endpoint).pause(System.nanoTime(), THROTTLED_BACKOFF_NANOS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void commitEvent(ApiCallEvent event, Lane lane, EndpointClass endpoint, String operation,
+                                    int attempt, Object result, String errorMessage) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.operation = operation;
+        event.endpoint = endpoint.name();
+        event.lane = lane.name();
+        event.attempt = attempt;
+        event.success = errorMessage == null;
+        event.items = Payload.itemsOf(result);
+        event.bytes = Payload.bytesOf(result);
+        event.errorMessage = errorMessage;
+        event.commit();
+    }
+
+    /***
+     * @return the error message of a failed Result or ListResult, "" if it has none, or null on success
+     */
+    private static String errorMessageOf(Object result) {
+        if (result instanceof Result && !((Result<?>) result).isSuccess()) {
+            return String.valueOf(((Result<?>) result).getErrorMessage());
+        } else if (result instanceof ListResult && !((ListResult<?>) result).isSuccess()) {
+            return String.valueOf(((ListResult<?>) result).getErrorMessage());
+        }
+        return null;
+    }
+
+    private static boolean isThrottled(String errorMessage) {
+        if (errorMessage == null) return false;
+
+        var lowerCase = errorMessage.toLowerCase();
+        return lowerCase.contains("429") || lowerCase.contains("rate limit") || lowerCase.contains("too many requests");
+    }
+
+    // endregion
+}
@@ -0,0 +1,91 @@
+package com.github.dbchar.zoombot.script;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Parses bot scripts: one command per line, arguments separated by blanks,
+ * arguments containing blanks in double quotes (with \" and \\ escapes), '#' starts a comment line.
+ * <pre>
+ * # archive yesterday and post a note
+ * history general 2020-05-01 2020-05-02
+ * message.send general "archived 2 days"
+ * wait
+ * channels
+ * </pre>
+ */
+public class ScriptParser {
+    // region Public Methods
+
+    /***
+     * @param path script file, or "-" for standard input
+     */
+    public static List<ScriptStep> parse(String path) throws IOException {
+        var input = path.equals("-") ? System.in : new FileInputStream(path);
+        try (var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            return parse(reader);
+        }
+    }
+
+    public static List<ScriptStep> parse(BufferedReader reader) throws IOException {
+        var steps = new ArrayList<ScriptStep>();
+        var lineNumber = 0;
+        for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            var trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+            var tokens = tokenize(trimmed, lineNumber);
+            steps.add(new ScriptStep(lineNumber, tokens.get(0), tokens.subList(1, tokens.size())));
+        }
+        return steps;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private static List<String> tokenize(String line, int lineNumber) {
+        var tokens = new ArrayList<String>();
+        var token = new StringBuilder();
+        var inQuotes = false;
+        var hasToken = false;
+
+        for (var i = 0; i < line.length(); i++) {
+            var c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '\\' && i + 1 < line.length()) {
+                    token.append(line.charAt(++i));
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    token.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+                hasToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (hasToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    hasToken = false;
+                }
+            } else {
+                token.append(c);
+                hasToken = true;
+            }
+        }
+
+        if (inQuotes) {
+            throw new IllegalArgumentException("line " + lineNumber + ": unterminated quote");
+        }
+        if (hasToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    // endregion
+}
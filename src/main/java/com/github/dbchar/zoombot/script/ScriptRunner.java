@@ -0,0 +1,497 @@
+package com.github.dbchar.zoombot.script;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import com.github.dbchar.zoomapi.models.Channel;
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoomapi.models.User;
+import com.github.dbchar.zoomapi.utils.ListResult;
+import com.github.dbchar.zoomapi.utils.Result;
+import com.github.dbchar.zoombot.auth.TokenManager;
+import com.github.dbchar.zoombot.cache.ChannelDirectory;
+import com.github.dbchar.zoombot.cache.ResponseCache;
+import com.github.dbchar.zoombot.history.DayRange;
+import com.github.dbchar.zoombot.history.HistoryResult;
+import com.github.dbchar.zoombot.history.LocalMessages;
+import com.github.dbchar.zoombot.history.ParallelHistoryFetcher;
+import com.github.dbchar.zoombot.index.MessageIndex;
+import com.github.dbchar.zoombot.roster.MemberTable;
+import com.github.dbchar.zoombot.roster.RosterFetcher;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+import com.github.dbchar.zoombot.store.MessageStore;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.github.dbchar.zoombot.scheduler.RequestScheduler.EndpointClass.*;
+
+/***
+ * Runs a parsed bot script without any user interaction.
+ * Steps run concurrently on a bounded pool, except that steps naming the same channel
+ * run in script order, and a 'wait' step runs only after every earlier step has finished.
+ * Each finished step is written as one JSON line, followed by a summary line.
+ * <p>
+ * Commands ({@code <channel>} is a channel name or id):
+ * <pre>
+ * channels [cache]                           contacts
+ * channel.create &lt;name&gt; [email...]            channel.get &lt;channel&gt;
+ * channel.update &lt;channel&gt; &lt;new name&gt;        channel.delete &lt;channel&gt;
+ * channel.members &lt;channel&gt;                  channel.invite &lt;channel&gt; &lt;email...&gt;
+ * channel.join &lt;channel id&gt;                  channel.leave &lt;channel&gt;
+ * channel.remove-member &lt;channel&gt; &lt;member id&gt;
+ * message.list &lt;channel&gt; [date]             message.send &lt;channel&gt; &lt;text&gt;
+ * message.update &lt;channel&gt; &lt;message id&gt; &lt;text&gt;
+ * message.delete &lt;channel&gt; &lt;message id&gt;
+ * history &lt;channel&gt; &lt;from&gt; [to]
+ * search &lt;channel&gt; &lt;from&gt; &lt;to&gt; &lt;query&gt;    search.sender &lt;channel&gt; &lt;from&gt; &lt;to&gt; &lt;query&gt;
+ * search.sender.all &lt;from&gt; &lt;to&gt; &lt;query&gt;    (fetches the days not indexed yet in every channel first)
+ * member.channels &lt;member id or email&gt;    (channels whose members were listed earlier in the run)
+ * wait
+ * </pre>
+ */
+public class ScriptRunner {
+    // region Public Constants
+
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final String COMMAND_WAIT = "wait";
+
+    // endregion
+
+    // region Private Properties
+
+    private interface Operation {
+        Object run(ScriptStep step) throws Exception;
+    }
+
+    private static class Command {
+        final int minArgs;
+        final int maxArgs;
+        final boolean channelScoped;
+        final Operation operation;
+
+        Command(int minArgs, int maxArgs, boolean channelScoped, Operation operation) {
+            this.minArgs = minArgs;
+            this.maxArgs = maxArgs;
+            this.channelScoped = channelScoped;
+            this.operation = operation;
+        }
+    }
+
+    private static final int UNLIMITED_ARGS = Integer.MAX_VALUE;
+
+    private final OAuthZoomClient client;
+    private final String userId;
+    private final String userEmail;
+    private final ChannelDirectory channelDirectory;
+    private final ResponseCache responseCache;
+    private final ParallelHistoryFetcher historyFetcher;
+    private final RosterFetcher rosterFetcher;
+    private final MessageIndex messageIndex;
+    private final MessageStore messageStore;
+    private final ExecutorService executor;
+    private final Map<String, Command> commands = new HashMap<>();
+    private final Gson gson = new Gson();
+
+    // endregion
+
+    // region Public Methods
+
+    public ScriptRunner(OAuthZoomClient client, User user, ChannelDirectory channelDirectory, ResponseCache responseCache,
+                        ParallelHistoryFetcher historyFetcher, RosterFetcher rosterFetcher, MessageIndex messageIndex,
+                        MessageStore messageStore, int parallelism) {
+        this.client = client;
+        this.userId = user.getId();
+        this.userEmail = user.getEmail();
+        this.channelDirectory = channelDirectory;
+        this.responseCache = responseCache;
+        this.historyFetcher = historyFetcher;
+        this.rosterFetcher = rosterFetcher;
+        this.messageIndex = messageIndex;
+        this.messageStore = messageStore;
+
+        var threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            var thread = new Thread(runnable, "script-runner-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        addCommands();
+    }
+
+    /***
+     * Check every step before running anything, so a typo at the end of a script does not leave it half done
+     * @throws IllegalArgumentException naming the first invalid step
+     */
+    public void validate(List<ScriptStep> steps) {
+        for (var step : steps) {
+            if (step.getCommand().equals(COMMAND_WAIT)) continue;
+            var command = commands.get(step.getCommand());
+            if (command == null) {
+                throw new IllegalArgumentException("line " + step.getLine() + ": unknown command '" + step.getCommand() + "'");
+            }
+            var argCount = step.getArgs().size();
+            if (argCount < command.minArgs || argCount > command.maxArgs) {
+                throw new IllegalArgumentException("line " + step.getLine() + ": wrong number of arguments for '" + step.getCommand() + "'");
+            }
+        }
+    }
+
+    /***
+     * Run all steps and write one JSON line per step to the output
+     * @return number of failed steps
+     */
+    public int run(List<ScriptStep> steps, Writer output) {
+        validate(steps);
+
+        var startNanos = System.nanoTime();
+        var failed = new AtomicInteger();
+        var pending = new ArrayList<CompletableFuture<Void>>();
+        var lastStepByChannel = new HashMap<String, CompletableFuture<Void>>();
+
+        for (var step : steps) {
+            if (step.getCommand().equals(COMMAND_WAIT)) {
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+                pending.clear();
+                lastStepByChannel.clear();
+                continue;
+            }
+
+            var command = commands.get(step.getCommand());
+            var channelKey = command.channelScoped ? orderingKey(step.getArg(0)) : null;
+            var previous = channelKey == null ? null : lastStepByChannel.get(channelKey);
+            var future = previous == null
+                    ? CompletableFuture.runAsync(() -> executeInBulkLane(step, command, failed, output), executor)
+                    : previous.thenRunAsync(() -> executeInBulkLane(step, command, failed, output), executor);
+            if (channelKey != null) {
+                lastStepByChannel.put(channelKey, future);
+            }
+            pending.add(future);
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+
+        var summary = new LinkedHashMap<String, Object>();
+        summary.put("summary", true);
+        summary.put("steps", steps.stream().filter(step -> !step.getCommand().equals(COMMAND_WAIT)).count());
+        summary.put("failed", failed.get());
+        summary.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        writeLine(output, summary);
+        return failed.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // endregion
+
+    // region Commands
+
+    private void addCommands() {
+        commands.put("channels", new Command(0, 1, false, step -> {
+            var useCache = !step.getArgs().isEmpty() && step.getArg(0).equals("cache");
+            var channels = useCache ? responseCache.getChannels() : null;
+            if (channels == null) {
+                channels = checked(RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.list",
+                        () -> client.getChatChannelsComponent().list(null, false)));
+                responseCache.putChannels(channels);
+                channelDirectory.update(channels);
+            }
+            return channels.stream().map(ScriptRunner::toJson).collect(Collectors.toList());
+        }));
+        commands.put("contacts", new Command(0, 0, false, step ->
+                checked(RequestScheduler.INSTANCE.call(CONTACTS, "contacts.list_external", () -> client.getContactsComponent().listExternal())).stream()
+                        .map(ScriptRunner::toJson).collect(Collectors.toList())));
+
+        commands.put("channel.create", new Command(1, UNLIMITED_ARGS, true, step -> {
+            var channel = checked(RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.create", () -> client.getChatChannelsComponent().create(
+                    step.getArg(0), step.getArgs().subList(1, step.getArgs().size()))));
+            channelDirectory.put(channel.getId(), channel.getName());
+            responseCache.invalidateChannels();
+            return toJson(channel);
+        }));
+        commands.put("channel.get", new Command(1, 1, true, step ->
+                toJson(checked(RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.get", () -> client.getChatChannelsComponent().get(channelId(step.getArg(0))))))));
+        commands.put("channel.update", new Command(2, 2, true, step -> {
+            var channelId = channelId(step.getArg(0));
+            checked(RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.update", () -> client.getChatChannelsComponent().update(channelId, step.getArg(1))));
+            responseCache.invalidateRenamedChannel(channelDirectory.rename(channelId, step.getArg(1)));
+            return null;
+        }));
+        commands.put("channel.delete", new Command(1, 1, true, step -> {
+            var channelId = channelId(step.getArg(0));
+            checked(RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.delete", () -> client.getChatChannelsComponent().delete(channelId)));
+            responseCache.invalidateChannel(channelId, channelDirectory.remove(channelId));
+            return null;
+        }));
+        commands.put("channel.members", new Command(1, 1, true, step -> {
+            var members = rosterFetcher.stream(channelId(step.getArg(0)), false);
+            var json = members.stream().map(ScriptRunner::toJson).collect(Collectors.toList());
+            if (members.getErrorMessage() != null) {
+                throw new IllegalStateException(members.getErrorMessage());
+            }
+            return json;
+        }));
+        commands.put("channel.invite", new Command(2, UNLIMITED_ARGS, true, step -> {
+            var channelId = channelId(step.getArg(0));
+            var response = checked(RequestScheduler.INSTANCE.call(MEMBERS, "chat_channels.invite_members", () -> client.getChatChannelsComponent().inviteMembers(
+                    channelId, step.getArgs().subList(1, step.getArgs().size()))));
+            responseCache.invalidateMembers(channelId);
+            return Map.of("ids", String.valueOf(response.getIds()), "added_at", String.valueOf(response.getAddedDate()));
+        }));
+        commands.put("channel.join", new Command(1, 1, true, step -> {
+            var response = checked(RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.join", () -> client.getChatChannelsComponent().join(step.getArg(0))));
+            channelDirectory.invalidate();
+            responseCache.invalidateChannels();
+            return Map.of("id", String.valueOf(response.getId()), "added_at", String.valueOf(response.getAddedDate()));
+        }));
+        commands.put("channel.leave", new Command(1, 1, true, step -> {
+            var channelId = channelId(step.getArg(0));
+            checked(RequestScheduler.INSTANCE.call(CHANNELS, "chat_channels.leave", () -> client.getChatChannelsComponent().leave(channelId)));
+            responseCache.invalidateChannel(channelId, channelDirectory.remove(channelId));
+            return null;
+        }));
+        commands.put("channel.remove-member", new Command(2, 2, true, step -> {
+            var channelId = channelId(step.getArg(0));
+            checked(RequestScheduler.INSTANCE.call(MEMBERS, "chat_channels.delete_members", () -> client.getChatChannelsComponent().deleteMembers(channelId, step.getArg(1))));
+            responseCache.invalidateMembers(channelId);
+            return null;
+        }));
+
+        commands.put("message.list", new Command(1, 2, true, step -> {
+            var date = step.getArgs().size() > 1 ? step.getArg(1) : null;
+            return checked(RequestScheduler.INSTANCE.call(MESSAGES_READ, "chat_messages.list", () -> client.getChatMessagesComponent().list(userId, null, channelId(step.getArg(0)), date, null)))
+                    .stream().map(ScriptRunner::toJson).collect(Collectors.toList());
+        }));
+        commands.put("message.send", new Command(2, 2, true, step -> {
+            var id = checked(RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.send", () -> client.getChatMessagesComponent().send(step.getArg(1), null, channelId(step.getArg(0)))));
+            // write through to the cached day and the index, so later searches see the message without a refetch
+            var message = LocalMessages.sent(id, step.getArg(1), userEmail, System.currentTimeMillis());
+            var channelName = channelName(step.getArg(0));
+            var day = DayRange.format(message.getTimestamp());
+            responseCache.addToHistory(channelName, day, message);
+            messageIndex.add(channelName, day, message);
+            return Map.of("id", id);
+        }));
+        commands.put("message.update", new Command(3, 3, true, step -> {
+            checked(RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.update", () -> client.getChatMessagesComponent().update(step.getArg(1), step.getArg(2), null, channelId(step.getArg(0)))));
+            var channelName = channelName(step.getArg(0));
+            var message = findMessage(channelName, step.getArg(1));
+            if (message == null) {
+                // not indexed nor stored, so only a cached day can still hold it
+                responseCache.invalidateHistory(channelName);
+                return null;
+            }
+            var updated = LocalMessages.withText(message, step.getArg(2));
+            var day = DayRange.format(message.getTimestamp());
+            responseCache.replaceInHistory(channelName, day, updated);
+            messageIndex.add(channelName, day, updated);
+            if (messageStore != null) {
+                messageStore.replaceMessage(channelId(channelName), DayRange.parse(day).toEpochDay(), updated);
+            }
+            return null;
+        }));
+        commands.put("message.delete", new Command(2, 2, true, step -> {
+            checked(RequestScheduler.INSTANCE.call(MESSAGES_WRITE, "chat_messages.delete", () -> client.getChatMessagesComponent().delete(step.getArg(1), null, channelId(step.getArg(0)))));
+            var channelName = channelName(step.getArg(0));
+            var message = findMessage(channelName, step.getArg(1));
+            if (message == null) {
+                responseCache.invalidateHistory(channelName);
+                return null;
+            }
+            var day = DayRange.format(message.getTimestamp());
+            responseCache.removeFromHistory(channelName, day, message.getId());
+            messageIndex.remove(channelName, day, message.getId());
+            if (messageStore != null) {
+                messageStore.removeMessage(channelId(channelName), DayRange.parse(day).toEpochDay(), message.getId());
+            }
+            return null;
+        }));
+
+        commands.put("history", new Command(2, 3, true, step -> {
+            var from = step.getArg(1);
+            var to = step.getArgs().size() > 2 ? step.getArg(2) : from;
+            return toJson(historyFetcher.history(channelName(step.getArg(0)), from, to));
+        }));
+        commands.put("search", new Command(4, 4, true, step -> {
+            var channelName = channelName(step.getArg(0));
+            fetchMissingDays(channelName, step.getArg(1), step.getArg(2));
+            return toJson(messageIndex.search(channelName, step.getArg(1), step.getArg(2), step.getArg(3)));
+        }));
+        commands.put("search.sender", new Command(4, 4, true, step -> {
+            var channelName = channelName(step.getArg(0));
+            fetchMissingDays(channelName, step.getArg(1), step.getArg(2));
+            return toJson(messageIndex.searchBySender(channelName, step.getArg(1), step.getArg(2), step.getArg(3)));
+        }));
+        commands.put("search.sender.all", new Command(3, 3, false, step -> {
+            // like the other searches, days that are not indexed yet are fetched first, here in every channel
+            var fromDate = step.getArg(0);
+            var toDate = step.getArg(1);
+            var channelNames = channelDirectory.getChannelNames();
+            for (var channelName : channelNames) {
+                fetchMissingDays(channelName, fromDate, toDate);
+            }
+            // the index may have dropped fetched days again to stay within its budget
+            var unindexedDays = messageIndex.getUnindexedDays(channelNames, fromDate, toDate);
+            if (!unindexedDays.isEmpty()) {
+                throw new IllegalStateException("Days of " + unindexedDays.size() + " channels do not fit in the index, "
+                        + "e.g. " + unindexedDays.keySet().iterator().next() + "; search a shorter range or raise [Index] max_megabytes");
+            }
+            var results = new LinkedHashMap<String, Object>();
+            messageIndex.searchBySenderInAllChannels(fromDate, toDate, step.getArg(2))
+                    .forEach((channelName, messages) -> results.put(channelName,
+                            messages.stream().map(ScriptRunner::toJson).collect(Collectors.toList())));
+            return results;
+        }));
+        commands.put("member.channels", new Command(1, 1, false, step ->
+                MemberTable.INSTANCE.getChannelsOf(step.getArg(0)).stream()
+                        .map(channelId -> Map.of("id", channelId, "name", Objects.requireNonNullElse(channelDirectory.getName(channelId), "")))
+                        .collect(Collectors.toList())));
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private void executeInBulkLane(ScriptStep step, Command command, AtomicInteger failed, Writer output) {
+        RequestScheduler.runInLane(RequestScheduler.Lane.BULK, () -> execute(step, command, failed, output));
+    }
+
+    private void execute(ScriptStep step, Command command, AtomicInteger failed, Writer output) {
+        var line = new LinkedHashMap<String, Object>();
+        line.put("line", step.getLine());
+        line.put("command", step.getCommand());
+        line.put("args", step.getArgs());
+
+        var startNanos = System.nanoTime();
+        try {
+            var result = command.operation.run(step);
+            line.put("success", true);
+            if (result != null) {
+                line.put("result", result);
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            line.put("success", false);
+            line.put("error", String.valueOf(e.getMessage()));
+        }
+        line.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        writeLine(output, line);
+    }
+
+    private void writeLine(Writer output, Map<String, Object> line) {
+        var json = gson.toJson(line);
+        synchronized (output) {
+            try {
+                output.write(json);
+                output.write('\n');
+                output.flush();
+            } catch (IOException e) {
+                System.err.println("Fail to write script output.\nReason: " + e.getMessage());
+            }
+        }
+    }
+
+    /***
+     * Only days that are not indexed yet are fetched; fetching them indexes them
+     */
+    private void fetchMissingDays(String channelName, String fromDate, String toDate) {
+        var missingDays = messageIndex.getMissingDays(channelName, fromDate, toDate);
+        if (!missingDays.isEmpty()) {
+            requireSuccess(historyFetcher.history(channelName, missingDays, false));
+        }
+    }
+
+    private String channelId(String channel) {
+        var id = channelDirectory.getId(channel);
+        if (id != null) return id;
+        if (channelDirectory.getName(channel) != null) return channel;
+        throw new IllegalArgumentException("Unknown channel '" + channel + "'");
+    }
+
+    /***
+     * Steps of a channel are ordered by its id, so a step naming it by name and one naming it by id run in turn;
+     * an unknown channel is ordered by the argument itself, and its step fails when it runs
+     */
+    private String orderingKey(String channel) {
+        try {
+            return channelId(channel);
+        } catch (IllegalArgumentException e) {
+            return channel;
+        }
+    }
+
+    private String channelName(String channel) {
+        if (channelDirectory.getId(channel) != null) return channel;
+        var name = channelDirectory.getName(channel);
+        if (name != null) return name;
+        throw new IllegalArgumentException("Unknown channel '" + channel + "'");
+    }
+
+    /***
+     * The script only names the message by id, so its day is looked up in the index, then in the store
+     * @return the message, or null if neither has it
+     */
+    private Message findMessage(String channelName, String messageId) {
+        var message = messageIndex.find(channelName, messageId);
+        if (message == null && messageStore != null) {
+            message = messageStore.find(channelId(channelName), messageId);
+        }
+        return message;
+    }
+
+    private <T> T checked(Result<T> result) {
+        if (!TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+            throw new IllegalStateException(result.getErrorMessage());
+        }
+        return result.getItem();
+    }
+
+    private <T> List<T> checked(ListResult<T> result) {
+        if (!TokenManager.INSTANCE.isSuccessOrRefreshToken(result)) {
+            throw new IllegalStateException(result.getErrorMessage());
+        }
+        return result.getItems() == null ? List.of() : result.getItems();
+    }
+
+    private static void requireSuccess(HistoryResult result) {
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getErrorMessage());
+        }
+    }
+
+    private static List<Map<String, Object>> toJson(HistoryResult result) {
+        requireSuccess(result);
+        return result.getItems().stream().map(ScriptRunner::toJson).collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> toJson(Message message) {
+        var json = new LinkedHashMap<String, Object>();
+        json.put("id", message.getId());
+        json.put("date_time", message.getLocalDateTime());
+        json.put("sender", message.getSender());
+        json.put("message", message.getMessage());
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Channel channel) {
+        var json = new LinkedHashMap<String, Object>();
+        json.put("id", channel.getId());
+        json.put("name", channel.getName());
+        json.put("type", channel.getType());
+        return json;
+    }
+
+    private static Map<String, Object> toJson(User user) {
+        var json = new LinkedHashMap<String, Object>();
+        json.put("id", user.getId());
+        json.put("name", user.getName());
+        json.put("email", user.getEmail());
+        return json;
+    }
+
+    // endregion
+}
@@ -0,0 +1,47 @@
+package com.github.dbchar.zoombot.script;
+
+import java.util.List;
+
+/***
+ * One command line of a bot script: a verb followed by its arguments
+ */
+public class ScriptStep {
+    // region Private Properties
+
+    private final int line;
+    private final String command;
+    private final List<String> args;
+
+    // endregion
+
+    // region Public Methods
+
+    public ScriptStep(int line, String command, List<String> args) {
+        this.line = line;
+        this.command = command;
+        this.args = List.copyOf(args);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public String getArg(int index) {
+        return args.get(index);
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + ": " + command + " " + String.join(" ", args);
+    }
+
+    // endregion
+}
@@ -0,0 +1,126 @@
+package com.github.dbchar.zoombot.send;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import com.github.dbchar.zoombot.cache.ChannelDirectory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/***
+ * Sends a stream of (channel, message) pairs with several requests in flight across channels.
+ * Messages to the same channel are chained, so each one is sent only after the previous one
+ * to that channel has completed, and arrive in the order they were submitted.
+ * A failed message is reported and does not stop the rest of its channel.
+ */
+public class BulkSender {
+    // region Public Constants
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    // endregion
+
+    // region Listeners
+
+    public interface OnMessageSentListener {
+        void onMessageSent(SendResult result);
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    // requests accepted ahead of the ones in flight; bounds memory when the stream is long
+    private static final int PENDING_PER_IN_FLIGHT = 16;
+
+    private final MessageSender sender;
+    private final ExecutorService executor;
+    private final int maxPending;
+
+    // endregion
+
+    // region Public Methods
+
+    public BulkSender(OAuthZoomClient client, ChannelDirectory channelDirectory, int maxInFlight) {
+        this(new ClientMessageSender(client, channelDirectory), maxInFlight);
+    }
+
+    public BulkSender(MessageSender sender, int maxInFlight) {
+        this.sender = sender;
+        this.maxPending = Math.max(1, maxInFlight) * PENDING_PER_IN_FLIGHT;
+
+        var threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxInFlight), runnable -> {
+            var thread = new Thread(runnable, "bulk-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<SendResult> send(Stream<SendRequest> requests) {
+        return send(requests, null);
+    }
+
+    /***
+     * Send all requests and wait for them to complete
+     * @param listener called from sender threads as each message completes, may be null
+     * @return one result per request, in the order of the stream
+     */
+    public List<SendResult> send(Stream<SendRequest> requests, OnMessageSentListener listener) {
+        var pending = new Semaphore(maxPending);
+        var futures = new ArrayList<CompletableFuture<SendResult>>();
+        var lastByChannel = new HashMap<String, CompletableFuture<SendResult>>();
+
+        var iterator = requests.iterator();
+        for (var index = 0; iterator.hasNext(); index++) {
+            var request = iterator.next();
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            final var position = index;
+            Supplier<SendResult> task = () -> sendOne(position, request);
+            var previous = lastByChannel.get(request.getChannelName());
+            var future = previous == null
+                    ? CompletableFuture.supplyAsync(task, executor)
+                    : previous.thenApplyAsync(ignored -> task.get(), executor);
+            future.whenComplete((result, error) -> {
+                pending.release();
+                if (listener != null && result != null) {
+                    listener.onMessageSent(result);
+                }
+            });
+            lastByChannel.put(request.getChannelName(), future);
+            futures.add(future);
+        }
+
+        var results = new ArrayList<SendResult>(futures.size());
+        for (var future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private SendResult sendOne(int index, SendRequest request) {
+        try {
+            return sender.send(index, request);
+        } catch (Exception e) {
+            return SendResult.failure(index, request, String.valueOf(e.getMessage()));
+        }
+    }
+
+    // endregion
+}
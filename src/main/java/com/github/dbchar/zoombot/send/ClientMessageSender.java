@@ -0,0 +1,71 @@
+package com.github.dbchar.zoombot.send;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import com.github.dbchar.zoomapi.utils.Result;
+import com.github.dbchar.zoombot.auth.TokenManager;
+import com.github.dbchar.zoombot.cache.ChannelDirectory;
+import com.github.dbchar.zoombot.metrics.MetricsRegistry;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler.EndpointClass;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler.Lane;
+
+import java.util.function.Supplier;
+
+/***
+ * Posts messages through the zoomapi client on the BULK lane of the {@link RequestScheduler},
+ * by channel id when the directory knows it and by channel name otherwise.
+ */
+class ClientMessageSender implements MessageSender {
+    // region Private Properties
+
+    private final OAuthZoomClient client;
+    private final ChannelDirectory channelDirectory;
+
+    // endregion
+
+    // region Public Methods
+
+    @Override
+    public SendResult send(int index, SendRequest request) {
+        var channelId = channelDirectory.getId(request.getChannelName());
+        var result = channelId == null
+                ? withRetry("chat.send_message",
+                        () -> client.getChatComponent().sendMessage(request.getChannelName(), request.getMessage()))
+                : withRetry("chat_messages.send",
+                        () -> client.getChatMessagesComponent().send(request.getMessage(), null, channelId));
+        return result.isSuccess()
+                ? SendResult.success(index, request, result.getItem())
+                : SendResult.failure(index, request, result.getErrorMessage());
+    }
+
+    // endregion
+
+    // region Package Methods
+
+    ClientMessageSender(OAuthZoomClient client, ChannelDirectory channelDirectory) {
+        this.client = client;
+        this.channelDirectory = channelDirectory;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    /***
+     * A send is not idempotent: it is only retried when it was rejected for an expired token that has since been
+     * refreshed, so the message cannot have been posted. Any other failure is reported as is, since the message
+     * may have been posted anyway, e.g. when the response was lost.
+     */
+    private Result<String> withRetry(String operation, Supplier<Result<String>> request) {
+        // First attempt, refreshing the token if it has expired
+        var result = RequestScheduler.INSTANCE.call(Lane.BULK, EndpointClass.MESSAGES_WRITE, operation, request);
+        if (TokenManager.INSTANCE.refreshIfTokenFailed(result)) {
+            // Second attempt with the new token
+            MetricsRegistry.INSTANCE.apiTimer(operation).retry();
+            result = RequestScheduler.INSTANCE.call(Lane.BULK, EndpointClass.MESSAGES_WRITE, operation, request);
+        }
+        return result;
+    }
+
+    // endregion
+}
@@ -0,0 +1,13 @@
+package com.github.dbchar.zoombot.send;
+
+/***
+ * How the {@link BulkSender} posts one message: through the client in the bot,
+ * or any other transport, e.g. a fake in tests.
+ */
+public interface MessageSender {
+    /***
+     * @param index position of the request in the submitted stream, for the result
+     * @return the outcome; a failure is returned rather than thrown
+     */
+    SendResult send(int index, SendRequest request);
+}
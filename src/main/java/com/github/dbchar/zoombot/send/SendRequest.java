@@ -0,0 +1,30 @@
+package com.github.dbchar.zoombot.send;
+
+/***
+ * A message to send to a channel
+ */
+public class SendRequest {
+    // region Private Properties
+
+    private final String channelName;
+    private final String message;
+
+    // endregion
+
+    // region Public Methods
+
+    public SendRequest(String channelName, String message) {
+        this.channelName = channelName;
+        this.message = message;
+    }
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    // endregion
+}
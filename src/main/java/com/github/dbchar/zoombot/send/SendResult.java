@@ -0,0 +1,61 @@
+package com.github.dbchar.zoombot.send;
+
+/***
+ * Outcome of one message of a bulk send
+ */
+public class SendResult {
+    // region Private Properties
+
+    private final int index;
+    private final SendRequest request;
+    private final String messageId;
+    private final String errorMessage;
+
+    // endregion
+
+    // region Public Methods
+
+    public static SendResult success(int index, SendRequest request, String messageId) {
+        return new SendResult(index, request, messageId, null);
+    }
+
+    public static SendResult failure(int index, SendRequest request, String errorMessage) {
+        return new SendResult(index, request, null, errorMessage);
+    }
+
+    public boolean isSuccess() {
+        return errorMessage == null;
+    }
+
+    /***
+     * @return position of the request in the submitted stream
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public SendRequest getRequest() {
+        return request;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private SendResult(int index, SendRequest request, String messageId, String errorMessage) {
+        this.index = index;
+        this.request = request;
+        this.messageId = messageId;
+        this.errorMessage = errorMessage;
+    }
+
+    // endregion
+}
@@ -0,0 +1,201 @@
+package com.github.dbchar.zoombot.startup;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Runs the startup of the bot as a dependency graph of stages.
+ * Every stage starts as soon as the stages it depends on have finished, so independent work
+ * (e.g. opening the history store while ngrok starts, or prefetching channels while the user is looked up)
+ * overlaps. Background stages keep running after {@link #awaitReady()} returns, i.e. behind the first menu.
+ * The start offset and duration of every stage are recorded for {@link #getTimings()}.
+ */
+public class StartupPipeline {
+    // region Public Types
+
+    public interface Stage {
+        void run() throws Exception;
+    }
+
+    public static class Timing {
+        private final String name;
+        private final List<String> dependencies;
+        private final boolean background;
+        private volatile long startOffsetNanos = -1;
+        private volatile long durationNanos = -1;
+        private volatile String errorMessage;
+
+        private Timing(String name, List<String> dependencies, boolean background) {
+            this.name = name;
+            this.dependencies = dependencies;
+            this.background = background;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getDependencies() {
+            return dependencies;
+        }
+
+        public boolean isBackground() {
+            return background;
+        }
+
+        /***
+         * @return millis from the start of the pipeline to the start of the stage, or -1 if it has not started
+         */
+        public double getStartOffsetMillis() {
+            return startOffsetNanos < 0 ? -1 : startOffsetNanos / 1e6;
+        }
+
+        /***
+         * @return duration of the stage, or -1 if it has not finished
+         */
+        public double getDurationMillis() {
+            return durationNanos < 0 ? -1 : durationNanos / 1e6;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+
+    // endregion
+
+    // region Private Properties
+
+    private final Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+    private final Map<String, Timing> timings = new LinkedHashMap<>();
+    private final List<CompletableFuture<Void>> required = new ArrayList<>();
+    private final ExecutorService executor;
+    private final long startNanos;
+    private volatile long readyNanos = -1;
+
+    // endregion
+
+    // region Public Methods
+
+    public StartupPipeline() {
+        var threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "startup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.startNanos = System.nanoTime();
+    }
+
+    /***
+     * Add a stage that must finish before the bot is ready
+     * @param dependencies names of stages added before this one
+     */
+    public synchronized void addStage(String name, Stage stage, String... dependencies) {
+        required.add(add(name, stage, false, dependencies));
+    }
+
+    /***
+     * Add a stage the bot does not wait for, e.g. a prefetch
+     */
+    public synchronized void addBackgroundStage(String name, Stage stage, String... dependencies) {
+        add(name, stage, true, dependencies);
+    }
+
+    /***
+     * Wait for all stages that are not background stages
+     * @throws Exception the failure of the first failed stage
+     */
+    public void awaitReady() throws Exception {
+        List<CompletableFuture<Void>> stages;
+        synchronized (this) {
+            stages = List.copyOf(required);
+        }
+        try {
+            CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0])).join();
+            readyNanos = System.nanoTime() - startNanos;
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /***
+     * Wait for one stage, e.g. a background prefetch whose result is needed now
+     * @return false if the stage failed
+     */
+    public boolean await(String name) {
+        CompletableFuture<Void> future;
+        synchronized (this) {
+            future = futures.get(name);
+        }
+        if (future == null) return false;
+        try {
+            future.join();
+            return true;
+        } catch (CompletionException | CancellationException e) {
+            return false;
+        }
+    }
+
+    /***
+     * @return millis from the start of the pipeline until all required stages finished, or -1
+     */
+    public double getReadyMillis() {
+        return readyNanos < 0 ? -1 : readyNanos / 1e6;
+    }
+
+    public synchronized List<Timing> getTimings() {
+        return List.copyOf(timings.values());
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private CompletableFuture<Void> add(String name, Stage stage, boolean background, String... dependencies) {
+        if (futures.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup stage '" + name + "'");
+        }
+        var upstream = new CompletableFuture<?>[dependencies.length];
+        for (var i = 0; i < dependencies.length; i++) {
+            upstream[i] = futures.get(dependencies[i]);
+            if (upstream[i] == null) {
+                throw new IllegalArgumentException("Startup stage '" + name + "' depends on unknown stage '" + dependencies[i] + "'");
+            }
+        }
+
+        var timing = new Timing(name, List.of(dependencies), background);
+        var future = CompletableFuture.allOf(upstream).thenRunAsync(() -> run(stage, timing), executor);
+        futures.put(name, future);
+        timings.put(name, timing);
+        return future;
+    }
+
+    private void run(Stage stage, Timing timing) {
+        var stageStart = System.nanoTime();
+        timing.startOffsetNanos = stageStart - startNanos;
+        try {
+            stage.run();
+        } catch (Exception e) {
+            timing.errorMessage = String.valueOf(e.getMessage());
+            throw new CompletionException(e);
+        } finally {
+            timing.durationNanos = System.nanoTime() - stageStart;
+        }
+    }
+
+    private static Exception unwrap(CompletionException e) {
+        var cause = e.getCause();
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+
+    // endregion
+}
@@ -0,0 +1,148 @@
+package com.github.dbchar.zoombot.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/***
+ * Append-only log of the messages of one channel, written one complete day at a time.
+ * <p>
+ * {@code <name>.log} holds records of [int length][length bytes].
+ * {@code <name>.idx} holds one fixed-size entry per day: [long epochDay][long offset][long length][int count].
+ * A day is visible once its index entry is written, so a crash between the two writes only leaves unreferenced bytes.
+ * A day is replaced by appending it again: the last index entry of a day wins, and the old block stays as garbage.
+ */
+class ChannelLog {
+    // region Private Properties
+
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES * 3 + Integer.BYTES;
+
+    private final Path logPath;
+    private final Path indexPath;
+    private Map<Long, long[]> days;
+
+    // endregion
+
+    // region Package Methods
+
+    ChannelLog(Path logPath, Path indexPath) {
+        this.logPath = logPath;
+        this.indexPath = indexPath;
+    }
+
+    synchronized boolean contains(long epochDay) throws IOException {
+        return getDays().containsKey(epochDay);
+    }
+
+    /***
+     * @return the stored days, in ascending order
+     */
+    synchronized List<Long> listDays() throws IOException {
+        var list = new ArrayList<>(getDays().keySet());
+        list.sort(null);
+        return list;
+    }
+
+    /***
+     * @return the records of the day, read through a memory-mapped view of the log, or null if the day is not stored
+     */
+    synchronized List<byte[]> read(long epochDay) throws IOException {
+        var entry = getDays().get(epochDay);
+        if (entry == null) return null;
+
+        var records = new ArrayList<byte[]>((int) entry[2]);
+        try (var channel = FileChannel.open(logPath, READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, entry[0], entry[1]);
+            for (var i = 0; i < entry[2]; i++) {
+                var length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IOException("Corrupt record in " + logPath.getFileName());
+                }
+                var record = new byte[length];
+                buffer.get(record);
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    synchronized void append(long epochDay, List<byte[]> records) throws IOException {
+        if (getDays().containsKey(epochDay)) return;
+        write(epochDay, records);
+    }
+
+    /***
+     * Store a new version of a day, e.g. after one of its messages was edited or deleted
+     */
+    synchronized void replace(long epochDay, List<byte[]> records) throws IOException {
+        write(epochDay, records);
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    private void write(long epochDay, List<byte[]> records) throws IOException {
+        getDays();
+
+        var length = 0L;
+        for (var record : records) length += Integer.BYTES + record.length;
+
+        var block = ByteBuffer.allocate((int) length);
+        for (var record : records) {
+            block.putInt(record.length).put(record);
+        }
+        block.flip();
+
+        long offset;
+        try (var channel = FileChannel.open(logPath, CREATE, WRITE)) {
+            offset = channel.size();
+            channel.position(offset);
+            while (block.hasRemaining()) channel.write(block);
+        }
+
+        var entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE)
+                .putLong(epochDay).putLong(offset).putLong(length).putInt(records.size());
+        entry.flip();
+        try (var channel = FileChannel.open(indexPath, CREATE, WRITE, APPEND)) {
+            while (entry.hasRemaining()) channel.write(entry);
+        }
+        days.put(epochDay, new long[]{offset, length, records.size()});
+    }
+
+    /***
+     * Load the day index on first use.
+     * A crash while an entry was being written leaves a partial entry at the end of the index; it is cut off,
+     * so the entries appended next stay aligned.
+     */
+    private Map<Long, long[]> getDays() throws IOException {
+        if (days != null) return days;
+
+        days = new HashMap<>();
+        if (Files.exists(indexPath)) {
+            var bytes = Files.readAllBytes(indexPath);
+            var whole = bytes.length - bytes.length % INDEX_ENTRY_SIZE;
+            if (whole < bytes.length) {
+                try (var channel = FileChannel.open(indexPath, WRITE)) {
+                    channel.truncate(whole);
+                }
+            }
+            var buffer = ByteBuffer.wrap(bytes, 0, whole);
+            while (buffer.remaining() >= INDEX_ENTRY_SIZE) {
+                var epochDay = buffer.getLong();
+                days.put(epochDay, new long[]{buffer.getLong(), buffer.getLong(), buffer.getInt()});
+            }
+        }
+        return days;
+    }
+
+    // endregion
+}
@@ -0,0 +1,196 @@
+package com.github.dbchar.zoombot.store;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/***
+ * On-disk history of complete days, one {@link ChannelLog} per channel.
+ * Logs are keyed by channel id, so the history of a channel survives a rename.
+ * Logs are opened lazily, the first time a channel is queried.
+ */
+public class MessageStore {
+    // region Public Constants
+
+    public static final String DEFAULT_DIRECTORY = "./history";
+
+    // endregion
+
+    // region Private Properties
+
+    private final Path directory;
+    private final Gson gson = new Gson();
+    private final Map<String, ChannelLog> logs = new ConcurrentHashMap<>();
+
+    // endregion
+
+    // region Public Methods
+
+    public MessageStore(String directory) throws IOException {
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+    }
+
+    /***
+     * @return the stored messages of the day, or null if the day is not stored or cannot be read
+     */
+    public List<Message> read(String channelId, long epochDay) {
+        try {
+            var records = getLog(channelId).read(epochDay);
+            if (records == null) return null;
+
+            var messages = new ArrayList<Message>(records.size());
+            for (var record : records) {
+                messages.add(gson.fromJson(new String(record, StandardCharsets.UTF_8), Message.class));
+            }
+            return messages;
+        } catch (IOException | BufferUnderflowException | JsonSyntaxException e) {
+            // a torn or corrupt day is a miss, and is listed from the API again
+            System.err.println("Failed to read stored history of " + channelId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /***
+     * Store a complete day. Days already stored are left untouched.
+     */
+    public void append(String channelId, long epochDay, List<Message> messages) {
+        try {
+            getLog(channelId).append(epochDay, toRecords(messages));
+        } catch (IOException e) {
+            System.err.println("Failed to store history of " + channelId + ": " + e.getMessage());
+        }
+    }
+
+    /***
+     * Store a day listed again in place of the stored one, unless nothing changed in it
+     */
+    public void replace(String channelId, long epochDay, List<Message> messages) {
+        var records = toRecords(messages);
+        try {
+            var log = getLog(channelId);
+            var stored = log.read(epochDay);
+            if (stored != null && isSame(stored, records)) return;
+            log.replace(epochDay, records);
+        } catch (IOException e) {
+            System.err.println("Failed to store history of " + channelId + ": " + e.getMessage());
+        }
+    }
+
+    /***
+     * Replace a message of a stored day with its edited version
+     * @return false if the day is not stored
+     */
+    public boolean replaceMessage(String channelId, long epochDay, Message message) {
+        return rewrite(channelId, epochDay,
+                messages -> messages.replaceAll(stored -> message.getId().equals(stored.getId()) ? message : stored));
+    }
+
+    /***
+     * Remove a deleted message from a stored day
+     * @return false if the day is not stored
+     */
+    public boolean removeMessage(String channelId, long epochDay, String messageId) {
+        return rewrite(channelId, epochDay, messages -> messages.removeIf(stored -> messageId.equals(stored.getId())));
+    }
+
+    /***
+     * Look a message up by id in the stored days of the channel, newest day first
+     * @return the message, or null if no stored day has it
+     */
+    public Message find(String channelId, String messageId) {
+        try {
+            var days = listDays(channelId);
+            for (var i = days.size() - 1; i >= 0; i--) {
+                var messages = read(channelId, days.get(i));
+                if (messages == null) continue;
+                for (var message : messages) {
+                    if (messageId.equals(message.getId())) return message;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read stored history of " + channelId + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /***
+     * @return ids of the channels with a log in the store directory
+     */
+    public List<String> listChannels() throws IOException {
+        var ids = new ArrayList<String>();
+        try (var files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".idx"))
+                    .forEach(name -> ids.add(new String(Base64.getUrlDecoder().decode(
+                            name.substring(0, name.length() - ".idx".length())), StandardCharsets.UTF_8)));
+        }
+        return ids;
+    }
+
+    /***
+     * @return the stored days of the channel, as epoch days in ascending order
+     */
+    public List<Long> listDays(String channelId) throws IOException {
+        return getLog(channelId).listDays();
+    }
+
+    // endregion
+
+    // region Private Methods
+
+    /***
+     * Store a changed copy of a stored day in place of it
+     * @return false if the day is not stored
+     */
+    private boolean rewrite(String channelId, long epochDay, Consumer<List<Message>> change) {
+        var messages = read(channelId, epochDay);
+        if (messages == null) return false;
+        change.accept(messages);
+        try {
+            getLog(channelId).replace(epochDay, toRecords(messages));
+        } catch (IOException e) {
+            System.err.println("Failed to store history of " + channelId + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    private List<byte[]> toRecords(List<Message> messages) {
+        var records = new ArrayList<byte[]>(messages.size());
+        for (var message : messages) {
+            records.add(gson.toJson(message).getBytes(StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+
+    private static boolean isSame(List<byte[]> stored, List<byte[]> records) {
+        if (stored.size() != records.size()) return false;
+        for (var i = 0; i < stored.size(); i++) {
+            if (!Arrays.equals(stored.get(i), records.get(i))) return false;
+        }
+        return true;
+    }
+
+    private ChannelLog getLog(String channelId) {
+        return logs.computeIfAbsent(channelId, key -> {
+            var fileName = Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+            return new ChannelLog(directory.resolve(fileName + ".log"), directory.resolve(fileName + ".idx"));
+        });
+    }
+
+    // endregion
+}
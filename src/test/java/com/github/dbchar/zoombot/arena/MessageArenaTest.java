@@ -0,0 +1,52 @@
+package com.github.dbchar.zoombot.arena;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.history.LocalMessages;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageArenaTest {
+    private static final int SLAB_BYTES = SlabAllocator.MAX_CHUNK_BYTES;
+
+    @Test
+    void readsBackTheCopiedMessages() {
+        var arena = new MessageArena(4L * SLAB_BYTES, SLAB_BYTES);
+        var messages = List.of(
+                LocalMessages.sent("m-1", "h\u00e9llo w\u00f6rld", "Alice", 1_588_291_200_000L),
+                LocalMessages.sent("m-2", null, null, 1_588_291_260_000L));
+
+        var copy = arena.copyOf(messages);
+
+        assertTrue(copy instanceof OffHeapMessages);
+        assertEquals(2, copy.size());
+        for (var i = 0; i < messages.size(); i++) {
+            var expected = messages.get(i);
+            var actual = copy.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getMessage(), actual.getMessage());
+            assertEquals(expected.getSender(), actual.getSender());
+            assertEquals(expected.getLocalDateTime(), actual.getLocalDateTime());
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        }
+        assertSame(copy, arena.copyOf(copy));
+        assertTrue(arena.getPaddingBytes() > 0);
+        assertEquals(arena.getUsedBytes(), ((OffHeapMessages) copy).getOffHeapBytes() + arena.getPaddingBytes());
+    }
+
+    @Test
+    void keepsTheDayOnTheHeapWhenTheArenaIsFull() {
+        var arena = new MessageArena(SLAB_BYTES, SLAB_BYTES);
+        var messages = new ArrayList<Message>();
+        for (var i = 0; i < SLAB_BYTES / 64 + 1; i++) {
+            messages.add(LocalMessages.sent("m-" + i, "hi", "Alice", i));
+        }
+
+        assertSame(messages, arena.copyOf(messages));
+        // the chunks taken before the arena ran out are given back
+        assertEquals(0, arena.getUsedBytes());
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.dbchar.zoombot.arena;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static com.github.dbchar.zoombot.arena.SlabAllocator.MAX_CHUNK_BYTES;
+import static com.github.dbchar.zoombot.arena.SlabAllocator.MIN_CHUNK_BYTES;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlabAllocatorTest {
+    private static final int SLAB_BYTES = MAX_CHUNK_BYTES;
+
+    @Test
+    void roundsChunksUpToTheirSizeClass() {
+        var allocator = new SlabAllocator(4L * SLAB_BYTES, SLAB_BYTES);
+        allocator.allocate(1);
+        assertEquals(MIN_CHUNK_BYTES, allocator.getUsedBytes());
+        allocator.allocate(MIN_CHUNK_BYTES + 1);
+        assertEquals(3L * MIN_CHUNK_BYTES, allocator.getUsedBytes());
+
+        // one slab per size class
+        assertEquals(2L * SLAB_BYTES, allocator.getReservedBytes());
+        assertEquals(2L * SLAB_BYTES - 3L * MIN_CHUNK_BYTES, allocator.getStrandedBytes());
+    }
+
+    @Test
+    void chunksDoNotOverlapAndFreedChunksAreReused() {
+        var allocator = new SlabAllocator(SLAB_BYTES, SLAB_BYTES);
+        var chunkCount = SLAB_BYTES / MIN_CHUNK_BYTES;
+        var offsets = new HashSet<Integer>();
+        var handles = new long[chunkCount];
+        for (var i = 0; i < chunkCount; i++) {
+            handles[i] = allocator.allocate(MIN_CHUNK_BYTES);
+            assertTrue(handles[i] >= 0);
+            var offset = SlabAllocator.offset(handles[i]);
+            assertEquals(0, offset % MIN_CHUNK_BYTES);
+            assertTrue(offsets.add(offset), "offset " + offset + " handed out twice");
+            allocator.slab(handles[i]).putLong(offset, i);
+        }
+        for (var i = 0; i < chunkCount; i++) {
+            assertEquals(i, allocator.slab(handles[i]).getLong(SlabAllocator.offset(handles[i])));
+        }
+
+        // the slab is full until a chunk is freed
+        assertEquals(-1, allocator.allocate(MIN_CHUNK_BYTES));
+        allocator.free(handles[7]);
+        assertEquals(handles[7], allocator.allocate(MIN_CHUNK_BYTES));
+        assertEquals(SLAB_BYTES, allocator.getUsedBytes());
+    }
+
+    @Test
+    void freeChunksOfOneSizeClassAreStrandedForOthers() {
+        var allocator = new SlabAllocator(2L * SLAB_BYTES, SLAB_BYTES);
+        var large = allocator.allocate(MAX_CHUNK_BYTES);
+        allocator.allocate(MIN_CHUNK_BYTES);
+        allocator.free(large);
+
+        // both slabs are cut, so a new size class finds no room although a whole slab is free
+        assertEquals(-1, allocator.allocate(2 * MIN_CHUNK_BYTES));
+        assertEquals(2L * SLAB_BYTES - MIN_CHUNK_BYTES, allocator.getStrandedBytes());
+        assertEquals(large, allocator.allocate(MAX_CHUNK_BYTES));
+    }
+
+    @Test
+    void rejectsChunksLargerThanTheLargestSizeClass() {
+        var allocator = new SlabAllocator(SLAB_BYTES, SLAB_BYTES);
+
+        assertEquals(-1, allocator.allocate(MAX_CHUNK_BYTES + 1));
+        assertEquals(0, allocator.getReservedBytes());
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.dbchar.zoombot.auth;
+
+import com.github.dbchar.zoomapi.clients.OAuthZoomClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenManagerTest {
+    private static final long LIFETIME_SECONDS = 3600;
+    private static final long MARGIN_SECONDS = 300;
+
+    @AfterEach
+    void stopManager() {
+        TokenManager.INSTANCE.stop();
+    }
+
+    @Test
+    void concurrentCallersShareOneRefresh() throws Exception {
+        var client = new FakeClient();
+        client.release = new CountDownLatch(1);
+        TokenManager.INSTANCE.start(client, LIFETIME_SECONDS, MARGIN_SECONDS);
+
+        var callers = 8;
+        var executor = Executors.newFixedThreadPool(callers);
+        var threads = new ArrayList<Thread>();
+        var results = new ArrayList<Future<Boolean>>();
+        try {
+            for (var i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    return TokenManager.INSTANCE.refresh();
+                }));
+            }
+            assertTrue(client.entered.await(5, TimeUnit.SECONDS));
+            awaitAllBlocked(threads, callers);
+            client.release.countDown();
+
+            for (var result : results) {
+                assertTrue(result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, client.refreshes.get());
+
+        // the next refresh is a new one
+        assertTrue(TokenManager.INSTANCE.refresh());
+        assertEquals(2, client.refreshes.get());
+    }
+
+    @Test
+    void failedRefreshIsReported() {
+        var client = new FakeClient();
+        client.failure = new IllegalStateException("invalid refresh token");
+        TokenManager.INSTANCE.start(client, LIFETIME_SECONDS, MARGIN_SECONDS);
+        var failures = TokenManager.INSTANCE.getFailureCount();
+
+        assertFalse(TokenManager.INSTANCE.refresh());
+        assertEquals(failures + 1, TokenManager.INSTANCE.getFailureCount());
+        assertEquals("invalid refresh token", TokenManager.INSTANCE.getLastErrorMessage());
+    }
+
+    @Test
+    void refreshesATokenWithinTheMarginInTheBackground() throws Exception {
+        var client = new FakeClient();
+        var issuedAtMillis = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(LIFETIME_SECONDS - MARGIN_SECONDS / 2);
+        TokenManager.INSTANCE.start(client, LIFETIME_SECONDS, MARGIN_SECONDS, issuedAtMillis);
+
+        assertTrue(client.entered.await(5, TimeUnit.SECONDS));
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (TokenManager.INSTANCE.getIssuedAtMillis() == issuedAtMillis && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, client.refreshes.get());
+        assertTrue(TokenManager.INSTANCE.getExpiresAtMillis() > System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(MARGIN_SECONDS));
+    }
+
+    @Test
+    void refreshWithoutAClientFails() {
+        assertFalse(TokenManager.INSTANCE.refresh());
+    }
+
+    private static void awaitAllBlocked(List<Thread> threads, int count) throws InterruptedException, ExecutionException {
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (threads) {
+                if (threads.size() == count && threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+                    return;
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new ExecutionException("callers did not block on the refresh in flight", null);
+    }
+
+    private static class FakeClient extends OAuthZoomClient {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final AtomicInteger refreshes = new AtomicInteger();
+        volatile CountDownLatch release;
+        volatile RuntimeException failure;
+
+        FakeClient() {
+            super("client id", "client secret", "access token", "refresh token");
+        }
+
+        @Override
+        public void refreshToken() {
+            entered.countDown();
+            try {
+                if (release != null) release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) throw failure;
+            refreshes.incrementAndGet();
+        }
+    }
+}
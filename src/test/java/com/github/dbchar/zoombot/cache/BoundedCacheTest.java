@@ -0,0 +1,84 @@
+package com.github.dbchar.zoombot.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+    private static final long TIME_TO_LIVE_MILLIS = 60_000;
+
+    @Test
+    void getReturnsPutValueUntilItExpires() {
+        var cache = new BoundedCache<String, String>(100, (key, value) -> 1);
+        cache.put("live", "a", TIME_TO_LIVE_MILLIS);
+        cache.put("expired", "b", 0);
+
+        assertEquals("a", cache.get("live"));
+        assertNull(cache.get("expired"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void weightFollowsPutsReplacementsAndInvalidations() {
+        var cache = new BoundedCache<String, Integer>(1_000, (key, value) -> value);
+        cache.put("a", 10, TIME_TO_LIVE_MILLIS);
+        cache.put("b", 20, TIME_TO_LIVE_MILLIS);
+        assertEquals(30, cache.getWeight());
+
+        cache.put("a", 40, TIME_TO_LIVE_MILLIS);
+        assertEquals(60, cache.getWeight());
+
+        assertEquals(Integer.valueOf(45), cache.computeIfPresent("a", value -> value + 5));
+        assertEquals(65, cache.getWeight());
+
+        cache.invalidate("b");
+        assertEquals(45, cache.getWeight());
+        cache.invalidateAll();
+        assertEquals(0, cache.getWeight());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void entryHeavierThanTheCacheIsNotStored() {
+        var cache = new BoundedCache<String, Integer>(100, (key, value) -> value);
+        cache.put("a", 10, TIME_TO_LIVE_MILLIS);
+        cache.put("a", 101, TIME_TO_LIVE_MILLIS);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    void evictsToStayWithinTheMaximumWeight() {
+        var cache = new BoundedCache<Integer, Integer>(1_000, (key, value) -> value);
+        for (var i = 0; i < 500; i++) {
+            cache.put(i, 1 + i % 20, TIME_TO_LIVE_MILLIS);
+            assertTrue(cache.getWeight() <= cache.getMaximumWeight(), "weight " + cache.getWeight() + " after " + i);
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    void frequentlyReadEntriesSurviveAScanOfOneOffEntries() {
+        var cache = new BoundedCache<String, String>(100, (key, value) -> 1);
+        for (var i = 0; i < 50; i++) {
+            cache.put("hot-" + i, "value", TIME_TO_LIVE_MILLIS);
+        }
+        for (var read = 0; read < 5; read++) {
+            for (var i = 0; i < 50; i++) {
+                cache.get("hot-" + i);
+            }
+        }
+
+        for (var i = 0; i < 10_000; i++) {
+            cache.put("scan-" + i, "value", TIME_TO_LIVE_MILLIS);
+        }
+
+        var hits = 0;
+        for (var i = 0; i < 50; i++) {
+            if (cache.get("hot-" + i) != null) hits++;
+        }
+        assertEquals(50, hits, "hot entries left after the scan");
+        assertTrue(cache.getWeight() <= cache.getMaximumWeight());
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.dbchar.zoombot.compress;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.history.LocalMessages;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCompressorTest {
+    private static final String CHANNEL = "general";
+
+    @Test
+    void roundTripsEveryField() {
+        var compressor = new MessageCompressor(MessageCompressor.DEFAULT_DICTIONARY_KILOBYTES << 10);
+        var messages = List.of(
+                LocalMessages.sent("m-1", "Build #1234 passed: https://ci.example.com/builds/1234", "CI Bot", 1_000L),
+                LocalMessages.sent("m-2", null, null, 2_000L),
+                LocalMessages.sent("m-3", "", "Alice", 3_000L),
+                LocalMessages.sent("m-4", "caf\u00e9 \u2615 \ud83d\ude00", "Bob", 4_000L),
+                LocalMessages.sent("m-5", "ab".repeat(20_000), "Alice", 5_000L),
+                LocalMessages.sent("m-6", randomText(10_000), "Alice", 6_000L));
+
+        var compressed = compressor.compress(CHANNEL, messages);
+
+        assertTrue(compressed instanceof CompressedMessages);
+        assertSameMessages(messages, compressed);
+        assertSame(compressed, compressor.compress(CHANNEL, compressed));
+    }
+
+    @Test
+    void trainsADictionaryOnceEnoughMessagesWereSeen() {
+        var compressor = new MessageCompressor(MessageCompressor.DEFAULT_DICTIONARY_KILOBYTES << 10);
+        var untrained = (CompressedMessages) compressor.compress(CHANNEL, notifications(0, MessageCompressor.TRAINING_MESSAGES - 1));
+        assertEquals(0, compressor.getDictionarySize(CHANNEL));
+
+        var day = notifications(1_000, 100);
+        var trained = (CompressedMessages) compressor.compress(CHANNEL, day);
+
+        assertTrue(compressor.getDictionarySize(CHANNEL) > 0);
+        assertEquals(0, compressor.getDictionarySize("random"));
+        assertSameMessages(day, trained);
+        // the untrained day is still read with no dictionary
+        assertEquals(untrained.get(3).getMessage(), notifications(0, 4).get(3).getMessage());
+
+        var withoutDictionary = (CompressedMessages) new MessageCompressor(0).compress(CHANNEL, day);
+        assertTrue(trained.getCompressedTextBytes() < withoutDictionary.getCompressedTextBytes(),
+                trained.getCompressedTextBytes() + " not below " + withoutDictionary.getCompressedTextBytes());
+    }
+
+    @Test
+    void aRenamedChannelKeepsItsDictionary() {
+        var compressor = new MessageCompressor(MessageCompressor.DEFAULT_DICTIONARY_KILOBYTES << 10);
+        var day = notifications(0, MessageCompressor.TRAINING_MESSAGES);
+        var compressed = compressor.compress(CHANNEL, day);
+        var size = compressor.getDictionarySize(CHANNEL);
+        assertTrue(size > 0);
+
+        compressor.renameChannel(CHANNEL, "announcements");
+
+        assertEquals(0, compressor.getDictionarySize(CHANNEL));
+        assertEquals(size, compressor.getDictionarySize("announcements"));
+        // days compressed under the old name still read back
+        assertSameMessages(day, compressed);
+
+        compressor.removeChannel("announcements");
+        assertEquals(0, compressor.getDictionarySize("announcements"));
+        assertSameMessages(day, compressed);
+    }
+
+    @Test
+    void leavesEmptyDaysAlone() {
+        var compressor = new MessageCompressor(0);
+        var empty = List.<Message>of();
+
+        assertSame(empty, compressor.compress(CHANNEL, empty));
+    }
+
+    private static void assertSameMessages(List<Message> expected, List<Message> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (var i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getMessage(), actual.get(i).getMessage());
+            assertEquals(expected.get(i).getSender(), actual.get(i).getSender());
+            assertEquals(expected.get(i).getLocalDateTime(), actual.get(i).getLocalDateTime());
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+    }
+
+    private static List<Message> notifications(int first, int count) {
+        var messages = new ArrayList<Message>();
+        for (var i = first; i < first + count; i++) {
+            messages.add(LocalMessages.sent("n-" + i, "Deployment of service-" + (i % 7)
+                    + " to production finished successfully, see https://deploy.example.com/runs/" + i,
+                    "Deploy Bot", i * 1_000L));
+        }
+        return messages;
+    }
+
+    private static String randomText(int length) {
+        var random = new Random(42);
+        var text = new StringBuilder(length);
+        for (var i = 0; i < length; i++) {
+            text.append((char) (' ' + random.nextInt(95)));
+        }
+        return text.toString();
+    }
+}
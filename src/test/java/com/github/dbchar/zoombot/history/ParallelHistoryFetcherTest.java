@@ -0,0 +1,205 @@
+package com.github.dbchar.zoombot.history;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.cache.ChannelDirectory;
+import com.github.dbchar.zoombot.cache.ResponseCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelHistoryFetcherTest {
+    private static final String CHANNEL = "general";
+    private static final String CHANNEL_ID = "c-general";
+    private static final int PAGE_SIZE = 10;
+
+    private FakeSource source;
+    private ParallelHistoryFetcher fetcher;
+    private String today;
+    private String yesterday;
+
+    @BeforeEach
+    void setUp() {
+        source = new FakeSource();
+        fetcher = new ParallelHistoryFetcher(source, 2);
+        var directory = new ChannelDirectory(null);
+        directory.put(CHANNEL_ID, CHANNEL);
+        fetcher.setChannelDirectory(directory, "me");
+        fetcher.setResponseCache(new ResponseCache(1 << 20));
+        today = DayRange.format(LocalDate.now());
+        yesterday = DayRange.format(LocalDate.now().minusDays(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fetcher.shutdown();
+    }
+
+    @Test
+    void todayIsSyncedByDeltaUpToTheFirstPageReachingTheLastTimestamp() {
+        source.put(today, messages(1, 30));
+        var first = fetcher.history(CHANNEL, today, today);
+        assertTrue(first.isSuccess());
+        assertEquals(30, first.getItems().size());
+        assertEquals(3, source.calls(today));
+
+        source.put(today, messages(1, 32));
+        var second = fetcher.history(CHANNEL, today, today);
+
+        assertTrue(second.isSuccess());
+        // the first page holds the new messages and reaches past the last timestamp, so no other page is listed
+        assertEquals(4, source.calls(today));
+        assertEquals(ids(1, 32), ids(second.getItems()));
+    }
+
+    @Test
+    void everyPageIsListedOnceThePagesAreOutOfOrder() {
+        source.put(today, messages(1, 30));
+        fetcher.history(CHANNEL, today, today);
+        assertEquals(3, source.calls(today));
+
+        var shuffled = messages(1, 31);
+        // swap two messages of the first page, so it is no longer newest first
+        var newest = shuffled.get(0);
+        shuffled.set(0, shuffled.get(1));
+        shuffled.set(1, newest);
+        source.put(today, shuffled);
+        var second = fetcher.history(CHANNEL, today, today);
+
+        assertTrue(second.isSuccess());
+        assertEquals(3 + 4, source.calls(today));
+        assertEquals(ids(1, 31), ids(second.getItems()));
+    }
+
+    @Test
+    void todayIsListedInFullOnceTheFullSyncIntervalIsOver() {
+        fetcher.setFullSyncInterval(0);
+        source.put(today, messages(1, 30));
+        fetcher.history(CHANNEL, today, today);
+
+        // a deletion is only seen by a full listing
+        source.put(today, messages(2, 30));
+        var second = fetcher.history(CHANNEL, today, today);
+
+        assertEquals(3 + 3, source.calls(today));
+        assertEquals(ids(2, 30), ids(second.getItems()));
+    }
+
+    @Test
+    void pastDaysAreListedOnceAndServedFromTheCache() {
+        source.put(yesterday, messages(1, 25));
+        var first = fetcher.history(CHANNEL, yesterday, yesterday);
+        assertEquals(3, source.calls(yesterday));
+
+        source.put(yesterday, messages(1, 26));
+        var second = fetcher.history(CHANNEL, yesterday, yesterday);
+
+        assertEquals(3, source.calls(yesterday));
+        assertEquals(ids(first.getItems()), ids(second.getItems()));
+    }
+
+    @Test
+    void refetchListsPastDaysAgain() {
+        source.put(yesterday, messages(1, 25));
+        fetcher.history(CHANNEL, yesterday, yesterday);
+
+        source.put(yesterday, messages(2, 25));
+        var refetched = fetcher.refetch(CHANNEL, yesterday, yesterday);
+        var cached = fetcher.history(CHANNEL, yesterday, yesterday);
+
+        assertEquals(3 + 3, source.calls(yesterday));
+        assertEquals(ids(2, 25), ids(refetched.getItems()));
+        assertEquals(ids(2, 25), ids(cached.getItems()));
+    }
+
+    @Test
+    void daysAreMergedOldestFirst() {
+        source.put(yesterday, messages(1, 5));
+        source.put(today, messages(6, 12));
+
+        var result = fetcher.history(CHANNEL, yesterday, today);
+
+        assertTrue(result.isSuccess());
+        assertEquals(ids(1, 12), ids(result.getItems()));
+    }
+
+    @Test
+    void aFailedPageFailsTheRange() {
+        source.put(yesterday, messages(1, 5));
+        source.failing = yesterday;
+
+        var result = fetcher.history(CHANNEL, yesterday, today);
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage().startsWith(yesterday), result.getErrorMessage());
+    }
+
+    /***
+     * @return messages from..to, newest first as the API lists them, one second apart
+     */
+    private static List<Message> messages(int from, int to) {
+        var messages = new ArrayList<Message>();
+        for (var i = to; i >= from; i--) {
+            messages.add(LocalMessages.sent("m" + i, "message " + i, "alice@example.com", 1_000_000L + i * 1000L));
+        }
+        return messages;
+    }
+
+    private static List<String> ids(int from, int to) {
+        var ids = new ArrayList<String>();
+        for (var i = from; i <= to; i++) {
+            ids.add("m" + i);
+        }
+        return ids;
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).collect(Collectors.toList());
+    }
+
+    /***
+     * Lists the messages of a day PAGE_SIZE at a time, with the page offset as token, and counts the pages listed
+     */
+    private static class FakeSource implements MessageSource {
+        private final Map<String, List<Message>> days = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        private volatile String failing;
+
+        void put(String day, List<Message> messages) {
+            days.put(day, messages);
+        }
+
+        int calls(String day) {
+            var count = calls.get(day);
+            return count == null ? 0 : count.get();
+        }
+
+        @Override
+        public MessagePage list(String userId, String channelId, String day, String pageToken) {
+            calls.computeIfAbsent(day, key -> new AtomicInteger()).incrementAndGet();
+            if (day.equals(failing)) {
+                return MessagePage.failure("rate limited");
+            }
+            assertEquals(CHANNEL_ID, channelId);
+            var messages = days.getOrDefault(day, List.of());
+            var offset = pageToken == null ? 0 : Integer.parseInt(pageToken);
+            var end = Math.min(offset + PAGE_SIZE, messages.size());
+            var nextPageToken = end < messages.size() ? String.valueOf(end) : null;
+            return MessagePage.success(new ArrayList<>(messages.subList(offset, end)), nextPageToken);
+        }
+
+        @Override
+        public MessagePage history(String channelName, String day) {
+            return fail("the channel has an id, so it is listed by id");
+        }
+    }
+}
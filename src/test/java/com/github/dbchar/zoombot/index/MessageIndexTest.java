@@ -0,0 +1,156 @@
+package com.github.dbchar.zoombot.index;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.history.LocalMessages;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageIndexTest {
+    private static final String CHANNEL = "general";
+
+    @Test
+    void dropsTheLeastRecentlyUsedDaysOverTheLimit() {
+        var index = new MessageIndex();
+        index.indexDay(CHANNEL, "2020-05-01", day("2020-05-01", 20));
+        var dayBytes = index.getSizeInBytes();
+        index.setMaxBytes(3 * dayBytes);
+        index.indexDay(CHANNEL, "2020-05-02", day("2020-05-02", 20));
+        index.indexDay(CHANNEL, "2020-05-03", day("2020-05-03", 20));
+
+        // a search keeps the day it reads
+        index.search(CHANNEL, "2020-05-01", "2020-05-01", "hello");
+        index.indexDay(CHANNEL, "2020-05-04", day("2020-05-04", 20));
+
+        assertEquals(3, index.getDayCount());
+        assertTrue(index.getSizeInBytes() <= 3 * dayBytes);
+        assertEquals(List.of("2020-05-02"), index.getMissingDays(CHANNEL, "2020-05-01", "2020-05-04"));
+        assertEquals(0, index.searchBySender(CHANNEL, "2020-05-02", "2020-05-02", "alice").getItems().size());
+        assertEquals(20, index.searchBySender(CHANNEL, "2020-05-01", "2020-05-01", "alice").getItems().size());
+    }
+
+    @Test
+    void keepsTheDayJustIndexedEvenOverTheLimit() {
+        var index = new MessageIndex();
+        index.setMaxBytes(1);
+        index.indexDay(CHANNEL, "2020-05-01", day("2020-05-01", 5));
+        index.indexDay(CHANNEL, "2020-05-02", day("2020-05-02", 5));
+
+        assertEquals(1, index.getDayCount());
+        assertEquals(List.of("2020-05-01"), index.getMissingDays(CHANNEL, "2020-05-01", "2020-05-02"));
+    }
+
+    @Test
+    void removingAMessageFreesItsBytesAndSender() {
+        var index = new MessageIndex();
+        var messages = new ArrayList<>(day("2020-05-01", 3));
+        var bob = message("bob-1", "2020-05-01", "hello from bob", "Bob");
+        messages.add(bob);
+        index.indexDay(CHANNEL, "2020-05-01", messages);
+        index.indexDay("random", "2020-05-01", List.of(message("bob-2", "2020-05-01", "hi", "Bob")));
+        var before = index.getSizeInBytes();
+
+        index.remove(CHANNEL, "2020-05-01", bob.getId());
+
+        assertTrue(index.getSizeInBytes() < before, "size " + index.getSizeInBytes() + " not below " + before);
+        assertNull(index.find(CHANNEL, bob.getId()));
+        assertEquals(0, index.searchBySender(CHANNEL, "2020-05-01", "2020-05-01", "bob").getItems().size());
+        assertEquals(List.of("random"), List.copyOf(index.searchBySenderInAllChannels("2020-05-01", "2020-05-01", "bob").keySet()));
+        assertEquals(3, index.search(CHANNEL, "2020-05-01", "2020-05-01", "hello").getItems().size());
+
+        // removing it again changes nothing
+        var after = index.getSizeInBytes();
+        index.remove(CHANNEL, "2020-05-01", bob.getId());
+        assertEquals(after, index.getSizeInBytes());
+    }
+
+    @Test
+    void anUpdatedMessageReplacesItsPreviousVersion() {
+        var index = new MessageIndex();
+        index.indexDay(CHANNEL, "2020-05-01", List.of(message("m-1", "2020-05-01", "first draft", "Alice")));
+        var before = index.getSizeInBytes();
+
+        index.add(CHANNEL, "2020-05-01", message("m-1", "2020-05-01", "final", "Alice"));
+
+        assertEquals("final", index.find(CHANNEL, "m-1").getMessage());
+        assertEquals(0, index.search(CHANNEL, "2020-05-01", "2020-05-01", "draft").getItems().size());
+        assertEquals(List.of("final"), texts(index.searchBySender(CHANNEL, "2020-05-01", "2020-05-01", "alice").getItems()));
+        assertTrue(index.getSizeInBytes() < before + 100, "size grew by " + (index.getSizeInBytes() - before));
+    }
+
+    @Test
+    void searchBySenderInAllChannelsGroupsByChannel() {
+        var index = new MessageIndex();
+        index.indexDay(CHANNEL, "2020-05-01", day("2020-05-01", 2));
+        index.indexDay("random", "2020-05-02", day("2020-05-02", 1));
+
+        var results = index.searchBySenderInAllChannels("2020-05-01", "2020-05-02", "ALICE");
+
+        assertEquals(List.of(CHANNEL, "random"), List.copyOf(results.keySet()));
+        assertEquals(2, results.get(CHANNEL).size());
+    }
+
+    @Test
+    void aRenamedChannelKeepsItsDaysUnderTheNewName() {
+        var index = new MessageIndex();
+        index.indexDay(CHANNEL, "2020-05-01", day("2020-05-01", 3));
+        index.indexDay("random", "2020-05-01", day("2020-05-01", 1));
+        var bytes = index.getSizeInBytes();
+
+        index.renameChannel(CHANNEL, "announcements");
+
+        assertEquals(bytes, index.getSizeInBytes());
+        assertEquals(2, index.getDayCount());
+        assertEquals(3, index.search("announcements", "2020-05-01", "2020-05-01", "hello").getItems().size());
+        assertTrue(index.getMissingDays("announcements", "2020-05-01", "2020-05-01").isEmpty());
+        assertEquals(0, index.search(CHANNEL, "2020-05-01", "2020-05-01", "hello").getItems().size());
+        assertEquals(List.of("announcements", "random"),
+                List.copyOf(index.searchBySenderInAllChannels("2020-05-01", "2020-05-01", "alice").keySet()));
+
+        // the renamed days are still evicted as the days they were
+        index.setMaxBytes(1);
+        assertEquals(0, index.getDayCount());
+        assertEquals(0, index.getSizeInBytes());
+        assertEquals(List.of("2020-05-01"), index.getMissingDays("announcements", "2020-05-01", "2020-05-01"));
+    }
+
+    @Test
+    void aRemovedChannelDropsItsDaysAndSenders() {
+        var index = new MessageIndex();
+        index.indexDay("random", "2020-05-01", day("2020-05-01", 1));
+        var randomBytes = index.getSizeInBytes();
+        index.indexDay(CHANNEL, "2020-05-01", day("2020-05-01", 3));
+        index.indexDay(CHANNEL, "2020-05-02", day("2020-05-02", 2));
+
+        index.removeChannel(CHANNEL);
+
+        assertEquals(1, index.getDayCount());
+        assertEquals(randomBytes, index.getSizeInBytes());
+        assertNull(index.find(CHANNEL, "2020-05-01-0"));
+        assertEquals(List.of("random"),
+                List.copyOf(index.searchBySenderInAllChannels("2020-05-01", "2020-05-02", "alice").keySet()));
+    }
+
+    private static List<Message> day(String day, int count) {
+        var messages = new ArrayList<Message>();
+        for (var i = 0; i < count; i++) {
+            messages.add(message(day + "-" + i, day, "hello number " + i, "Alice"));
+        }
+        return messages;
+    }
+
+    private static Message message(String id, String day, String text, String sender) {
+        var timestamp = LocalDate.parse(day).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        return LocalMessages.sent(id, text, sender, timestamp);
+    }
+
+    private static List<String> texts(List<Message> messages) {
+        return messages.stream().map(Message::getMessage).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.dbchar.zoombot.io;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsoleSinkTest {
+    private static final ConsoleSink SINK = ConsoleSink.INSTANCE;
+    private static final int CAPACITY = ConsoleSink.DEFAULT_CAPACITY;
+
+    private final GatedStream console = new GatedStream();
+
+    @AfterEach
+    void restoreSink() {
+        console.release.countDown();
+        SINK.flush();
+        SINK.setConsoleStream(System.out);
+        SINK.setOverflowPolicy(ConsoleSink.OverflowPolicy.DROP_OLDEST);
+    }
+
+    @Test
+    void dropOldestDiscardsTheOldestEvents() throws Exception {
+        SINK.setOverflowPolicy(ConsoleSink.OverflowPolicy.DROP_OLDEST);
+        stallWriter();
+        var dropped = SINK.getDroppedCount();
+
+        for (var i = 0; i < CAPACITY + 10; i++) {
+            SINK.writeEvent("event " + i + "\n");
+        }
+        assertEquals(dropped + 10, SINK.getDroppedCount());
+
+        var output = drain();
+        assertFalse(output.contains("event 9\n"));
+        assertTrue(output.contains("event 10\n"));
+        assertTrue(output.contains("event " + (CAPACITY + 9) + "\n"));
+        assertTrue(output.contains("[console output: 10 blocks dropped]"));
+    }
+
+    @Test
+    void dropNewestDiscardsTheEventBeingWritten() throws Exception {
+        SINK.setOverflowPolicy(ConsoleSink.OverflowPolicy.DROP_NEWEST);
+        stallWriter();
+        var dropped = SINK.getDroppedCount();
+
+        for (var i = 0; i < CAPACITY + 10; i++) {
+            SINK.writeEvent("event " + i + "\n");
+        }
+        assertEquals(dropped + 10, SINK.getDroppedCount());
+
+        var output = drain();
+        assertTrue(output.contains("event 0\n"));
+        assertTrue(output.contains("event " + (CAPACITY - 1) + "\n"));
+        assertFalse(output.contains("event " + CAPACITY + "\n"));
+    }
+
+    @Test
+    void interactiveOutputIsNeverDropped() throws Exception {
+        SINK.setOverflowPolicy(ConsoleSink.OverflowPolicy.DROP_OLDEST);
+        stallWriter();
+        var dropped = SINK.getDroppedCount();
+        for (var i = 0; i < CAPACITY; i++) {
+            SINK.write("line " + i + "\n");
+        }
+
+        // nothing can be dropped to make room, so the event waits
+        var eventWriter = new Thread(() -> SINK.writeEvent("event\n"));
+        eventWriter.start();
+        eventWriter.join(200);
+        assertTrue(eventWriter.isAlive());
+
+        console.release.countDown();
+        eventWriter.join(5_000);
+        var output = drain();
+        assertEquals(dropped, SINK.getDroppedCount());
+        for (var i = 0; i < CAPACITY; i++) {
+            assertTrue(output.contains("line " + i + "\n"), "line " + i + " missing");
+        }
+        assertTrue(output.contains("event\n"));
+    }
+
+    /***
+     * Block the writer thread in its first console write, so the queue fills up
+     */
+    private void stallWriter() throws InterruptedException {
+        SINK.flush();
+        SINK.setConsoleStream(console);
+        SINK.write("stall\n");
+        assertTrue(console.entered.await(5, TimeUnit.SECONDS));
+        assertEquals(0, SINK.getQueueDepth());
+    }
+
+    private String drain() {
+        console.release.countDown();
+        SINK.flush();
+        return console.text();
+    }
+
+    private static class GatedStream extends PrintStream {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        GatedStream() {
+            super(new ByteArrayOutputStream(), true);
+        }
+
+        @Override
+        public void print(String text) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                super.print(text);
+            }
+        }
+
+        synchronized String text() {
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.dbchar.zoombot.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+    @Test
+    void emptyHistogramReportsZero() {
+        var histogram = new Histogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+    }
+
+    @Test
+    void smallValuesHaveABucketEach() {
+        var histogram = new Histogram();
+        for (var value = 0; value < 16; value++) {
+            histogram.record(value);
+        }
+
+        for (var value = 0; value < 16; value++) {
+            // the (value + 1)th of 16 values
+            assertEquals(value, histogram.getPercentile((value + 1) * 100.0 / 16));
+        }
+    }
+
+    @Test
+    void percentileIsTheUpperBoundOfItsBucketWithinASixteenth() {
+        for (var value = 16L; value < 1L << 40; value = value * 3 / 2 + 7) {
+            var histogram = new Histogram();
+            histogram.record(value);
+            // a larger maximum, so the percentile is not capped at the recorded value
+            histogram.record(Long.MAX_VALUE);
+
+            var percentile = histogram.getPercentile(50);
+            assertTrue(percentile >= value, value + " reported as " + percentile);
+            assertTrue(percentile - value <= value / 16, value + " reported as " + percentile);
+        }
+    }
+
+    @Test
+    void percentileIsCappedAtTheMaximum() {
+        var histogram = new Histogram();
+        histogram.record(1_000);
+
+        assertEquals(1_000, histogram.getPercentile(99));
+        assertEquals(1_000, histogram.getMax());
+    }
+
+    @Test
+    void extremeValuesStayInRange() {
+        var histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+}
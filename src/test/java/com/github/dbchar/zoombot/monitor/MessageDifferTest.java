@@ -0,0 +1,98 @@
+package com.github.dbchar.zoombot.monitor;
+
+import com.github.dbchar.zoomapi.models.Message;
+import com.github.dbchar.zoombot.history.LocalMessages;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageDifferTest {
+    @Test
+    void firstPollOnlyRecordsABaseline() {
+        var differ = new MessageDiffer();
+        var events = new Events();
+        assertFalse(differ.hasBaseline());
+        assertEquals(Long.MIN_VALUE, differ.getWatermark());
+
+        differ.apply(List.of(message("a", "hi", 10), message("b", "there", 20)), events);
+
+        assertTrue(differ.hasBaseline());
+        assertEquals(List.of(), events.received);
+        assertEquals(List.of(), events.updated);
+        assertEquals(20, differ.getWatermark());
+    }
+
+    @Test
+    void reportsNewAndEditedMessagesOnce() {
+        var differ = new MessageDiffer();
+        differ.apply(List.of(message("a", "hi", 10), message("b", null, 20)), new Events());
+
+        var events = new Events();
+        differ.apply(List.of(message("c", "new", 30), message("a", "hi (edited)", 10), message("b", null, 20)), events);
+        assertEquals(List.of("c"), events.received);
+        assertEquals(List.of("a"), events.updated);
+        assertEquals(30, differ.getWatermark());
+
+        // the same window again is no change
+        var repeated = new Events();
+        differ.apply(List.of(message("c", "new", 30), message("a", "hi (edited)", 10)), repeated);
+        assertEquals(List.of(), repeated.received);
+        assertEquals(List.of(), repeated.updated);
+
+        // a message whose text is cleared is an update too
+        var cleared = new Events();
+        differ.apply(List.of(message("c", null, 30)), cleared);
+        assertEquals(List.of("c"), cleared.updated);
+    }
+
+    @Test
+    void keepsTrackOfManyMessages() {
+        var differ = new MessageDiffer();
+        differ.apply(List.of(), new Events());
+
+        var messages = new ArrayList<Message>();
+        for (var i = 0; i < 10_000; i++) {
+            messages.add(message("id-" + i, "text " + i, i));
+        }
+        var events = new Events();
+        differ.apply(messages, events);
+        assertEquals(10_000, events.received.size());
+
+        var again = new Events();
+        differ.apply(messages, again);
+        assertEquals(0, again.received.size());
+        assertEquals(0, again.updated.size());
+        assertEquals(9_999, differ.getWatermark());
+    }
+
+    @Test
+    void watermarkNeverMovesBack() {
+        var differ = new MessageDiffer();
+        differ.apply(List.of(message("a", "hi", 50)), new Events());
+        differ.apply(List.of(message("b", "late", 40)), new Events());
+
+        assertEquals(50, differ.getWatermark());
+    }
+
+    private static Message message(String id, String text, long timestamp) {
+        return LocalMessages.sent(id, text, "Alice", timestamp);
+    }
+
+    private static class Events implements MessageDiffer.Callback {
+        final List<String> received = new ArrayList<>();
+        final List<String> updated = new ArrayList<>();
+
+        @Override
+        public void onReceived(Message message) {
+            received.add(message.getId());
+        }
+
+        @Override
+        public void onUpdated(Message message) {
+            updated.add(message.getId());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.dbchar.zoombot.roster;
+
+import com.github.dbchar.zoomapi.models.User;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the member table is shared by the process, so every test uses members and channels of its own
+class MemberTableTest {
+    private static final Gson GSON = new Gson();
+    private static final MemberTable TABLE = MemberTable.INSTANCE;
+
+    @Test
+    void aChangedEmailNoLongerFindsTheMember() {
+        var builder = new ChannelRoster.Builder("email-channel");
+        builder.add(user("email-1", "old@example.com", "member"));
+        builder.add(user("email-1", "new@example.com", "member"));
+        TABLE.putRoster(builder.build());
+        var slot = TABLE.getSlot("email-1");
+
+        assertEquals(-1, TABLE.getSlot("old@example.com"));
+        assertEquals(slot, TABLE.getSlot("NEW@example.com"));
+        assertEquals("new@example.com", TABLE.getRoster("email-channel").getMembers().get(0).getEmail());
+
+        TABLE.removeRoster("email-channel");
+        assertEquals(-1, TABLE.getSlot("email-1"));
+        assertEquals(-1, TABLE.getSlot("new@example.com"));
+    }
+
+    @Test
+    void membersOfAReplacedRosterAreDroppedOnceNoRosterHoldsThem() {
+        var size = TABLE.size();
+        TABLE.putRoster(roster("replace-channel", "replace-a", "replace-b"));
+        TABLE.putRoster(roster("replace-other", "replace-b"));
+        assertEquals(size + 2, TABLE.size());
+
+        TABLE.putRoster(roster("replace-channel", "replace-a", "replace-c"));
+
+        // b is still in the other channel
+        assertEquals(size + 3, TABLE.size());
+        assertEquals(List.of("replace-other"), TABLE.getChannelsOf("replace-b"));
+
+        TABLE.removeRoster("replace-other");
+        assertEquals(-1, TABLE.getSlot("replace-b"));
+        assertEquals(List.of(), TABLE.getChannelsOf("replace-b"));
+        assertEquals(size + 2, TABLE.size());
+
+        TABLE.removeRoster("replace-channel");
+        assertEquals(-1, TABLE.getSlot("replace-a"));
+        assertEquals(-1, TABLE.getSlot("replace-c"));
+        assertEquals(size, TABLE.size());
+    }
+
+    @Test
+    void keptRostersReadTheirOwnMembersWhenSlotsAreReused() {
+        TABLE.putRoster(roster("reuse-kept", "reuse-a"));
+        TABLE.putRoster(roster("reuse-dropped", "reuse-b", "reuse-c"));
+        TABLE.removeRoster("reuse-dropped");
+
+        TABLE.putRoster(roster("reuse-new", "reuse-d", "reuse-e"));
+
+        assertEquals(List.of("reuse-a"), ids(TABLE.getRoster("reuse-kept")));
+        assertEquals(List.of("reuse-d", "reuse-e"), ids(TABLE.getRoster("reuse-new")));
+        TABLE.removeRoster("reuse-kept");
+        TABLE.removeRoster("reuse-new");
+    }
+
+    @Test
+    void aDiscardedBuilderReleasesItsMembers() {
+        var size = TABLE.size();
+        var builder = new ChannelRoster.Builder("discard-channel");
+        builder.add(user("discard-a", "discard-a@example.com", "member"));
+        builder.add(user("discard-b", "discard-b@example.com", "admin"));
+        assertEquals(size + 2, TABLE.size());
+
+        builder.discard();
+
+        assertEquals(size, TABLE.size());
+        assertEquals(-1, TABLE.getSlot("discard-a@example.com"));
+    }
+
+    @Test
+    void aMemberListedTwiceIsHeldOnce() {
+        var size = TABLE.size();
+        var builder = new ChannelRoster.Builder("twice-channel");
+        builder.add(user("twice-a", "twice-a@example.com", "member"));
+        builder.add(user("twice-a", "twice-a@example.com", "member"));
+        var roster = builder.build();
+        TABLE.putRoster(roster);
+        assertEquals(1, roster.size());
+
+        TABLE.removeRoster("twice-channel");
+
+        assertEquals(size, TABLE.size());
+        assertEquals(-1, TABLE.getSlot("twice-a"));
+    }
+
+    private static ChannelRoster roster(String channelId, String... userIds) {
+        var builder = new ChannelRoster.Builder(channelId);
+        for (var id : userIds) {
+            builder.add(user(id, id + "@example.com", "member"));
+        }
+        return builder.build();
+    }
+
+    private static User user(String id, String email, String role) {
+        var json = new JsonObject();
+        json.addProperty("id", id);
+        json.addProperty("email", email);
+        json.addProperty("first_name", "User");
+        json.addProperty("last_name", id);
+        json.addProperty("role", role);
+        return GSON.fromJson(json, User.class);
+    }
+
+    private static List<String> ids(ChannelRoster roster) {
+        // rosters are in slot order, which depends on the slots that were free
+        return roster.getMembers().stream().map(User::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.dbchar.zoombot.scheduler;
+
+import com.github.dbchar.zoombot.scheduler.RequestScheduler.EndpointClass;
+import com.github.dbchar.zoombot.scheduler.RequestScheduler.Lane;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestSchedulerTest {
+    private static final RequestScheduler SCHEDULER = RequestScheduler.INSTANCE;
+    // a token every 250 ms, slow enough to queue callers behind an empty bucket
+    private static final double SLOW_PER_SECOND = 4;
+
+    private final List<String> calls = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    @AfterEach
+    void restoreRates() throws InterruptedException {
+        for (var thread : threads) {
+            thread.join(10_000);
+        }
+        for (var endpoint : EndpointClass.values()) {
+            SCHEDULER.setRate(endpoint, endpoint.getDefaultPerSecond());
+        }
+    }
+
+    @Test
+    void higherLanesTakeTheNextTokenAndEachLaneIsFifo() throws Exception {
+        var endpoint = EndpointClass.CONTACTS;
+        SCHEDULER.setRate(endpoint, SLOW_PER_SECOND);
+        drain(endpoint);
+
+        for (var i = 0; i < 3; i++) {
+            enqueue(Lane.BACKGROUND, endpoint, "background " + i);
+        }
+        enqueue(Lane.BULK, endpoint, "bulk");
+        enqueue(Lane.INTERACTIVE, endpoint, "interactive 0");
+        enqueue(Lane.INTERACTIVE, endpoint, "interactive 1");
+        awaitThreads();
+
+        assertEquals(List.of("interactive 0", "interactive 1", "bulk", "background 0", "background 1", "background 2"),
+                calls());
+    }
+
+    @Test
+    void anEndpointClassWithoutTokensDoesNotHoldUpOthers() throws Exception {
+        var slow = EndpointClass.MESSAGES_WRITE;
+        SCHEDULER.setRate(slow, SLOW_PER_SECOND);
+        drain(slow);
+        enqueue(Lane.INTERACTIVE, slow, "slow");
+
+        // a lower lane of another class goes right away
+        var started = System.nanoTime();
+        SCHEDULER.call(Lane.BACKGROUND, EndpointClass.USERS, "test.users", () -> record("users"));
+        var waitedMillis = (System.nanoTime() - started) / 1_000_000;
+        awaitThreads();
+
+        assertEquals(List.of("users", "slow"), calls());
+        assertTrue(waitedMillis < 200, "waited " + waitedMillis + " ms");
+    }
+
+    @Test
+    void callsRunOnTheCallingThreadInTheCurrentLane() {
+        var caller = Thread.currentThread();
+        var lane = RequestScheduler.inLane(Lane.BULK, () -> {
+            var runner = SCHEDULER.call(EndpointClass.USERS, "test.users", Thread::currentThread);
+            assertSame(caller, runner);
+            return RequestScheduler.currentLane();
+        });
+
+        assertEquals(Lane.BULK, lane);
+        assertEquals(Lane.INTERACTIVE, RequestScheduler.currentLane());
+    }
+
+    /***
+     * Use up the tokens of the endpoint class, until a call has to wait for the next one
+     */
+    private void drain(EndpointClass endpoint) {
+        // the first call loads classes, which could pass for waiting
+        SCHEDULER.call(Lane.INTERACTIVE, EndpointClass.USERS, "test.warm_up", () -> null);
+        var tokenMillis = (long) (1_000 / SLOW_PER_SECOND);
+        while (true) {
+            var started = System.nanoTime();
+            SCHEDULER.call(Lane.INTERACTIVE, endpoint, "test.drain", () -> null);
+            if ((System.nanoTime() - started) / 1_000_000 >= tokenMillis / 2) return;
+        }
+    }
+
+    /***
+     * Start a call on its own thread and wait until it is queued
+     */
+    private void enqueue(Lane lane, EndpointClass endpoint, String name) throws InterruptedException {
+        var depth = SCHEDULER.getQueueDepth(lane);
+        var thread = new Thread(() -> SCHEDULER.call(lane, endpoint, "test.call", () -> record(name)));
+        threads.add(thread);
+        thread.start();
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (SCHEDULER.getQueueDepth(lane) == depth && thread.isAlive()) {
+            assertTrue(System.currentTimeMillis() < deadline, name + " was never queued");
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitThreads() throws InterruptedException {
+        for (var thread : threads) {
+            thread.join(10_000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    private String record(String name) {
+        synchronized (calls) {
+            calls.add(name);
+        }
+        return name;
+    }
+
+    private List<String> calls() {
+        synchronized (calls) {
+            return new ArrayList<>(calls);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.dbchar.zoombot.script;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptParserTest {
+    @Test
+    void skipsBlankAndCommentLinesAndKeepsLineNumbers() throws IOException {
+        var steps = parse("# comment\n\n  channels  \nwait\n   # indented comment\nhistory general 2020-05-01\n");
+
+        assertEquals(3, steps.size());
+        assertEquals(3, steps.get(0).getLine());
+        assertEquals("channels", steps.get(0).getCommand());
+        assertEquals(List.of(), steps.get(0).getArgs());
+        assertEquals(6, steps.get(2).getLine());
+        assertEquals(List.of("general", "2020-05-01"), steps.get(2).getArgs());
+    }
+
+    @Test
+    void quotedArgumentsKeepTheirBlanks() throws IOException {
+        var step = parse("message.send general  \"nightly  archive done\"\t\"\"").get(0);
+
+        assertEquals(List.of("general", "nightly  archive done", ""), step.getArgs());
+    }
+
+    @Test
+    void escapesInsideQuotes() throws IOException {
+        var step = parse("message.send general \"say \\\"hi\\\" to C:\\\\bot\"").get(0);
+
+        assertEquals("say \"hi\" to C:\\bot", step.getArg(1));
+    }
+
+    @Test
+    void quotesJoinAdjacentText() throws IOException {
+        var step = parse("search general 2020-05-01 2020-05-02 a\"b c\"d").get(0);
+
+        assertEquals("ab cd", step.getArg(3));
+        assertEquals(4, step.getArgs().size());
+    }
+
+    @Test
+    void backslashOutsideQuotesIsLiteral() throws IOException {
+        var step = parse("message.send general a\\b").get(0);
+
+        assertEquals("a\\b", step.getArg(1));
+    }
+
+    @Test
+    void unterminatedQuoteNamesTheLine() {
+        var e = assertThrows(IllegalArgumentException.class, () -> parse("channels\nmessage.send general \"oops"));
+
+        assertTrue(e.getMessage().startsWith("line 2"), e.getMessage());
+    }
+
+    private static List<ScriptStep> parse(String script) throws IOException {
+        return ScriptParser.parse(new BufferedReader(new StringReader(script)));
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.dbchar.zoombot.send;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkSenderTest {
+    private static final List<String> CHANNELS = List.of("general", "random", "dev", "ops", "support");
+
+    @Test
+    void sendsEachChannelInOrderAndChannelsInParallel() {
+        var sender = new FakeSender();
+        var bulkSender = new BulkSender(sender, 8);
+        try {
+            var requests = requests(200);
+
+            var results = bulkSender.send(requests.stream());
+
+            assertEquals(200, results.size());
+            for (var channel : CHANNELS) {
+                var expected = requests.stream().filter(request -> request.getChannelName().equals(channel))
+                        .map(SendRequest::getMessage).collect(Collectors.toList());
+                assertEquals(expected, sender.sentTo(channel));
+            }
+            assertEquals(0, sender.overlaps.get(), "sends to one channel overlapped");
+            assertTrue(sender.maxInFlight.get() > 1, "channels were sent one at a time");
+        } finally {
+            bulkSender.shutdown();
+        }
+    }
+
+    @Test
+    void aFailureIsReportedAndTheChannelGoesOn() {
+        var sender = new FakeSender();
+        var bulkSender = new BulkSender(sender, 4);
+        try {
+            var requests = List.of(
+                    new SendRequest("general", "one"),
+                    new SendRequest("general", "fail"),
+                    new SendRequest("random", "throw"),
+                    new SendRequest("general", "three"),
+                    new SendRequest("random", "four"));
+            var listened = new AtomicInteger();
+
+            var results = bulkSender.send(requests.stream(), result -> listened.incrementAndGet());
+
+            assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(SendResult::getIndex).collect(Collectors.toList()));
+            assertEquals(List.of(true, false, false, true, true),
+                    results.stream().map(SendResult::isSuccess).collect(Collectors.toList()));
+            assertEquals("rejected", results.get(1).getErrorMessage());
+            assertEquals("connection reset", results.get(2).getErrorMessage());
+            assertEquals("general-3", results.get(3).getMessageId());
+            assertEquals(List.of("one", "three"), sender.sentTo("general"));
+            assertEquals(List.of("four"), sender.sentTo("random"));
+            assertEquals(5, listened.get());
+        } finally {
+            bulkSender.shutdown();
+        }
+    }
+
+    @Test
+    void acceptsMoreRequestsThanCanBePending() {
+        var sender = new FakeSender();
+        var bulkSender = new BulkSender(sender, 1);
+        try {
+            // one in flight allows 16 pending requests
+            var results = bulkSender.send(requests(100).stream());
+
+            assertEquals(100, results.size());
+            assertTrue(results.stream().allMatch(SendResult::isSuccess));
+        } finally {
+            bulkSender.shutdown();
+        }
+    }
+
+    private static List<SendRequest> requests(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new SendRequest(CHANNELS.get(i % CHANNELS.size()), "message " + i))
+                .collect(Collectors.toList());
+    }
+
+    /***
+     * Takes a moment per message and records what each channel received
+     */
+    private static class FakeSender implements MessageSender {
+        final Map<String, List<String>> sent = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> inFlightByChannel = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+
+        @Override
+        public SendResult send(int index, SendRequest request) {
+            var channelInFlight = inFlightByChannel.computeIfAbsent(request.getChannelName(), key -> new AtomicInteger());
+            if (channelInFlight.incrementAndGet() > 1) overlaps.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+                if (request.getMessage().equals("throw")) throw new IllegalStateException("connection reset");
+                if (request.getMessage().equals("fail")) return SendResult.failure(index, request, "rejected");
+
+                var messages = sent.computeIfAbsent(request.getChannelName(), key -> new ArrayList<>());
+                synchronized (messages) {
+                    messages.add(request.getMessage());
+                }
+                return SendResult.success(index, request, request.getChannelName() + "-" + index);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return SendResult.failure(index, request, "interrupted");
+            } finally {
+                inFlight.decrementAndGet();
+                channelInFlight.decrementAndGet();
+            }
+        }
+
+        List<String> sentTo(String channel) {
+            var messages = sent.getOrDefault(channel, List.of());
+            synchronized (messages) {
+                return new ArrayList<>(messages);
+            }
+        }
+    }
+}
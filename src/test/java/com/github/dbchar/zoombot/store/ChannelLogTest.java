@@ -0,0 +1,118 @@
+package com.github.dbchar.zoombot.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelLogTest {
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES * 3 + Integer.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWhatWasAppended() throws IOException {
+        var log = open();
+        log.append(18_400, records("a", "bb", ""));
+        log.append(18_399, records("c"));
+
+        assertTrue(log.contains(18_400));
+        assertFalse(log.contains(18_401));
+        assertNull(log.read(18_401));
+        assertEquals(List.of(18_399L, 18_400L), log.listDays());
+        assertEquals(List.of("a", "bb", ""), strings(log.read(18_400)));
+
+        // and so does a log opened on the same files, e.g. after a restart
+        var reopened = open();
+        assertEquals(List.of(18_399L, 18_400L), reopened.listDays());
+        assertEquals(List.of("c"), strings(reopened.read(18_399)));
+    }
+
+    @Test
+    void appendKeepsAStoredDayAndReplaceOverwritesIt() throws IOException {
+        var log = open();
+        log.append(18_400, records("first"));
+        log.append(18_400, records("ignored"));
+        assertEquals(List.of("first"), strings(log.read(18_400)));
+
+        log.replace(18_400, records("edited", "second"));
+        assertEquals(List.of("edited", "second"), strings(log.read(18_400)));
+        assertEquals(List.of("edited", "second"), strings(open().read(18_400)));
+        assertEquals(List.of(18_400L), open().listDays());
+    }
+
+    @Test
+    void cutsOffATornIndexEntry() throws IOException {
+        var log = open();
+        log.append(18_400, records("a"));
+        log.append(18_401, records("b"));
+
+        // a crash in the middle of writing the second entry
+        try (var channel = FileChannel.open(indexPath(), WRITE)) {
+            channel.truncate(INDEX_ENTRY_SIZE + 10);
+        }
+
+        var recovered = open();
+        assertEquals(List.of(18_400L), recovered.listDays());
+        assertEquals(INDEX_ENTRY_SIZE, Files.size(indexPath()));
+
+        // entries appended after the recovery stay aligned
+        recovered.append(18_402, records("c"));
+        var reopened = open();
+        assertEquals(List.of(18_400L, 18_402L), reopened.listDays());
+        assertEquals(List.of("a"), strings(reopened.read(18_400)));
+        assertEquals(List.of("c"), strings(reopened.read(18_402)));
+    }
+
+    @Test
+    void corruptRecordIsReportedAsAnIOException() throws IOException {
+        var log = open();
+        log.append(18_400, records("a", "b"));
+
+        // a record length reaching past the end of the day
+        try (var channel = FileChannel.open(logPath(), WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1_000), 0);
+        }
+
+        assertThrows(IOException.class, () -> open().read(18_400));
+    }
+
+    private ChannelLog open() {
+        return new ChannelLog(logPath(), indexPath());
+    }
+
+    private Path logPath() {
+        return directory.resolve("channel.log");
+    }
+
+    private Path indexPath() {
+        return directory.resolve("channel.idx");
+    }
+
+    private static List<byte[]> records(String... texts) {
+        var records = new ArrayList<byte[]>();
+        for (var text : texts) {
+            records.add(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+
+    private static List<String> strings(List<byte[]> records) {
+        var strings = new ArrayList<String>();
+        for (var record : records) {
+            strings.add(new String(record, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+}